@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms;
+
+import java.util.List;
+
+import javax.jms.Message;
+
+/**
+ * Listener used with JmsMessageConsumer to have messages delivered asynchronously in
+ * batches rather than one at a time, acknowledgements are then handled once for each
+ * batch instead of once for every message.
+ *
+ * Batches hold whatever messages are waiting for the consumer when the batch is taken,
+ * up to the size the listener was registered with, and are never empty.
+ */
+public interface JmsBatchMessageListener {
+
+    /**
+     * Called with the next batch of messages in the order they arrived.
+     *
+     * @param messages
+     *        the messages in this batch.
+     */
+    void onMessages(List<Message> messages);
+
+}
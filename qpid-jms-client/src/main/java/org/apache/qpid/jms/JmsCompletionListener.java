@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms;
+
+import javax.jms.Message;
+
+/**
+ * Listener used with the asynchronous send methods of JmsMessageProducer to be
+ * notified once the remote peer has settled the outcome of a sent Message.
+ *
+ * Callbacks for the sends of a single producer are invoked in the order the
+ * messages were sent, on the Session's dispatch thread.
+ */
+public interface JmsCompletionListener {
+
+    /**
+     * Called when the remote peer has accepted the sent Message.
+     *
+     * @param message
+     *        the Message that was sent.
+     */
+    void onCompletion(Message message);
+
+    /**
+     * Called when the send of the Message failed, either because the remote
+     * peer rejected it or because the producer or connection failed first.
+     *
+     * @param message
+     *        the Message that was sent.
+     * @param exception
+     *        the error that caused the send to fail.
+     */
+    void onException(Message message, Exception exception);
+
+}
@@ -18,11 +18,16 @@ package org.apache.qpid.jms;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +59,7 @@ import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsMessage;
 import org.apache.qpid.jms.message.JmsMessageFactory;
+import org.apache.qpid.jms.message.JmsMessageTransformation;
 import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
 import org.apache.qpid.jms.meta.JmsConnectionId;
 import org.apache.qpid.jms.meta.JmsConnectionInfo;
@@ -64,6 +70,7 @@ import org.apache.qpid.jms.meta.JmsResource;
 import org.apache.qpid.jms.meta.JmsSessionId;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
 import org.apache.qpid.jms.meta.JmsTransactionId;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderClosedException;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
@@ -85,6 +92,8 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     private final Map<JmsSessionId, JmsSession> sessions = new ConcurrentHashMap<JmsSessionId, JmsSession>();
     private final Map<JmsConsumerId, JmsMessageDispatcher> dispatchers =
         new ConcurrentHashMap<JmsConsumerId, JmsMessageDispatcher>();
+    private final Map<JmsConsumerId, JmsConnectionConsumer> connectionConsumers =
+        new ConcurrentHashMap<JmsConsumerId, JmsConnectionConsumer>();
     private final AtomicBoolean connected = new AtomicBoolean();
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicBoolean closing = new AtomicBoolean();
@@ -98,11 +107,20 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     private URI connectedURI;
     private JmsPrefetchPolicy prefetchPolicy = new JmsPrefetchPolicy();
     private boolean localMessagePriority;
+    private boolean lockFreeMessageQueue;
+    private int maxInFlightAsyncSends = JmsConnectionInfo.DEFAULT_MAX_IN_FLIGHT_ASYNC_SENDS;
+    private int ackBatchSize;
+    private long ackBatchTimeout = JmsConnectionInfo.DEFAULT_ACK_BATCH_TIMEOUT;
+    private int listenerDispatchThreads;
+    private boolean listenerDispatchOrderByGroup;
+    private boolean encodeOnSendingThread;
     private boolean clientIdSet;
     private boolean sendAcksAsync;
     private ExceptionListener exceptionListener;
 
     private final ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor scheduler;
+    private ThreadPoolExecutor listenerDispatchPool;
 
     private Provider provider;
     private final Set<JmsConnectionListener> connectionListeners =
@@ -165,6 +183,20 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
 
                 closing.set(true);
 
+                if (isConnected() && !failed.get()) {
+                    for (JmsSession session : sessions.values()) {
+                        try {
+                            session.flushAcknowledgements();
+                        } catch (JMSException e) {
+                            LOG.debug("Failed sending batched acknowledgements on close: {}", e.getMessage());
+                        }
+                    }
+                }
+
+                for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+                    connectionConsumer.shutdown();
+                }
+
                 for (JmsSession session : sessions.values()) {
                     session.shutdown();
                 }
@@ -207,6 +239,18 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                 LOG.warn("Error shutting down thread pool: " + executor + ". This exception will be ignored.", e);
             }
 
+            synchronized (this) {
+                if (scheduler != null) {
+                    scheduler.shutdownNow();
+                    scheduler = null;
+                }
+
+                if (listenerDispatchPool != null) {
+                    ThreadPoolUtils.shutdown(listenerDispatchPool);
+                    listenerDispatchPool = null;
+                }
+            }
+
             if (provider != null) {
                 provider.close();
                 provider = null;
@@ -230,7 +274,9 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
      */
     protected void shutdown(Exception cause) throws JMSException {
 
-        // NOTE - Once ConnectionConsumer is added we must shutdown those as well.
+        for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+            connectionConsumer.shutdown();
+        }
 
         for (JmsSession session : sessions.values()) {
             session.shutdown(cause);
@@ -328,6 +374,9 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                 for (JmsSession s : sessions.values()) {
                     s.start();
                 }
+                for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+                    connectionConsumer.start();
+                }
             } catch (Exception e) {
                 throw JmsExceptionSupport.create(e);
             }
@@ -360,6 +409,9 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                     s.stop();
                 }
             }
+            for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+                connectionConsumer.stop();
+            }
         }
     }
 
@@ -380,7 +432,11 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                                                               String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
         checkClosedOrFailed();
         connect();
-        throw new JMSException("Not supported");
+        if (!isExplicitClientID()) {
+            throw new IllegalStateException("You must specify a unique clientID for the Connection to use a DurableSubscriber");
+        }
+        JmsSession.checkDestination(topic);
+        return createConnectionConsumer(topic, subscriptionName, messageSelector, sessionPool, maxMessages);
     }
 
     /**
@@ -398,7 +454,8 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                                                        ServerSessionPool sessionPool, int maxMessages) throws JMSException {
         checkClosedOrFailed();
         connect();
-        throw new JMSException("Not supported");
+        JmsSession.checkDestination(destination);
+        return createConnectionConsumer(destination, null, messageSelector, sessionPool, maxMessages);
     }
 
     /**
@@ -416,7 +473,8 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                                                        ServerSessionPool sessionPool, int maxMessages) throws JMSException {
         checkClosedOrFailed();
         connect();
-        throw new JMSException("Not supported");
+        JmsSession.checkDestination(topic);
+        return createConnectionConsumer(topic, null, messageSelector, sessionPool, maxMessages);
     }
 
     /**
@@ -434,7 +492,24 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                                                        ServerSessionPool sessionPool, int maxMessages) throws JMSException {
         checkClosedOrFailed();
         connect();
-        throw new JMSException("Not supported");
+        JmsSession.checkDestination(queue);
+        return createConnectionConsumer(queue, null, messageSelector, sessionPool, maxMessages);
+    }
+
+    private ConnectionConsumer createConnectionConsumer(Destination destination, String subscriptionName, String messageSelector,
+                                                        ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        if (sessionPool == null) {
+            throw new JMSException("A ServerSessionPool must be supplied to create a ConnectionConsumer");
+        }
+        messageSelector = JmsSession.checkSelector(messageSelector);
+        JmsDestination dest = JmsMessageTransformation.transformDestination(this, destination);
+        JmsConnectionConsumer result = new JmsConnectionConsumer(
+            this, getNextSessionId(), dest, subscriptionName, messageSelector, sessionPool, maxMessages);
+        result.init();
+        if (started.get()) {
+            result.start();
+        }
+        return result;
     }
 
     /**
@@ -511,6 +586,16 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         sessions.put(sessionInfo.getSessionId(), session);
     }
 
+    protected void addConnectionConsumer(JmsConsumerInfo consumerInfo, JmsConnectionConsumer connectionConsumer) {
+        connectionConsumers.put(consumerInfo.getConsumerId(), connectionConsumer);
+        dispatchers.put(consumerInfo.getConsumerId(), connectionConsumer);
+    }
+
+    protected void removeConnectionConsumer(JmsConsumerInfo consumerInfo) {
+        dispatchers.remove(consumerInfo.getConsumerId());
+        connectionConsumers.remove(consumerInfo.getConsumerId());
+    }
+
     protected void addDispatcher(JmsConsumerId consumerId, JmsMessageDispatcher dispatcher) {
         dispatchers.put(consumerId, dispatcher);
     }
@@ -568,6 +653,11 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                     throw new IllegalStateException("A consumer is consuming from the temporary destination");
                 }
             }
+            for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+                if (connectionConsumer.isUsingDestination(destination)) {
+                    throw new IllegalStateException("A consumer is consuming from the temporary destination");
+                }
+            }
 
             tempDestinations.remove(destination);
 
@@ -608,6 +698,54 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         return new JmsTransactionId(connectionInfo.getConnectionId(), transactionIdGenerator.incrementAndGet());
     }
 
+    /**
+     * Returns a scheduler that the resources of this Connection can use to run short
+     * timed tasks, the scheduler thread is only created on first use.
+     *
+     * @return the ScheduledExecutorService used for timed work in this Connection.
+     */
+    protected synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            final String connectionId = connectionInfo.getConnectionId().toString();
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "QpidJMS Connection Scheduler: " + connectionId);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Returns the thread pool shared by the consumers of this Connection when parallel
+     * listener dispatch is enabled, the threads are only created on first use.
+     *
+     * @return the Executor used to run MessageListener deliveries in parallel.
+     */
+    protected synchronized Executor getListenerDispatchPool() {
+        if (listenerDispatchPool == null) {
+            final String connectionId = connectionInfo.getConnectionId().toString();
+            final AtomicLong threadCount = new AtomicLong();
+            int threads = Math.max(1, listenerDispatchThreads);
+            listenerDispatchPool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "QpidJMS Listener Dispatcher " +
+                            threadCount.incrementAndGet() + ": " + connectionId);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            listenerDispatchPool.allowCoreThreadTimeOut(true);
+        }
+        return listenerDispatchPool;
+    }
+
     protected synchronized boolean isExplicitClientID() {
         return clientIdSet;
     }
@@ -663,23 +801,65 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     }
 
     void send(JmsOutboundMessageDispatch envelope) throws JMSException {
+        send(envelope, null);
+    }
+
+    /**
+     * Sends the given envelope, when a completion is given the method returns once the
+     * send has been handed to the provider and the completion is signaled when the send
+     * is settled by the remote, otherwise the method waits for the send to complete.
+     */
+    void send(JmsOutboundMessageDispatch envelope, AsyncResult completion) throws JMSException {
         checkClosedOrFailed();
         connect();
 
-        // TODO - We don't currently have a way to say that an operation
-        //        should be done asynchronously.  A send can be done async
-        //        in many cases, such as non-persistent delivery.  We probably
-        //        don't need to do anything here though just have a way to
-        //        configure the provider for async sends which we do in the
-        //        JmsConnectionInfo.  Here we just need to register a listener
-        //        on the request to know when it completes if we want to do
-        //        JMS 2.0 style async sends where we signal a callback, then
-        //        we can manage order of callback events to async senders at
-        //        this level.
         try {
-            ProviderFuture request = new ProviderFuture();
-            provider.send(envelope, request);
-            request.sync();
+            if (completion != null) {
+                provider.send(envelope, completion);
+            } else {
+                ProviderFuture request = new ProviderFuture();
+                provider.send(envelope, request);
+                request.sync();
+            }
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
+    /**
+     * Sends the given envelopes to the provider as a single batch.  When completions are
+     * given the method returns once the batch has been handed to the provider, otherwise it
+     * waits for every send to complete and then throws the first failure in send order.
+     */
+    void send(List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> completions) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            if (completions != null) {
+                provider.send(envelopes, completions);
+            } else {
+                List<ProviderFuture> requests = new ArrayList<ProviderFuture>(envelopes.size());
+                for (int i = 0; i < envelopes.size(); ++i) {
+                    requests.add(new ProviderFuture());
+                }
+                provider.send(envelopes, new ArrayList<AsyncResult>(requests));
+
+                Exception failure = null;
+                for (ProviderFuture request : requests) {
+                    try {
+                        request.sync();
+                    } catch (Exception ex) {
+                        if (failure == null) {
+                            failure = ex;
+                        }
+                    }
+                }
+
+                if (failure != null) {
+                    throw failure;
+                }
+            }
         } catch (Exception ioe) {
             throw JmsExceptionSupport.create(ioe);
         }
@@ -698,6 +878,19 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         }
     }
 
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            ProviderFuture request = new ProviderFuture();
+            provider.acknowledge(envelopes, ackType, request);
+            request.sync();
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
     void acknowledge(JmsSessionId sessionId) throws JMSException {
         checkClosedOrFailed();
         connect();
@@ -861,6 +1054,62 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         this.localMessagePriority = localMessagePriority;
     }
 
+    public boolean isLockFreeMessageQueue() {
+        return lockFreeMessageQueue;
+    }
+
+    public void setLockFreeMessageQueue(boolean lockFreeMessageQueue) {
+        this.lockFreeMessageQueue = lockFreeMessageQueue;
+    }
+
+    public int getMaxInFlightAsyncSends() {
+        return maxInFlightAsyncSends;
+    }
+
+    public void setMaxInFlightAsyncSends(int maxInFlightAsyncSends) {
+        this.maxInFlightAsyncSends = maxInFlightAsyncSends;
+    }
+
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    public long getAckBatchTimeout() {
+        return ackBatchTimeout;
+    }
+
+    public void setAckBatchTimeout(long ackBatchTimeout) {
+        this.ackBatchTimeout = ackBatchTimeout;
+    }
+
+    public int getListenerDispatchThreads() {
+        return listenerDispatchThreads;
+    }
+
+    public void setListenerDispatchThreads(int listenerDispatchThreads) {
+        this.listenerDispatchThreads = listenerDispatchThreads;
+    }
+
+    public boolean isListenerDispatchOrderByGroup() {
+        return listenerDispatchOrderByGroup;
+    }
+
+    public void setListenerDispatchOrderByGroup(boolean listenerDispatchOrderByGroup) {
+        this.listenerDispatchOrderByGroup = listenerDispatchOrderByGroup;
+    }
+
+    public boolean isEncodeOnSendingThread() {
+        return encodeOnSendingThread;
+    }
+
+    public void setEncodeOnSendingThread(boolean encodeOnSendingThread) {
+        this.encodeOnSendingThread = encodeOnSendingThread;
+    }
+
     public long getCloseTimeout() {
         return connectionInfo.getCloseTimeout();
     }
@@ -965,8 +1214,9 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     @Override
     public void onInboundMessage(final JmsInboundMessageDispatch envelope) {
 
-        JmsMessage incoming = envelope.getMessage();
-        // Ensure incoming Messages are in readonly mode.
+        // Ensure incoming Messages are in readonly mode, a deferred message is made read
+        // only when it is decoded so it is not forced to decode on the Provider thread.
+        JmsMessage incoming = envelope.isMessageDeferred() ? null : envelope.getMessage();
         if (incoming != null) {
             incoming.setReadOnlyBody(true);
             incoming.setReadOnlyProperties(true);
@@ -996,6 +1246,10 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
             session.onConnectionInterrupted();
         }
 
+        for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+            connectionConsumer.onConnectionInterrupted();
+        }
+
         // Run the application callbacks on the connection executor to allow the provider to
         // return to its normal processing without waiting for client level processing to finish.
         for (final JmsConnectionListener listener : connectionListeners) {
@@ -1024,6 +1278,10 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         for (JmsSession session : sessions.values()) {
             session.onConnectionRecovery(provider);
         }
+
+        for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+            connectionConsumer.onConnectionRecovery(provider);
+        }
     }
 
     @Override
@@ -1036,6 +1294,10 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         for (JmsSession session : sessions.values()) {
             session.onConnectionRecovered(provider);
         }
+
+        for (JmsConnectionConsumer connectionConsumer : connectionConsumers.values()) {
+            connectionConsumer.onConnectionRecovered(provider);
+        }
     }
 
     @Override
@@ -1135,10 +1397,19 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                     } else if (resource instanceof JmsConsumerInfo) {
                         JmsSessionId parentId = ((JmsConsumerInfo) resource).getParentId();
                         JmsSession session = sessions.get(parentId);
+                        JmsConnectionConsumer connectionConsumer =
+                            connectionConsumers.get(((JmsConsumerInfo) resource).getConsumerId());
                         if (session != null) {
                             session.resourceRemotelyClosed(resource, cause);
 
                             // TODO: exception listener?
+                        } else if (connectionConsumer != null) {
+                            LOG.info("A JMS resource has been remotely closed: {}", resource);
+                            try {
+                                connectionConsumer.shutdown();
+                            } catch (Throwable error) {
+                                LOG.trace("Ignoring exception thrown during cleanup of remotely closed consumer", error);
+                            }
                         }
                     } else {
                         LOG.info("A JMS resource has been remotely closed: {}", resource);
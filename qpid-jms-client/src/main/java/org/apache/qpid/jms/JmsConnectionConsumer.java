@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.ConnectionConsumer;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.ServerSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+import org.apache.qpid.jms.meta.JmsConsumerId;
+import org.apache.qpid.jms.meta.JmsConsumerInfo;
+import org.apache.qpid.jms.meta.JmsSessionId;
+import org.apache.qpid.jms.meta.JmsSessionInfo;
+import org.apache.qpid.jms.provider.Provider;
+import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
+import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.util.FifoMessageQueue;
+import org.apache.qpid.jms.util.MessageQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JMS ConnectionConsumer implementation.
+ *
+ * The ConnectionConsumer owns a single consumer link on a session of its own.  Messages
+ * that arrive on it are loaded, up to maxMessages at a time, into ServerSessions taken
+ * from the application's ServerSessionPool, each of which is then started so that its
+ * Session run method delivers them to the Session MessageListener.
+ *
+ * Messages are only acknowledged as delivered, which is what replenishes the link credit,
+ * once they have been loaded into a ServerSession.  When the pool has no free ServerSession
+ * the link credit runs down and the remote stops sending until one becomes available.
+ */
+public class JmsConnectionConsumer implements ConnectionConsumer, JmsMessageDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsConnectionConsumer.class);
+
+    private final JmsConnection connection;
+    private final JmsSessionInfo sessionInfo;
+    private final JmsConsumerInfo consumerInfo;
+    private final ServerSessionPool sessionPool;
+    private final int maxMessages;
+    private final MessageQueue messageQueue = new FifoMessageQueue();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ExecutorService dispatcher;
+
+    protected JmsConnectionConsumer(JmsConnection connection, JmsSessionId sessionId, JmsDestination destination,
+                                    String name, String selector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        this.connection = connection;
+        this.sessionPool = sessionPool;
+        this.maxMessages = Math.max(1, maxMessages);
+
+        if (destination.isTemporary()) {
+            connection.checkConsumeFromTemporaryDestination((JmsTemporaryDestination) destination);
+        }
+
+        this.sessionInfo = new JmsSessionInfo(sessionId);
+        this.sessionInfo.setAcknowledgementMode(Session.AUTO_ACKNOWLEDGE);
+        this.sessionInfo.setSendAcksAsync(connection.isSendAcksAsync());
+
+        this.consumerInfo = new JmsConsumerInfo(new JmsConsumerId(sessionId, 1));
+        this.consumerInfo.setClientId(connection.getClientID());
+        this.consumerInfo.setSelector(selector);
+        this.consumerInfo.setSubscriptionName(name);
+        this.consumerInfo.setDestination(destination);
+        this.consumerInfo.setAcknowledgementMode(Session.AUTO_ACKNOWLEDGE);
+        this.consumerInfo.setPrefetchSize(getConfiguredPrefetch(destination, name != null, connection.getPrefetchPolicy()));
+
+        this.dispatcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runner) {
+                Thread thread = new Thread(runner);
+                thread.setName("JmsConnectionConsumer [" + consumerInfo.getConsumerId() + "] dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        connection.createResource(sessionInfo);
+        try {
+            connection.createResource(consumerInfo);
+        } catch (JMSException ex) {
+            dispatcher.shutdown();
+            connection.destroyResource(sessionInfo);
+            throw ex;
+        }
+    }
+
+    public void init() throws JMSException {
+        connection.addConnectionConsumer(consumerInfo, this);
+        try {
+            connection.startResource(consumerInfo);
+        } catch (JMSException ex) {
+            connection.removeConnectionConsumer(consumerInfo);
+            throw ex;
+        }
+
+        dispatcher.execute(new ServerSessionLoader());
+    }
+
+    @Override
+    public ServerSessionPool getServerSessionPool() throws JMSException {
+        checkClosed();
+        return sessionPool;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        if (!closed.get()) {
+            shutdown();
+            connection.destroyResource(consumerInfo);
+            connection.destroyResource(sessionInfo);
+        }
+    }
+
+    /**
+     * Called to release all ConnectionConsumer resources without requiring a destroy
+     * request to be sent to the remote peer, as when the parent Connection is closing.
+     *
+     * @throws JMSException
+     */
+    protected void shutdown() throws JMSException {
+        if (closed.compareAndSet(false, true)) {
+            connection.removeConnectionConsumer(consumerInfo);
+            messageQueue.close();
+            dispatcher.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onInboundMessage(JmsInboundMessageDispatch envelope) {
+        messageQueue.enqueue(envelope);
+    }
+
+    public void start() {
+        if (!closed.get()) {
+            messageQueue.start();
+        }
+    }
+
+    public void stop() {
+        messageQueue.stop();
+    }
+
+    public JmsConsumerId getConsumerId() {
+        return consumerInfo.getConsumerId();
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    protected void checkClosed() throws IllegalStateException {
+        if (closed.get()) {
+            throw new IllegalStateException("The ConnectionConsumer is closed");
+        }
+    }
+
+    boolean isUsingDestination(JmsDestination destination) {
+        return consumerInfo.getDestination().equals(destination);
+    }
+
+    protected void onConnectionInterrupted() {
+        messageQueue.clear();
+    }
+
+    protected void onConnectionRecovery(Provider provider) throws Exception {
+        ProviderFuture request = new ProviderFuture();
+        provider.create(sessionInfo, request);
+        request.sync();
+
+        request = new ProviderFuture();
+        provider.create(consumerInfo, request);
+        request.sync();
+    }
+
+    protected void onConnectionRecovered(Provider provider) throws Exception {
+        ProviderFuture request = new ProviderFuture();
+        provider.start(consumerInfo, request);
+        request.sync();
+    }
+
+    @Override
+    public String toString() {
+        return "JmsConnectionConsumer { " + consumerInfo.getConsumerId() + " }";
+    }
+
+    private static int getConfiguredPrefetch(JmsDestination destination, boolean durable, JmsPrefetchPolicy policy) {
+        if (destination.isTopic()) {
+            return durable ? policy.getDurableTopicPrefetch() : policy.getTopicPrefetch();
+        } else {
+            return policy.getQueuePrefetch();
+        }
+    }
+
+    /*
+     * Waits for messages and a free ServerSession, then loads the session with the messages
+     * available at that point, up to maxMessages, and starts it.  Runs until the consumer is
+     * closed, while it is stopped the loader waits for the message queue to be restarted.
+     */
+    private final class ServerSessionLoader implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                JmsInboundMessageDispatch envelope;
+                while ((envelope = messageQueue.dequeue(-1)) != null) {
+                    List<JmsInboundMessageDispatch> batch = new ArrayList<JmsInboundMessageDispatch>(maxMessages);
+                    batch.add(envelope);
+                    try {
+                        load(batch);
+                    } catch (JMSException ex) {
+                        if (!closed.get()) {
+                            releaseAll(batch);
+                            connection.onException(ex);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void load(List<JmsInboundMessageDispatch> batch) throws JMSException {
+            ServerSession serverSession = sessionPool.getServerSession();
+            Session session = serverSession.getSession();
+            if (!(session instanceof JmsSession) || ((JmsSession) session).getConnection() != connection) {
+                throw new IllegalStateException("ServerSession must supply a Session created from this Connection");
+            }
+
+            JmsSession target = (JmsSession) session;
+
+            JmsInboundMessageDispatch envelope;
+            while (batch.size() < maxMessages && (envelope = messageQueue.dequeueNoWait()) != null) {
+                batch.add(envelope);
+            }
+
+            connection.acknowledge(batch, ACK_TYPE.DELIVERED);
+            for (JmsInboundMessageDispatch loaded : batch) {
+                target.loadServerSessionMessage(loaded);
+            }
+
+            LOG.trace("{} loaded {} messages into ServerSession", JmsConnectionConsumer.this, batch.size());
+            batch.clear();
+
+            serverSession.start();
+        }
+
+        private void releaseAll(List<JmsInboundMessageDispatch> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                connection.acknowledge(batch, ACK_TYPE.RELEASED);
+            } catch (JMSException ex) {
+                LOG.debug("Failed releasing messages that could not be loaded: {}", ex.getMessage());
+            }
+        }
+    }
+}
@@ -60,6 +60,13 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
     private boolean alwaysSyncSend;
     private boolean sendAcksAsync;
     private boolean localMessagePriority;
+    private boolean lockFreeMessageQueue;
+    private int maxInFlightAsyncSends = JmsConnectionInfo.DEFAULT_MAX_IN_FLIGHT_ASYNC_SENDS;
+    private int ackBatchSize;
+    private long ackBatchTimeout = JmsConnectionInfo.DEFAULT_ACK_BATCH_TIMEOUT;
+    private int listenerDispatchThreads;
+    private boolean listenerDispatchOrderByGroup;
+    private boolean encodeOnSendingThread;
     private String queuePrefix = null;
     private String topicPrefix = null;
     private long sendTimeout = JmsConnectionInfo.DEFAULT_SEND_TIMEOUT;
@@ -398,6 +405,148 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
         this.localMessagePriority = localMessagePriority;
     }
 
+    /**
+     * @return the lockFreeMessageQueue configuration option.
+     */
+    public boolean isLockFreeMessageQueue() {
+        return this.lockFreeMessageQueue;
+    }
+
+    /**
+     * Enables the use of a lock free ring based queue to hold prefetched messages in
+     * MessageConsumer instances.  This reduces contention between the thread that
+     * receives messages from the remote peer and the thread consuming them.  When
+     * local message priority is also enabled a priority queue is used instead.
+     *
+     * @param lockFreeMessageQueue the lockFreeMessageQueue to set
+     */
+    public void setLockFreeMessageQueue(boolean lockFreeMessageQueue) {
+        this.lockFreeMessageQueue = lockFreeMessageQueue;
+    }
+
+    /**
+     * @return the maximum number of sends with a completion listener a producer may have outstanding.
+     */
+    public int getMaxInFlightAsyncSends() {
+        return maxInFlightAsyncSends;
+    }
+
+    /**
+     * Sets the maximum number of sends made with a JmsCompletionListener that a single
+     * MessageProducer may have awaiting their outcome.  Once the limit is reached further
+     * sends block until an outstanding send completes.  A value of zero or less removes
+     * the limit.
+     *
+     * @param maxInFlightAsyncSends
+     *        the maximum number of outstanding sends per producer.
+     */
+    public void setMaxInFlightAsyncSends(int maxInFlightAsyncSends) {
+        this.maxInFlightAsyncSends = maxInFlightAsyncSends;
+    }
+
+    /**
+     * @return the number of consumed message acknowledgements a Session may batch together.
+     */
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    /**
+     * Sets the number of consumed message acknowledgements that a Session may hold back and
+     * then send to the remote peer in a single operation instead of waiting on each one in
+     * turn.  Batching applies to auto acknowledge, dups ok and transacted Sessions, pending
+     * acknowledgements are always sent before a commit, rollback or close.  A batch is also
+     * limited to a fifth of the prefetch of the consumer so that held back acknowledgements
+     * cannot starve the consumer of link credit.  A value of one or less disables batching.
+     *
+     * @param ackBatchSize
+     *        the maximum number of acknowledgements to hold back.
+     */
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    /**
+     * @return the time in milliseconds a batched acknowledgement may be held back.
+     */
+    public long getAckBatchTimeout() {
+        return ackBatchTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds that a non-transacted Session may hold back a batch of
+     * acknowledgements that has not yet filled before it is sent to the remote peer.
+     *
+     * @param ackBatchTimeout
+     *        the time in milliseconds to wait before sending a partial batch.
+     */
+    public void setAckBatchTimeout(long ackBatchTimeout) {
+        this.ackBatchTimeout = ackBatchTimeout;
+    }
+
+    /**
+     * @return the number of threads shared by consumers for parallel MessageListener dispatch.
+     */
+    public int getListenerDispatchThreads() {
+        return listenerDispatchThreads;
+    }
+
+    /**
+     * Sets the number of threads in a pool shared by all the consumers of a Connection which
+     * is used to run asynchronous MessageListener deliveries for auto acknowledge and dups ok
+     * Sessions in parallel.  Messages of each consumer are still delivered one at a time and
+     * in order, so the gain comes from consumers of the same Session no longer waiting on
+     * each other.  A value of zero, the default, keeps the single Session dispatch thread.
+     *
+     * @param listenerDispatchThreads
+     *        the number of threads used for parallel listener dispatch.
+     */
+    public void setListenerDispatchThreads(int listenerDispatchThreads) {
+        this.listenerDispatchThreads = listenerDispatchThreads;
+    }
+
+    /**
+     * @return true if parallel listener dispatch only orders messages within a message group.
+     */
+    public boolean isListenerDispatchOrderByGroup() {
+        return listenerDispatchOrderByGroup;
+    }
+
+    /**
+     * When parallel listener dispatch is enabled this relaxes the ordering of a consumer so
+     * that only messages carrying the same JMSXGroupID are delivered in order, messages from
+     * different groups may then be handed to the listener concurrently.  Messages without a
+     * group are all delivered in order with respect to each other.
+     *
+     * @param listenerDispatchOrderByGroup
+     *        true if ordering should only be kept within each message group.
+     */
+    public void setListenerDispatchOrderByGroup(boolean listenerDispatchOrderByGroup) {
+        this.listenerDispatchOrderByGroup = listenerDispatchOrderByGroup;
+    }
+
+    /**
+     * @return true if messages are encoded by the thread that sends them.
+     */
+    public boolean isEncodeOnSendingThread() {
+        return encodeOnSendingThread;
+    }
+
+    /**
+     * Encodes each sent message into its wire form on the thread calling send instead of
+     * on the Provider's single connection thread, which then only has to hand the bytes
+     * over.  This lets the send rate of a connection grow with the number of sending
+     * threads at the cost of allocating a fresh buffer for every message.  As the encoded
+     * bytes then capture the message as it was sent, messages created by this client are
+     * no longer copied before being sent, where the message type allows it.
+     *
+     * @param encodeOnSendingThread
+     *        true if messages should be encoded on the sending thread.
+     */
+    public void setEncodeOnSendingThread(boolean encodeOnSendingThread) {
+        this.encodeOnSendingThread = encodeOnSendingThread;
+    }
+
     /**
      * Returns the prefix applied to Queues that are created by the client.
      *
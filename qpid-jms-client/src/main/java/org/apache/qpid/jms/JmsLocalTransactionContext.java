@@ -27,6 +27,7 @@ import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
 import org.apache.qpid.jms.meta.JmsTransactionId;
 import org.apache.qpid.jms.meta.JmsTransactionInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
@@ -53,10 +54,18 @@ public class JmsLocalTransactionContext implements JmsTransactionContext {
     }
 
     @Override
-    public void send(JmsConnection connection, JmsOutboundMessageDispatch envelope) throws JMSException {
+    public void send(JmsConnection connection, JmsOutboundMessageDispatch envelope, AsyncResult completion) throws JMSException {
         if (!isFailed()) {
             begin();
-            connection.send(envelope);
+            connection.send(envelope, completion);
+        }
+    }
+
+    @Override
+    public void send(JmsConnection connection, List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> completions) throws JMSException {
+        if (!isFailed()) {
+            begin();
+            connection.send(envelopes, completions);
         }
     }
 
@@ -71,6 +80,17 @@ public class JmsLocalTransactionContext implements JmsTransactionContext {
         connection.acknowledge(envelope, ackType);
     }
 
+    @Override
+    public void acknowledge(JmsConnection connection, List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        // Consumed or delivered messages fall into a transaction so we must check
+        // that there is an active one and start one if not.
+        if (ackType == ACK_TYPE.CONSUMED || ackType == ACK_TYPE.DELIVERED) {
+            begin();
+        }
+
+        connection.acknowledge(envelopes, ackType);
+    }
+
     @Override
     public void addSynchronization(JmsTxSynchronization sync) throws JMSException {
         if (synchronizations == null) {
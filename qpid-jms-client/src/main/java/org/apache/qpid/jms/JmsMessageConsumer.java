@@ -16,8 +16,12 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -40,12 +44,18 @@ import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.util.FifoMessageQueue;
 import org.apache.qpid.jms.util.MessageQueue;
 import org.apache.qpid.jms.util.PriorityMessageQueue;
+import org.apache.qpid.jms.util.RingMessageQueue;
+import org.apache.qpid.jms.util.SerialExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * implementation of a JMS Message Consumer
  */
 public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableConsumer, JmsMessageDispatcher {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JmsMessageConsumer.class);
+
     protected final JmsSession session;
     protected final JmsConnection connection;
     protected JmsConsumerInfo consumerInfo;
@@ -53,6 +63,8 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     protected final AtomicBoolean closed = new AtomicBoolean();
     protected boolean started;
     protected MessageListener messageListener;
+    protected JmsBatchMessageListener batchMessageListener;
+    protected int batchMessageListenerSize;
     protected JmsMessageAvailableListener availableListener;
     protected final MessageQueue messageQueue;
     protected final Lock lock = new ReentrantLock();
@@ -60,6 +72,13 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     protected final AtomicBoolean delivered = new AtomicBoolean();
     protected Exception failureCause;
 
+    // Only set when parallel listener dispatch is in use, otherwise the Session executor runs
+    // all deliveries.  The group lanes are only created when ordering is kept per group.
+    private final SerialExecutor dispatchExecutor;
+    private final GroupLane[] groupLanes;
+    private final Object groupLanesLock = new Object();
+    private boolean groupLanesSuspended;
+
     /**
      * Create a non-durable MessageConsumer
      *
@@ -96,12 +115,6 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
             connection.checkConsumeFromTemporaryDestination((JmsTemporaryDestination) destination);
         }
 
-        if (connection.isLocalMessagePriority()) {
-            this.messageQueue = new PriorityMessageQueue();
-        } else {
-            this.messageQueue = new FifoMessageQueue();
-        }
-
         JmsPrefetchPolicy policy = this.connection.getPrefetchPolicy();
 
         this.consumerInfo = new JmsConsumerInfo(consumerId);
@@ -114,6 +127,40 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         this.consumerInfo.setBrowser(isBrowser());
         this.consumerInfo.setPrefetchSize(getConfiguredPrefetch(destination, policy));
 
+        if (connection.isLocalMessagePriority()) {
+            this.messageQueue = new PriorityMessageQueue();
+        } else if (connection.isLockFreeMessageQueue()) {
+            this.messageQueue = new RingMessageQueue(consumerInfo.getPrefetchSize());
+        } else {
+            this.messageQueue = new FifoMessageQueue();
+        }
+
+        boolean autoAckOrDupsOk = acknowledgementMode == Session.AUTO_ACKNOWLEDGE ||
+                                  acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE;
+        if (autoAckOrDupsOk && connection.getListenerDispatchThreads() > 0 && !isBrowser()) {
+            // The pool is looked up on each hand off so its threads are only created once a
+            // listener actually receives something.
+            Executor pool = new Executor() {
+                @Override
+                public void execute(Runnable task) {
+                    connection.getListenerDispatchPool().execute(task);
+                }
+            };
+
+            this.dispatchExecutor = new SerialExecutor(pool);
+            if (connection.isListenerDispatchOrderByGroup()) {
+                this.groupLanes = new GroupLane[connection.getListenerDispatchThreads()];
+                for (int i = 0; i < groupLanes.length; ++i) {
+                    groupLanes[i] = new GroupLane(pool);
+                }
+            } else {
+                this.groupLanes = null;
+            }
+        } else {
+            this.dispatchExecutor = null;
+            this.groupLanes = null;
+        }
+
         try {
             session.getConnection().createResource(consumerInfo);
         } catch (JMSException ex) {
@@ -174,6 +221,12 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
      * @throws JMSException
      */
     protected void doClose() throws JMSException {
+        try {
+            // Acks held back by the session must reach the link before it is detached.
+            session.flushAcknowledgements();
+        } catch (JMSException e) {
+            LOG.debug("Failed sending batched acknowledgements on close: {}", e.getMessage());
+        }
         shutdown();
         this.connection.destroyResource(consumerInfo);
     }
@@ -252,6 +305,56 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return copy(ackFromReceive(this.messageQueue.dequeueNoWait()));
     }
 
+    /**
+     * Receives up to the given number of messages in one call, waiting only for the
+     * first of them.  The messages are acknowledged as a single batch rather than one
+     * at a time, which amortises the cost of each receive across the batch.
+     *
+     * With a prefetch of zero only a single message is pulled from the remote peer
+     * for each call.
+     *
+     * @param maxMessages
+     *        the maximum number of messages to return.
+     * @param timeout
+     *        the time in milliseconds to wait for the first message, zero to wait
+     *        indefinitely or a negative value to not wait at all.
+     *
+     * @return the received messages in order, empty if none arrived in time.
+     *
+     * @throws JMSException if an error occurs while receiving the messages.
+     */
+    public List<Message> receive(int maxMessages, long timeout) throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        if (maxMessages < 1) {
+            throw new JMSException("Illegal batch size of " + maxMessages + ", at least one message must be requested");
+        }
+        sendPullCommand(timeout);
+
+        // The queue blocks forever on -1 and does not block at all on 0.
+        long wait = timeout;
+        if (timeout == 0) {
+            wait = -1;
+        } else if (timeout < 0) {
+            wait = 0;
+        }
+
+        List<JmsInboundMessageDispatch> envelopes = null;
+        try {
+            JmsInboundMessageDispatch first = this.messageQueue.dequeue(wait);
+            if (first == null) {
+                return new ArrayList<Message>(0);
+            }
+
+            envelopes = this.messageQueue.dequeueNoWait(maxMessages - 1);
+            envelopes.add(0, first);
+        } catch (InterruptedException e) {
+            throw JmsExceptionSupport.create(e);
+        }
+
+        return copy(ackFromReceive(envelopes));
+    }
+
     protected void checkClosed() throws IllegalStateException {
         if (closed.get()) {
             IllegalStateException jmsEx = null;
@@ -271,7 +374,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         if (envelope == null || envelope.getMessage() == null) {
             return null;
         }
-        return envelope.getMessage().copy();
+        return envelope.getMessage().copyOnWrite();
     }
 
     JmsInboundMessageDispatch ackFromReceive(final JmsInboundMessageDispatch envelope) throws JMSException {
@@ -291,6 +394,37 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return envelope;
     }
 
+    List<Message> copy(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        List<Message> messages = new ArrayList<Message>(envelopes.size());
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            messages.add(copy(envelope));
+        }
+        return messages;
+    }
+
+    List<JmsInboundMessageDispatch> ackFromReceive(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        List<JmsInboundMessageDispatch> toAckDelivered = new ArrayList<JmsInboundMessageDispatch>();
+        List<JmsInboundMessageDispatch> toAckConsumed = new ArrayList<JmsInboundMessageDispatch>();
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            if (envelope.getMessage().getAcknowledgeCallback() != null) {
+                toAckDelivered.add(envelope);
+            } else {
+                toAckConsumed.add(envelope);
+            }
+        }
+
+        if (!toAckDelivered.isEmpty()) {
+            doAckDelivered(toAckDelivered);
+        }
+        if (!toAckConsumed.isEmpty()) {
+            doAckConsumed(toAckConsumed);
+        }
+
+        // Tags that we have delivered and can't close if in a TX Session.
+        delivered.set(true);
+        return envelopes;
+    }
+
     private JmsInboundMessageDispatch doAckConsumed(final JmsInboundMessageDispatch envelope) throws JMSException {
         checkClosed();
         try {
@@ -312,6 +446,25 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return envelope;
     }
 
+    private void doAckConsumed(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        checkClosed();
+        try {
+            session.acknowledge(envelopes, ACK_TYPE.CONSUMED);
+        } catch (JMSException ex) {
+            session.onException(ex);
+            throw ex;
+        }
+    }
+
+    private void doAckDelivered(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        try {
+            session.acknowledge(envelopes, ACK_TYPE.DELIVERED);
+        } catch (JMSException ex) {
+            session.onException(ex);
+            throw ex;
+        }
+    }
+
     private void doAckReleased(final JmsInboundMessageDispatch envelope) throws JMSException {
         try {
             session.acknowledge(envelope, ACK_TYPE.RELEASED);
@@ -352,8 +505,8 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
                 this.messageQueue.enqueue(envelope);
             }
 
-            if (this.messageListener != null && this.started) {
-                session.getExecutor().execute(new MessageDeliverTask());
+            if (hasMessageListener() && this.started) {
+                getDispatchExecutor().execute(new MessageDeliverTask());
             } else {
                 if (availableListener != null) {
                     session.getExecutor().execute(new Runnable() {
@@ -377,6 +530,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
             this.started = true;
             this.messageQueue.start();
             drainMessageQueueToListener();
+            resumeGroupLanes();
         } finally {
             lock.unlock();
         }
@@ -421,8 +575,127 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     }
 
     void drainMessageQueueToListener() {
-        if (this.messageListener != null && this.started) {
-            session.getExecutor().execute(new MessageDeliverTask());
+        if (hasMessageListener() && this.started) {
+            getDispatchExecutor().execute(new MessageDeliverTask());
+        }
+    }
+
+    private Executor getDispatchExecutor() {
+        if (dispatchExecutor != null) {
+            return dispatchExecutor;
+        }
+
+        return session.getExecutor();
+    }
+
+    private GroupLane getGroupLane(JmsInboundMessageDispatch envelope) {
+        String groupId = envelope.getMessage().getFacade().getGroupId();
+        if (groupId == null) {
+            return groupLanes[0];
+        }
+
+        return groupLanes[(groupId.hashCode() & Integer.MAX_VALUE) % groupLanes.length];
+    }
+
+    /**
+     * Puts the messages waiting in the group lanes back at the head of the message queue and
+     * stops further hand off to the lanes, so that messages recovered by the session are not
+     * overtaken by later ones of the same group.
+     */
+    void suspendGroupLanes() {
+        if (groupLanes != null) {
+            synchronized (groupLanesLock) {
+                groupLanesSuspended = true;
+                returnGroupLaneMessages();
+            }
+        }
+    }
+
+    void resumeGroupLanes() {
+        if (groupLanes != null) {
+            synchronized (groupLanesLock) {
+                groupLanesSuspended = false;
+                for (GroupLane lane : groupLanes) {
+                    lane.schedule();
+                }
+            }
+        }
+    }
+
+    // Called with the group lanes lock held.
+    private void returnGroupLaneMessages() {
+        for (GroupLane lane : groupLanes) {
+            Iterator<JmsInboundMessageDispatch> pending = lane.pending.descendingIterator();
+            while (pending.hasNext()) {
+                messageQueue.enqueueFirst(pending.next());
+            }
+            lane.pending.clear();
+        }
+    }
+
+    private void deliver(JmsInboundMessageDispatch envelope) {
+        boolean parallel = dispatchExecutor != null;
+        if (parallel) {
+            session.beginParallelDelivery();
+        }
+
+        try {
+            JmsMessage copy = null;
+            boolean autoAckOrDupsOk = acknowledgementMode == Session.AUTO_ACKNOWLEDGE ||
+                                      acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE;
+            if (autoAckOrDupsOk) {
+                copy = copy(doAckDelivered(envelope));
+            } else {
+                copy = copy(ackFromReceive(envelope));
+            }
+            session.clearSessionRecovered();
+
+            messageListener.onMessage(copy);
+
+            if (autoAckOrDupsOk && !session.isSessionRecovered()) {
+                doAckConsumed(envelope);
+            }
+        } catch (Exception e) {
+            // TODO - We need to handle exception of on message with some other
+            //        ack such as rejected and consider adding a redlivery policy
+            //        to control when we might just poison the message with an ack
+            //        of modified set to not deliverable here.
+            session.getConnection().onException(e);
+        } finally {
+            if (parallel) {
+                session.endParallelDelivery();
+            }
+        }
+    }
+
+    private void deliver(JmsBatchMessageListener listener, List<JmsInboundMessageDispatch> envelopes) {
+        boolean parallel = dispatchExecutor != null;
+        if (parallel) {
+            session.beginParallelDelivery();
+        }
+
+        try {
+            boolean autoAckOrDupsOk = acknowledgementMode == Session.AUTO_ACKNOWLEDGE ||
+                                      acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE;
+            if (autoAckOrDupsOk) {
+                doAckDelivered(envelopes);
+            } else {
+                ackFromReceive(envelopes);
+            }
+            List<Message> copies = copy(envelopes);
+            session.clearSessionRecovered();
+
+            listener.onMessages(copies);
+
+            if (autoAckOrDupsOk && !session.isSessionRecovered()) {
+                doAckConsumed(envelopes);
+            }
+        } catch (Exception e) {
+            session.getConnection().onException(e);
+        } finally {
+            if (parallel) {
+                session.endParallelDelivery();
+            }
         }
     }
 
@@ -459,6 +732,59 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
                                    "for asynchronous consumers please set a value of at least 1");
         }
         this.messageListener = listener;
+        this.batchMessageListener = null;
+        if (groupLanes != null) {
+            synchronized (groupLanesLock) {
+                returnGroupLaneMessages();
+            }
+        }
+        drainMessageQueueToListener();
+    }
+
+    /**
+     * @return the batch listener set on this consumer, or null if there is none.
+     *
+     * @throws JMSException if the consumer is closed.
+     */
+    public JmsBatchMessageListener getBatchMessageListener() throws JMSException {
+        checkClosed();
+        return this.batchMessageListener;
+    }
+
+    /**
+     * Sets a listener that is handed the messages that arrive for this consumer in batches
+     * of up to the given size, in place of any MessageListener that was set.  Each batch is
+     * acknowledged as a whole, once before and, in the auto acknowledge modes, once after
+     * the listener has been called.
+     *
+     * Batches are taken from the messages already waiting for the consumer and are not
+     * held back to fill up, and are always delivered in order even when the Connection
+     * orders listener dispatch by message group.
+     *
+     * @param listener
+     *        the batch listener to set, or null to clear it.
+     * @param maxMessages
+     *        the maximum number of messages handed to the listener at once.
+     *
+     * @throws JMSException if the consumer is closed or the settings are not valid.
+     */
+    public void setBatchMessageListener(JmsBatchMessageListener listener, int maxMessages) throws JMSException {
+        checkClosed();
+        if (consumerInfo.getPrefetchSize() == 0) {
+            throw new JMSException("Illegal prefetch size of zero. This setting is not supported" +
+                                   "for asynchronous consumers please set a value of at least 1");
+        }
+        if (maxMessages < 1) {
+            throw new JMSException("Illegal batch size of " + maxMessages + ", at least one message must be requested");
+        }
+        this.batchMessageListenerSize = maxMessages;
+        this.batchMessageListener = listener;
+        this.messageListener = null;
+        if (groupLanes != null) {
+            synchronized (groupLanesLock) {
+                returnGroupLaneMessages();
+            }
+        }
         drainMessageQueueToListener();
     }
 
@@ -486,7 +812,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     }
 
     boolean hasMessageListener() {
-        return this.messageListener != null;
+        return this.messageListener != null || this.batchMessageListener != null;
     }
 
     boolean isUsingDestination(JmsDestination destination) {
@@ -521,6 +847,13 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
 
     protected void onConnectionInterrupted() {
         messageQueue.clear();
+        if (groupLanes != null) {
+            synchronized (groupLanesLock) {
+                for (GroupLane lane : groupLanes) {
+                    lane.pending.clear();
+                }
+            }
+        }
     }
 
     protected void onConnectionRecovery(Provider provider) throws Exception {
@@ -580,30 +913,89 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     private final class MessageDeliverTask implements Runnable {
         @Override
         public void run() {
+            JmsBatchMessageListener batchListener = batchMessageListener;
+            if (batchListener != null) {
+                List<JmsInboundMessageDispatch> batch;
+                while (session.isStarted() && !(batch = messageQueue.dequeueNoWait(batchMessageListenerSize)).isEmpty()) {
+                    deliver(batchListener, batch);
+                }
+                return;
+            }
+
+            if (groupLanes != null) {
+                // Handed to its lane under the lane lock so messages put back in the queue by
+                // suspendGroupLanes() cannot be overtaken by later ones of the same group.
+                while (session.isStarted()) {
+                    synchronized (groupLanesLock) {
+                        JmsInboundMessageDispatch envelope;
+                        if (groupLanesSuspended || (envelope = messageQueue.dequeueNoWait()) == null) {
+                            return;
+                        }
+                        getGroupLane(envelope).add(envelope);
+                    }
+                }
+                return;
+            }
+
             JmsInboundMessageDispatch envelope;
             while (session.isStarted() && (envelope = messageQueue.dequeueNoWait()) != null) {
-                try {
-                    JmsMessage copy = null;
-                    boolean autoAckOrDupsOk = acknowledgementMode == Session.AUTO_ACKNOWLEDGE ||
-                                              acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE;
-                    if (autoAckOrDupsOk) {
-                        copy = copy(doAckDelivered(envelope));
-                    } else {
-                        copy = copy(ackFromReceive(envelope));
-                    }
-                    session.clearSessionRecovered();
+                deliver(envelope);
+            }
+        }
+    }
+
+    /*
+     * Delivers the messages of the groups that map to it, in order, on a SerialExecutor over
+     * the Connection dispatch pool.  Each lane queues its own messages so a lane that is busy
+     * does not hold up delivery on the others, one message is delivered per task so the lane
+     * hands its pooled thread back between deliveries.
+     */
+    private final class GroupLane implements Runnable {
 
-                    messageListener.onMessage(copy);
+        private final SerialExecutor executor;
+        private final ArrayDeque<JmsInboundMessageDispatch> pending = new ArrayDeque<JmsInboundMessageDispatch>();
+        private boolean scheduled;
 
-                    if (autoAckOrDupsOk && !session.isSessionRecovered()) {
-                        doAckConsumed(envelope);
-                    }
-                } catch (Exception e) {
-                    // TODO - We need to handle exception of on message with some other
-                    //        ack such as rejected and consider adding a redlivery policy
-                    //        to control when we might just poison the message with an ack
-                    //        of modified set to not deliverable here.
-                    session.getConnection().onException(e);
+        public GroupLane(Executor pool) {
+            this.executor = new SerialExecutor(pool);
+        }
+
+        // Called with the group lanes lock held.
+        void add(JmsInboundMessageDispatch envelope) {
+            pending.add(envelope);
+            schedule();
+        }
+
+        // Called with the group lanes lock held.
+        void schedule() {
+            if (!scheduled && !pending.isEmpty()) {
+                scheduled = true;
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            JmsInboundMessageDispatch envelope = null;
+            synchronized (groupLanesLock) {
+                // Left waiting while stopped, start schedules the lane again.  Left unacknowledged
+                // if the consumer closed, the remote releases it with the link's unsettled messages.
+                if (!closed.get() && session.isStarted() && messageListener != null) {
+                    envelope = pending.poll();
+                }
+
+                if (envelope == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+
+            try {
+                deliver(envelope);
+            } finally {
+                synchronized (groupLanesLock) {
+                    scheduled = false;
+                    schedule();
                 }
             }
         }
@@ -16,6 +16,10 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -28,7 +32,9 @@ import javax.jms.Message;
 import javax.jms.MessageProducer;
 
 import org.apache.qpid.jms.meta.JmsProducerId;
+import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.meta.JmsProducerInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderFuture;
 
@@ -50,10 +56,19 @@ public class JmsMessageProducer implements MessageProducer {
     protected final AtomicLong messageSequence = new AtomicLong();
     protected Exception failureCause;
 
+    private final LinkedList<SendCompletion> pendingCompletions = new LinkedList<SendCompletion>();
+    private final Semaphore inFlightSends;
+    private volatile Thread completionThread;
+
     protected JmsMessageProducer(JmsProducerId producerId, JmsSession session, JmsDestination destination) throws JMSException {
         this.session = session;
         this.connection = session.getConnection();
         this.flexibleDestination = destination == null;
+        if (connection.getMaxInFlightAsyncSends() > 0) {
+            this.inFlightSends = new Semaphore(connection.getMaxInFlightAsyncSends());
+        } else {
+            this.inFlightSends = null;
+        }
         this.producerInfo = new JmsProducerInfo(producerId);
         this.producerInfo.setDestination(destination);
         session.getConnection().createResource(producerInfo);
@@ -80,6 +95,7 @@ public class JmsMessageProducer implements MessageProducer {
      * @throws JMSException
      */
     protected void doClose() throws JMSException {
+        awaitPendingCompletions();
         shutdown();
         this.connection.destroyResource(producerInfo);
     }
@@ -99,6 +115,7 @@ public class JmsMessageProducer implements MessageProducer {
         if (closed.compareAndSet(false, true)) {
             failureCause = cause;
             session.remove(this);
+            failPendingCompletions(cause);
         }
     }
 
@@ -230,12 +247,191 @@ public class JmsMessageProducer implements MessageProducer {
         sendMessage(destination, message, deliveryMode, priority, timeToLive);
     }
 
+    /**
+     * Sends the message without waiting for the remote peer to settle it, the given
+     * listener is notified once the outcome of the send is known.
+     *
+     * @param message
+     *        the message to send.
+     * @param listener
+     *        the listener to notify when the send completes.
+     *
+     * @throws JMSException if an error occurs while initiating the send.
+     */
+    public void send(Message message, JmsCompletionListener listener) throws JMSException {
+        send(message, this.deliveryMode, this.priority, this.timeToLive, listener);
+    }
+
+    /**
+     * Sends the message without waiting for the remote peer to settle it, the given
+     * listener is notified once the outcome of the send is known.
+     *
+     * @param message
+     *        the message to send.
+     * @param deliveryMode
+     *        the delivery mode to use.
+     * @param priority
+     *        the priority for this message.
+     * @param timeToLive
+     *        the message's lifetime (in milliseconds).
+     * @param listener
+     *        the listener to notify when the send completes.
+     *
+     * @throws JMSException if an error occurs while initiating the send.
+     */
+    public void send(Message message, int deliveryMode, int priority, long timeToLive, JmsCompletionListener listener) throws JMSException {
+        checkClosed();
+
+        if (flexibleDestination) {
+            throw new UnsupportedOperationException("Using this method is not supported on producers created without an explicit Destination");
+        }
+
+        sendMessage(producerInfo.getDestination(), message, deliveryMode, priority, timeToLive, listener);
+    }
+
+    /**
+     * Sends the message without waiting for the remote peer to settle it, the given
+     * listener is notified once the outcome of the send is known.
+     *
+     * @param destination
+     *        the destination to send the message to.
+     * @param message
+     *        the message to send.
+     * @param listener
+     *        the listener to notify when the send completes.
+     *
+     * @throws JMSException if an error occurs while initiating the send.
+     */
+    public void send(Destination destination, Message message, JmsCompletionListener listener) throws JMSException {
+        send(destination, message, this.deliveryMode, this.priority, this.timeToLive, listener);
+    }
+
+    /**
+     * Sends the message without waiting for the remote peer to settle it, the given
+     * listener is notified once the outcome of the send is known.
+     *
+     * @param destination
+     *        the destination to send the message to.
+     * @param message
+     *        the message to send.
+     * @param deliveryMode
+     *        the delivery mode to use.
+     * @param priority
+     *        the priority for this message.
+     * @param timeToLive
+     *        the message's lifetime (in milliseconds).
+     * @param listener
+     *        the listener to notify when the send completes.
+     *
+     * @throws JMSException if an error occurs while initiating the send.
+     */
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, JmsCompletionListener listener) throws JMSException {
+        checkClosed();
+
+        if (!flexibleDestination) {
+            throw new UnsupportedOperationException("Using this method is not supported on producers created with an explicit Destination.");
+        }
+
+        sendMessage(destination, message, deliveryMode, priority, timeToLive, listener);
+    }
+
+    /**
+     * Sends the messages to this producer's destination as a single batch, which the
+     * provider writes to the remote peer together instead of one send at a time.  Each
+     * message is prepared as it would be by its own send and the method waits until every
+     * send in the batch has completed.
+     *
+     * @param messages
+     *        the messages to send, in the order they should be sent.
+     *
+     * @throws JMSException the first failure in send order if any of the sends failed.
+     */
+    public void send(List<? extends Message> messages) throws JMSException {
+        checkClosed();
+
+        if (flexibleDestination) {
+            throw new UnsupportedOperationException("Using this method is not supported on producers created without an explicit Destination");
+        }
+
+        if (!messages.isEmpty()) {
+            this.session.send(this, producerInfo.getDestination(), messages, deliveryMode, priority, timeToLive, disableMessageId, disableTimestamp, null);
+        }
+    }
+
+    /**
+     * Sends the messages to this producer's destination as a single batch without waiting
+     * for the remote peer to settle them, the given listener is notified of the outcome of
+     * each message's send in the order the messages were given.  A batch larger than the
+     * configured limit of in-flight sends goes out in parts as earlier sends complete.
+     *
+     * @param messages
+     *        the messages to send, in the order they should be sent.
+     * @param listener
+     *        the listener to notify as each send completes.
+     *
+     * @throws JMSException if an error occurs while initiating the sends.
+     */
+    public void send(List<? extends Message> messages, JmsCompletionListener listener) throws JMSException {
+        checkClosed();
+
+        if (flexibleDestination) {
+            throw new UnsupportedOperationException("Using this method is not supported on producers created without an explicit Destination");
+        }
+
+        int start = 0;
+        List<AsyncResult> completions = new ArrayList<AsyncResult>(messages.size());
+        for (int i = 0; i < messages.size(); ++i) {
+            if (inFlightSends != null && !inFlightSends.tryAcquire()) {
+                if (!completions.isEmpty()) {
+                    sendBatch(messages.subList(start, i), completions);
+                    completions = new ArrayList<AsyncResult>(messages.size() - i);
+                    start = i;
+                }
+                acquireInFlightSend();
+            }
+
+            completions.add(addSendCompletion(messages.get(i), listener));
+        }
+
+        if (!completions.isEmpty()) {
+            sendBatch(messages.subList(start, messages.size()), completions);
+        }
+    }
+
+    private void sendBatch(List<? extends Message> messages, List<AsyncResult> completions) throws JMSException {
+        try {
+            this.session.send(this, producerInfo.getDestination(), messages, deliveryMode, priority, timeToLive, disableMessageId, disableTimestamp, completions);
+        } catch (JMSException ex) {
+            // The listener is never notified about sends that failed to start.
+            for (AsyncResult completion : completions) {
+                abandonSendCompletion((SendCompletion) completion);
+            }
+            throw ex;
+        }
+    }
+
     private void sendMessage(Destination destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        sendMessage(destination, message, deliveryMode, priority, timeToLive, null);
+    }
+
+    private void sendMessage(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, JmsCompletionListener listener) throws JMSException {
         if (destination == null) {
             throw new InvalidDestinationException("Don't understand null destinations");
         }
 
-        this.session.send(this, destination, message, deliveryMode, priority, timeToLive, disableMessageId, disableTimestamp);
+        if (listener == null) {
+            this.session.send(this, destination, message, deliveryMode, priority, timeToLive, disableMessageId, disableTimestamp, null);
+            return;
+        }
+
+        SendCompletion completion = createSendCompletion(message, listener);
+        try {
+            this.session.send(this, destination, message, deliveryMode, priority, timeToLive, disableMessageId, disableTimestamp, completion);
+        } catch (JMSException ex) {
+            // The listener is never notified about a send that failed to start.
+            abandonSendCompletion(completion);
+            throw ex;
+        }
     }
 
     /**
@@ -322,6 +518,209 @@ public class JmsMessageProducer implements MessageProducer {
         }
     }
 
+    ////////////////////////////////////////////////////////////////////////////
+    // Asynchronous send completion handling.
+    ////////////////////////////////////////////////////////////////////////////
+
+    private SendCompletion createSendCompletion(Message message, JmsCompletionListener listener) throws JMSException {
+        if (inFlightSends != null) {
+            acquireInFlightSend();
+        }
+
+        return addSendCompletion(message, listener);
+    }
+
+    private void acquireInFlightSend() throws JMSException {
+        try {
+            inFlightSends.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JmsExceptionSupport.create(e);
+        }
+    }
+
+    private SendCompletion addSendCompletion(Message message, JmsCompletionListener listener) {
+        SendCompletion completion = new SendCompletion(message, listener);
+        synchronized (pendingCompletions) {
+            pendingCompletions.addLast(completion);
+        }
+
+        return completion;
+    }
+
+    private void abandonSendCompletion(SendCompletion completion) {
+        boolean removed;
+        synchronized (pendingCompletions) {
+            removed = pendingCompletions.remove(completion);
+        }
+
+        if (removed && !completion.isComplete() && inFlightSends != null) {
+            inFlightSends.release();
+        }
+    }
+
+    /*
+     * Sends may complete out of order, only the completions at the head of the pending
+     * list are handed to the listener so that callbacks always follow send order.  The
+     * callbacks run on the session executor so the provider thread never runs client code.
+     */
+    private void dispatchCompletions() {
+        synchronized (pendingCompletions) {
+            pendingCompletions.notifyAll();
+        }
+
+        if (closed.get()) {
+            return;
+        }
+
+        session.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                List<SendCompletion> completed;
+                synchronized (pendingCompletions) {
+                    completed = takeCompleted();
+                }
+
+                signalCompleted(completed);
+            }
+        });
+    }
+
+    private List<SendCompletion> takeCompleted() {
+        List<SendCompletion> completed = new ArrayList<SendCompletion>();
+        while (!pendingCompletions.isEmpty() && pendingCompletions.peekFirst().isComplete()) {
+            completed.add(pendingCompletions.removeFirst());
+        }
+
+        return completed;
+    }
+
+    private void signalCompleted(List<SendCompletion> completed) {
+        completionThread = Thread.currentThread();
+        try {
+            for (SendCompletion completion : completed) {
+                completion.signalListener();
+            }
+        } finally {
+            completionThread = null;
+        }
+    }
+
+    /*
+     * Close waits for all outstanding sends, completions that arrive while waiting are
+     * signaled from here as the session executor may be the thread calling close.
+     */
+    private void awaitPendingCompletions() throws JMSException {
+        if (Thread.currentThread() == completionThread) {
+            throw new IllegalStateException("Cannot close a MessageProducer from its own completion listener");
+        }
+
+        while (true) {
+            List<SendCompletion> completed;
+            synchronized (pendingCompletions) {
+                completed = takeCompleted();
+                if (completed.isEmpty()) {
+                    if (pendingCompletions.isEmpty() || closed.get()) {
+                        return;
+                    }
+
+                    try {
+                        pendingCompletions.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw JmsExceptionSupport.create(e);
+                    }
+                    continue;
+                }
+            }
+
+            signalCompleted(completed);
+        }
+    }
+
+    /*
+     * The outstanding completions are signaled on the session executor behind any that are
+     * already queued there, so the listener still sees send order and a single thread.
+     */
+    private void failPendingCompletions(Exception cause) {
+        final List<SendCompletion> remaining;
+        synchronized (pendingCompletions) {
+            remaining = new ArrayList<SendCompletion>(pendingCompletions);
+            pendingCompletions.clear();
+            pendingCompletions.notifyAll();
+        }
+
+        if (remaining.isEmpty()) {
+            return;
+        }
+
+        for (SendCompletion completion : remaining) {
+            if (!completion.isComplete()) {
+                Exception error = cause;
+                if (error == null) {
+                    error = new IllegalStateException("The MessageProducer was closed before the send completed");
+                }
+                completion.onFailure(error);
+            }
+        }
+
+        session.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                signalCompleted(remaining);
+            }
+        });
+    }
+
+    private final class SendCompletion implements AsyncResult {
+
+        private final Message message;
+        private final JmsCompletionListener listener;
+        private volatile boolean complete;
+        private volatile Throwable error;
+
+        public SendCompletion(Message message, JmsCompletionListener listener) {
+            this.message = message;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            error = result;
+            onComplete();
+        }
+
+        @Override
+        public void onSuccess() {
+            onComplete();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+
+        private void onComplete() {
+            if (!complete) {
+                complete = true;
+                if (inFlightSends != null) {
+                    inFlightSends.release();
+                }
+                dispatchCompletions();
+            }
+        }
+
+        public void signalListener() {
+            if (error == null) {
+                listener.onCompletion(message);
+            } else {
+                listener.onException(message, JmsExceptionSupport.create(error));
+            }
+        }
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // Connection interruption handlers.
     ////////////////////////////////////////////////////////////////////////////
@@ -16,12 +16,15 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.List;
+
 import javax.jms.JMSException;
 
 import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
 import org.apache.qpid.jms.meta.JmsTransactionId;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 
@@ -32,8 +35,13 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 public class JmsNoTxTransactionContext implements JmsTransactionContext {
 
     @Override
-    public void send(JmsConnection connection, JmsOutboundMessageDispatch envelope) throws JMSException {
-        connection.send(envelope);
+    public void send(JmsConnection connection, JmsOutboundMessageDispatch envelope, AsyncResult completion) throws JMSException {
+        connection.send(envelope, completion);
+    }
+
+    @Override
+    public void send(JmsConnection connection, List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> completions) throws JMSException {
+        connection.send(envelopes, completions);
     }
 
     @Override
@@ -41,6 +49,11 @@ public class JmsNoTxTransactionContext implements JmsTransactionContext {
         connection.acknowledge(envelope, ackType);
     }
 
+    @Override
+    public void acknowledge(JmsConnection connection, List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        connection.acknowledge(envelopes, ackType);
+    }
+
     @Override
     public void addSynchronization(JmsTxSynchronization sync) throws JMSException {
         try {
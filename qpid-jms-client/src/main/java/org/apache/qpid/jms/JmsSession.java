@@ -18,13 +18,17 @@ package org.apache.qpid.jms;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
@@ -68,6 +72,7 @@ import org.apache.qpid.jms.meta.JmsProducerInfo;
 import org.apache.qpid.jms.meta.JmsResource;
 import org.apache.qpid.jms.meta.JmsSessionId;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
@@ -101,9 +106,28 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     private final AtomicLong consumerIdGenerator = new AtomicLong();
     private final AtomicLong producerIdGenerator = new AtomicLong();
     private JmsTransactionContext transactionContext;
-    private boolean sessionRecovered;
+    // Tracked per thread so that a listener calling recover() under parallel dispatch only
+    // affects the acknowledgement of the message it was handed.
+    private final ThreadLocal<Boolean> sessionRecovered = new ThreadLocal<Boolean>();
+
+    // Listener deliveries running in parallel on the Connection dispatch pool, recover() waits
+    // for those on other threads to finish and holds back new ones so none of them acknowledges
+    // a message that the recover is redelivering.
+    private final Object parallelDeliveryLock = new Object();
+    private final ThreadLocal<Boolean> inParallelDelivery = new ThreadLocal<Boolean>();
+    private int parallelDeliveries;
+    private boolean recovering;
     private Exception failureCause;
 
+    private final List<JmsInboundMessageDispatch> pendingAcks = new ArrayList<JmsInboundMessageDispatch>();
+    private ScheduledFuture<?> pendingAcksFlush;
+
+    // Messages loaded by a ConnectionConsumer when this Session backs a ServerSession, and
+    // those delivered from it that still await a client acknowledgement.
+    private final LinkedBlockingQueue<JmsInboundMessageDispatch> serverSessionMessages =
+        new LinkedBlockingQueue<JmsInboundMessageDispatch>();
+    private final List<JmsInboundMessageDispatch> serverSessionDelivered = new ArrayList<JmsInboundMessageDispatch>();
+
     protected JmsSession(JmsConnection connection, JmsSessionId sessionId, int acknowledgementMode) throws JMSException {
         this.connection = connection;
         this.acknowledgementMode = acknowledgementMode;
@@ -161,8 +185,75 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             throw new javax.jms.IllegalStateException("Cannot call recover() on a transacted session");
         }
 
-        connection.recover(getSessionId());
-        sessionRecovered = true;
+        if (!beginRecover()) {
+            // A recover already waiting on this thread's delivery redelivers its message too.
+            sessionRecovered.set(Boolean.TRUE);
+            return;
+        }
+
+        try {
+            for (JmsMessageConsumer consumer : consumers.values()) {
+                consumer.suspendGroupLanes();
+            }
+
+            flushAcknowledgements();
+            releaseServerSessionDelivered();
+            connection.recover(getSessionId());
+            sessionRecovered.set(Boolean.TRUE);
+        } finally {
+            for (JmsMessageConsumer consumer : consumers.values()) {
+                consumer.resumeGroupLanes();
+                consumer.drainMessageQueueToListener();
+            }
+            endRecover();
+        }
+    }
+
+    /*
+     * Waits until no parallel delivery other than the calling thread's own is in progress and
+     * blocks new ones from starting.  Returns false without waiting when called from within a
+     * parallel delivery while another recover is pending, that recover is waiting for this
+     * delivery and covers its message.
+     */
+    private boolean beginRecover() {
+        boolean interrupted = false;
+        int own = inParallelDelivery.get() != null ? 1 : 0;
+
+        synchronized (parallelDeliveryLock) {
+            while (recovering) {
+                if (own > 0) {
+                    return false;
+                }
+
+                try {
+                    parallelDeliveryLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            recovering = true;
+            while (parallelDeliveries > own) {
+                try {
+                    parallelDeliveryLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        return true;
+    }
+
+    private void endRecover() {
+        synchronized (parallelDeliveryLock) {
+            recovering = false;
+            parallelDeliveryLock.notifyAll();
+        }
     }
 
     @Override
@@ -173,6 +264,7 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             throw new javax.jms.IllegalStateException("Not a transacted session");
         }
 
+        flushAcknowledgements();
         transactionContext.commit();
     }
 
@@ -184,6 +276,8 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             throw new javax.jms.IllegalStateException("Not a transacted session");
         }
 
+        flushAcknowledgements();
+
         // Stop processing any new messages that arrive
         for (JmsMessageConsumer c : consumers.values()) {
             c.suspendForRollback();
@@ -204,7 +298,10 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             throw new RuntimeException(e);
         }
 
-        throw new UnsupportedOperationException();
+        JmsInboundMessageDispatch envelope;
+        while ((envelope = serverSessionMessages.poll()) != null) {
+            deliverServerSessionMessage(envelope);
+        }
     }
 
     @Override
@@ -222,6 +319,21 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
      */
     protected void doClose() throws JMSException {
         boolean interrupted = Thread.interrupted();
+        try {
+            flushAcknowledgements();
+        } catch (JMSException e) {
+            LOG.debug("Failed sending batched acknowledgements on close: {}", e.getMessage());
+        }
+        try {
+            List<JmsInboundMessageDispatch> undelivered = new ArrayList<JmsInboundMessageDispatch>();
+            serverSessionMessages.drainTo(undelivered);
+            if (!undelivered.isEmpty()) {
+                connection.acknowledge(undelivered, ACK_TYPE.RELEASED);
+            }
+            releaseServerSessionDelivered();
+        } catch (JMSException e) {
+            LOG.debug("Failed releasing ServerSession messages on close: {}", e.getMessage());
+        }
         shutdown();
         try {
             transactionContext.rollback();
@@ -251,15 +363,23 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     protected void shutdown(Exception cause) throws JMSException {
         if (closed.compareAndSet(false, true)) {
-            stop();
             failureCause = cause;
-            for (JmsMessageConsumer consumer : new ArrayList<JmsMessageConsumer>(this.consumers.values())) {
-                consumer.shutdown(cause);
-            }
 
+            // Producers queue the failure of their outstanding sends on the executor, which
+            // runs what it holds before the stop below shuts it down.
             for (JmsMessageProducer producer : new ArrayList<JmsMessageProducer>(this.producers.values())) {
                 producer.shutdown(cause);
             }
+
+            stop();
+            clearPendingAcknowledgements();
+            serverSessionMessages.clear();
+            synchronized (serverSessionDelivered) {
+                serverSessionDelivered.clear();
+            }
+            for (JmsMessageConsumer consumer : new ArrayList<JmsMessageConsumer>(this.consumers.values())) {
+                consumer.shutdown(cause);
+            }
         }
     }
 
@@ -675,50 +795,94 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         connection.onException(ex);
     }
 
-    protected void send(JmsMessageProducer producer, Destination dest, Message msg, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, boolean disableTimestamp) throws JMSException {
+    protected void send(JmsMessageProducer producer, Destination dest, Message msg, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, boolean disableTimestamp, AsyncResult completion) throws JMSException {
         JmsDestination destination = JmsMessageTransformation.transformDestination(connection, dest);
 
         if(destination.isTemporary() && ((JmsTemporaryDestination) destination).isDeleted()) {
             throw new IllegalStateException("Temporary destination has been deleted");
         }
 
-        send(producer, destination, msg, deliveryMode, priority, timeToLive, disableMsgId, disableTimestamp);
+        send(producer, destination, msg, deliveryMode, priority, timeToLive, disableMsgId, disableTimestamp, completion);
     }
 
-    private void send(JmsMessageProducer producer, JmsDestination destination, Message original, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, boolean disableTimestamp) throws JMSException {
+    private void send(JmsMessageProducer producer, JmsDestination destination, Message original, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, boolean disableTimestamp, AsyncResult completion) throws JMSException {
         sendLock.lock();
         try {
-            original.setJMSDeliveryMode(deliveryMode);
-            original.setJMSPriority(priority);
-            original.setJMSRedelivered(false);
+            JmsOutboundMessageDispatch envelope = createOutboundDispatch(
+                producer, destination, original, deliveryMode, priority, timeToLive, disableMsgId, disableTimestamp, completion != null);
+            transactionContext.send(connection, envelope, completion);
+        } finally {
+            sendLock.unlock();
+        }
+    }
 
-            long timeStamp = System.currentTimeMillis();
-            boolean hasTTL = timeToLive > 0;
+    /**
+     * Sends the messages as a single batch from the given producer, each message is prepared
+     * exactly as it would be for a send of its own before the batch is handed on.
+     */
+    protected void send(JmsMessageProducer producer, JmsDestination destination, List<? extends Message> messages, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, boolean disableTimestamp, List<AsyncResult> completions) throws JMSException {
+        if (destination.isTemporary() && ((JmsTemporaryDestination) destination).isDeleted()) {
+            throw new IllegalStateException("Temporary destination has been deleted");
+        }
 
-            if (!disableTimestamp) {
-                original.setJMSTimestamp(timeStamp);
-            } else {
-                original.setJMSTimestamp(0);
+        sendLock.lock();
+        try {
+            List<JmsOutboundMessageDispatch> envelopes = new ArrayList<JmsOutboundMessageDispatch>(messages.size());
+            for (Message message : messages) {
+                envelopes.add(createOutboundDispatch(
+                    producer, destination, message, deliveryMode, priority, timeToLive, disableMsgId, disableTimestamp, completions != null));
             }
+            transactionContext.send(connection, envelopes, completions);
+        } finally {
+            sendLock.unlock();
+        }
+    }
 
-            if (hasTTL) {
-                original.setJMSExpiration(timeStamp + timeToLive);
-            } else {
-                original.setJMSExpiration(0);
-            }
+    private JmsOutboundMessageDispatch createOutboundDispatch(JmsMessageProducer producer, JmsDestination destination, Message original, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, boolean disableTimestamp, boolean hasCompletion) throws JMSException {
+        original.setJMSDeliveryMode(deliveryMode);
+        original.setJMSPriority(priority);
+        original.setJMSRedelivered(false);
 
-            String msgId = getNextMessageId(producer);
-            if (!disableMsgId) {
-                original.setJMSMessageID(msgId);
-            }
+        long timeStamp = System.currentTimeMillis();
+        boolean hasTTL = timeToLive > 0;
 
-            boolean isJmsMessageType = original instanceof JmsMessage;
-            if (isJmsMessageType) {
-                ((JmsMessage) original).setConnection(connection);
-                original.setJMSDestination(destination);
-            }
+        if (!disableTimestamp) {
+            original.setJMSTimestamp(timeStamp);
+        } else {
+            original.setJMSTimestamp(0);
+        }
+
+        if (hasTTL) {
+            original.setJMSExpiration(timeStamp + timeToLive);
+        } else {
+            original.setJMSExpiration(0);
+        }
 
-            JmsMessage copy = JmsMessageTransformation.transformMessage(connection, original);
+        String msgId = getNextMessageId(producer);
+        if (!disableMsgId) {
+            original.setJMSMessageID(msgId);
+        }
+
+        boolean isJmsMessageType = original instanceof JmsMessage;
+        if (isJmsMessageType) {
+            ((JmsMessage) original).setConnection(connection);
+            original.setJMSDestination(destination);
+        }
+
+        // When encoding here with the ID and timestamp both set on the original the
+        // encoded bytes are the snapshot of what is sent, sparing a copy of the message.
+        Object payload = null;
+        if (isJmsMessageType && connection.isEncodeOnSendingThread() && !disableMsgId && !disableTimestamp) {
+            payload = ((JmsMessage) original).encodeForSend(timeToLive);
+        }
+
+        JmsMessage copy = null;
+        if (payload != null) {
+            // Marks the original as shared too, so it takes its own copy of the facade when
+            // the application next modifies it and the envelope's view stays as sent.
+            copy = ((JmsMessage) original).copyOnWrite();
+        } else {
+            copy = JmsMessageTransformation.transformMessage(connection, original);
 
             // Ensure original message gets the destination as per spec.
             if (!isJmsMessageType) {
@@ -731,25 +895,138 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             copy.setJMSMessageID(msgId);
             copy.setJMSTimestamp(timeStamp);
 
-            boolean sync = connection.isAlwaysSyncSend() ||
-                           (!connection.isForceAsyncSend() && deliveryMode == DeliveryMode.PERSISTENT && !getTransacted());
-
             copy.onSend(disableMsgId, disableTimestamp, timeToLive);
-            JmsOutboundMessageDispatch envelope = new JmsOutboundMessageDispatch();
-            envelope.setMessage(copy);
-            envelope.setProducerId(producer.getProducerId());
-            envelope.setDestination(destination);
-            envelope.setSendAsync(!sync);
-            envelope.setDispatchId(msgId);
-
-            transactionContext.send(connection, envelope);
-        } finally {
-            sendLock.unlock();
+            if (connection.isEncodeOnSendingThread()) {
+                payload = copy.getFacade().encodeMessage();
+            }
         }
+
+        // Sends with a completion are never completed early by the provider, the
+        // completion is signaled when the remote settles the delivery.
+        boolean sync = hasCompletion || connection.isAlwaysSyncSend() ||
+                       (!connection.isForceAsyncSend() && deliveryMode == DeliveryMode.PERSISTENT && !getTransacted());
+
+        JmsOutboundMessageDispatch envelope = new JmsOutboundMessageDispatch();
+        envelope.setMessage(copy);
+        envelope.setProducerId(producer.getProducerId());
+        envelope.setDestination(destination);
+        envelope.setSendAsync(!sync);
+        envelope.setDispatchId(msgId);
+        envelope.setPayload(payload);
+
+        return envelope;
     }
 
     void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType) throws JMSException {
-        transactionContext.acknowledge(connection, envelope, ackType);
+        if (ackType == ACK_TYPE.CONSUMED && isAcknowledgementBatching()) {
+            batchAcknowledge(envelope);
+        } else {
+            transactionContext.acknowledge(connection, envelope, ackType);
+        }
+    }
+
+    /**
+     * Acknowledges a batch of messages with the same acknowledgement type, consumed acks
+     * still join any batch of acknowledgements being held back by this session.
+     */
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        if (ackType == ACK_TYPE.CONSUMED && isAcknowledgementBatching()) {
+            for (JmsInboundMessageDispatch envelope : envelopes) {
+                batchAcknowledge(envelope);
+            }
+        } else {
+            transactionContext.acknowledge(connection, envelopes, ackType);
+        }
+    }
+
+    /**
+     * Sends any consumed message acknowledgements that are being held back in the current
+     * batch to the remote peer.
+     *
+     * @throws JMSException if an error occurs while the acknowledgements are sent.
+     */
+    void flushAcknowledgements() throws JMSException {
+        List<JmsInboundMessageDispatch> batch;
+        synchronized (pendingAcks) {
+            if (pendingAcks.isEmpty()) {
+                return;
+            }
+
+            batch = new ArrayList<JmsInboundMessageDispatch>(pendingAcks);
+            pendingAcks.clear();
+            if (pendingAcksFlush != null) {
+                pendingAcksFlush.cancel(false);
+                pendingAcksFlush = null;
+            }
+        }
+
+        connection.acknowledge(batch, ACK_TYPE.CONSUMED);
+    }
+
+    private boolean isAcknowledgementBatching() {
+        return connection.getAckBatchSize() > 1 && !isClientAcknowledge();
+    }
+
+    private void batchAcknowledge(JmsInboundMessageDispatch envelope) throws JMSException {
+        // Consumed messages fall into a transaction so one must be active before the
+        // ack is held back, the batch itself is always sent ahead of the commit.
+        transactionContext.begin();
+
+        boolean flush = false;
+        synchronized (pendingAcks) {
+            pendingAcks.add(envelope);
+            if (pendingAcks.size() >= getAcknowledgementBatchLimit(envelope)) {
+                flush = true;
+            } else if (pendingAcksFlush == null && !isTransacted()) {
+                pendingAcksFlush = connection.getScheduler().schedule(
+                    new AcknowledgementFlushTask(), connection.getAckBatchTimeout(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flush) {
+            flushAcknowledgements();
+        }
+    }
+
+    /*
+     * The remote only grants new credit once consumed messages are acknowledged, so a
+     * batch is kept well inside the prefetch of the consumer to avoid stalling the link.
+     */
+    private int getAcknowledgementBatchLimit(JmsInboundMessageDispatch envelope) {
+        int limit = connection.getAckBatchSize();
+        JmsMessageConsumer consumer = consumers.get(envelope.getConsumerId());
+        if (consumer != null) {
+            limit = Math.min(limit, Math.max(1, consumer.getPrefetchSize() / 5));
+        }
+        return limit;
+    }
+
+    private void clearPendingAcknowledgements() {
+        synchronized (pendingAcks) {
+            pendingAcks.clear();
+            if (pendingAcksFlush != null) {
+                pendingAcksFlush.cancel(false);
+                pendingAcksFlush = null;
+            }
+        }
+    }
+
+    private final class AcknowledgementFlushTask implements Runnable {
+
+        @Override
+        public void run() {
+            synchronized (pendingAcks) {
+                pendingAcksFlush = null;
+            }
+
+            try {
+                flushAcknowledgements();
+            } catch (JMSException ex) {
+                if (!isClosed()) {
+                    onException(ex);
+                }
+            }
+        }
     }
 
     /**
@@ -763,6 +1040,18 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             throw new IllegalStateException("Session acknowledge called inside a transacted Session");
         }
 
+        List<JmsInboundMessageDispatch> delivered = null;
+        synchronized (serverSessionDelivered) {
+            if (!serverSessionDelivered.isEmpty()) {
+                delivered = new ArrayList<JmsInboundMessageDispatch>(serverSessionDelivered);
+                serverSessionDelivered.clear();
+            }
+        }
+
+        if (delivered != null) {
+            this.connection.acknowledge(delivered, ACK_TYPE.CONSUMED);
+        }
+
         this.connection.acknowledge(sessionInfo.getSessionId());
     }
 
@@ -821,6 +1110,93 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         }
     }
 
+    //----- ServerSession support -------------------------------------------//
+
+    /**
+     * Called from a ConnectionConsumer to load a message into this Session for delivery
+     * to the Session MessageListener on the next call to {@link #run()}.  The message
+     * has already been acknowledged as delivered by the ConnectionConsumer.
+     *
+     * @param envelope
+     *        the message being loaded into this Session.
+     */
+    void loadServerSessionMessage(JmsInboundMessageDispatch envelope) {
+        serverSessionMessages.add(envelope);
+    }
+
+    private void deliverServerSessionMessage(final JmsInboundMessageDispatch envelope) {
+        final MessageListener listener = this.messageListener;
+        try {
+            if (listener == null) {
+                LOG.warn("No MessageListener set on ServerSession Session {}, releasing message", getSessionId());
+                connection.acknowledge(envelope, ACK_TYPE.RELEASED);
+                return;
+            }
+
+            if (isTransacted()) {
+                // The message belongs to the ConnectionConsumer link so it cannot be settled
+                // inside this Session's transaction, instead its fate follows the outcome.
+                transactionContext.begin();
+                transactionContext.addSynchronization(new JmsTxSynchronization() {
+
+                    @Override
+                    public void afterCommit() throws Exception {
+                        connection.acknowledge(envelope, ACK_TYPE.CONSUMED);
+                    }
+
+                    @Override
+                    public void afterRollback() throws Exception {
+                        connection.acknowledge(envelope, ACK_TYPE.RELEASED);
+                    }
+                });
+            } else if (isClientAcknowledge()) {
+                synchronized (serverSessionDelivered) {
+                    serverSessionDelivered.add(envelope);
+                }
+                envelope.getMessage().setAcknowledgeCallback(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (isClosed()) {
+                            throw new javax.jms.IllegalStateException("Session closed.");
+                        }
+                        acknowledge();
+                        envelope.getMessage().setAcknowledgeCallback(null);
+                        return null;
+                    }
+                });
+            }
+
+            JmsMessage copy = envelope.getMessage().copyOnWrite();
+            clearSessionRecovered();
+
+            listener.onMessage(copy);
+
+            if (!isTransacted() && !isClientAcknowledge()) {
+                if (isSessionRecovered()) {
+                    connection.acknowledge(envelope, ACK_TYPE.RELEASED);
+                } else {
+                    acknowledge(envelope, ACK_TYPE.CONSUMED);
+                }
+            }
+        } catch (Exception e) {
+            connection.onException(e);
+        }
+    }
+
+    private void releaseServerSessionDelivered() throws JMSException {
+        List<JmsInboundMessageDispatch> delivered = null;
+        synchronized (serverSessionDelivered) {
+            if (!serverSessionDelivered.isEmpty()) {
+                delivered = new ArrayList<JmsInboundMessageDispatch>(serverSessionDelivered);
+                serverSessionDelivered.clear();
+            }
+        }
+
+        if (delivered != null) {
+            connection.acknowledge(delivered, ACK_TYPE.RELEASED);
+        }
+    }
+
     // This extra wrapping class around SelectorParser is used to avoid
     // ClassNotFoundException if SelectorParser is not in the class path.
     static class OptionalSectorParser {
@@ -981,6 +1357,9 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     protected void onConnectionInterrupted() {
 
+        // Acks held back for messages delivered on the old connection are stale now.
+        clearPendingAcknowledgements();
+
         transactionContext.onConnectionInterrupted();
 
         for (JmsMessageProducer producer : producers.values()) {
@@ -1065,10 +1444,48 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     }
 
     boolean isSessionRecovered() {
-        return sessionRecovered;
+        return sessionRecovered.get() != null;
     }
 
     void clearSessionRecovered() {
-        sessionRecovered = false;
+        sessionRecovered.remove();
+    }
+
+    /**
+     * Called by a consumer before it hands a message to its listener on the Connection
+     * dispatch pool, waits while a recover of this session is in progress.
+     */
+    void beginParallelDelivery() {
+        boolean interrupted = false;
+
+        synchronized (parallelDeliveryLock) {
+            while (recovering) {
+                try {
+                    parallelDeliveryLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            parallelDeliveries++;
+        }
+
+        inParallelDelivery.set(Boolean.TRUE);
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called by a consumer once a delivery started with {@link #beginParallelDelivery()}
+     * is complete, including its acknowledgement.
+     */
+    void endParallelDelivery() {
+        inParallelDelivery.remove();
+
+        synchronized (parallelDeliveryLock) {
+            parallelDeliveries--;
+            parallelDeliveryLock.notifyAll();
+        }
     }
 }
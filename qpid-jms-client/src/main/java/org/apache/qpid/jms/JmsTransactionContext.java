@@ -16,11 +16,14 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.List;
+
 import javax.jms.JMSException;
 
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
 import org.apache.qpid.jms.meta.JmsTransactionId;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 
@@ -45,6 +48,22 @@ public interface JmsTransactionContext {
      */
     void acknowledge(JmsConnection connection, JmsInboundMessageDispatch envelope, ACK_TYPE ackType) throws JMSException;
 
+    /**
+     * Allows the context to intercept the acknowledgement of a batch of messages that
+     * share the same acknowledgement type and perform any additional logic prior to the
+     * acknowledge being forwarded onto the connection as a single unit of work.
+     *
+     * @param connection
+     *        the connection that the acknowledge will be forwarded to.
+     * @param envelopes
+     *        the envelopes that contain the messages to be acknowledged.
+     * @param ackType
+     *        the acknowledgement type being requested.
+     *
+     * @throws JMSException if an error occurs while performing the acknowledge.
+     */
+    void acknowledge(JmsConnection connection, List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException;
+
     /**
      * Allows the context to intercept and perform any additional logic
      * prior to a message being sent on to the connection and subsequently
@@ -54,10 +73,27 @@ public interface JmsTransactionContext {
      *        the connection that will be do the send of the message
      * @param envelope
      *        the envelope that contains the message to be sent.
+     * @param completion
+     *        if not null the send is not waited for and this is signaled on completion.
+     *
+     * @throws JMSException if an error occurs during the send.
+     */
+    void send(JmsConnection connection, JmsOutboundMessageDispatch envelope, AsyncResult completion) throws JMSException;
+
+    /**
+     * Allows the context to intercept and perform any additional logic prior to a
+     * batch of messages being sent on to the connection as a single unit of work.
+     *
+     * @param connection
+     *        the connection that will be do the send of the messages
+     * @param envelopes
+     *        the envelopes that contain the messages to be sent.
+     * @param completions
+     *        if not null the sends are not waited for and each is signaled on completion.
      *
      * @throws JMSException if an error occurs during the send.
      */
-    void send(JmsConnection connection, JmsOutboundMessageDispatch envelope) throws JMSException;
+    void send(JmsConnection connection, List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> completions) throws JMSException;
 
     /**
      * Adds the given Transaction synchronization to the current list. The
@@ -27,13 +27,14 @@ import javax.jms.MessageFormatException;
 
 import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.facade.JmsBytesMessageFacade;
+import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 
 public class JmsBytesMessage extends JmsMessage implements BytesMessage {
 
     protected transient DataOutputStream dataOut;
     protected transient DataInputStream dataIn;
 
-    private final JmsBytesMessageFacade facade;
+    private JmsBytesMessageFacade facade;
 
     public JmsBytesMessage(JmsBytesMessageFacade facade) {
         super(facade);
@@ -47,6 +48,21 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
         return other;
     }
 
+    @Override
+    public JmsBytesMessage copyOnWrite() throws JMSException {
+        JmsBytesMessage other = new JmsBytesMessage(facade);
+        other.copy(this);
+        other.facadeShared = true;
+        facadeShared = true;
+        return other;
+    }
+
+    @Override
+    protected void setFacade(JmsMessageFacade facade) {
+        super.setFacade(facade);
+        this.facade = (JmsBytesMessageFacade) facade;
+    }
+
     private void copy(JmsBytesMessage other) throws JMSException {
         super.copy(other);
         this.dataOut = null;
@@ -383,9 +399,19 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
         }
     }
 
+    @Override
+    public Object encodeForSend(long producerTtl) throws JMSException {
+        // The facade moves written bytes into the body on send, which would leave any
+        // open output stream of the application's instance detached, so always copy.
+        return null;
+    }
+
     @Override
     public void reset() throws JMSException {
-        this.facade.reset();
+        // A shared facade has no streams of this message open on it, see initializeReading.
+        if (!facadeShared) {
+            this.facade.reset();
+        }
         this.dataOut = null;
         this.dataIn = null;
         setReadOnlyBody(true);
@@ -398,6 +424,7 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
 
     private void initializeWriting() throws JMSException {
         checkReadOnlyBody();
+        unshareFacade();
         if (this.dataOut == null) {
             this.dataOut = new DataOutputStream(this.facade.getOutputStream());
         }
@@ -406,7 +433,13 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
     private void initializeReading() throws JMSException {
         checkWriteOnlyBody();
         if (dataIn == null) {
-            dataIn = new DataInputStream(this.facade.getInputStream());
+            // The facade holds the read position of its own stream, a shared facade is read
+            // through a stream of this message's own instead of taking a copy of it.
+            if (facadeShared) {
+                dataIn = new DataInputStream(this.facade.createDetachedInputStream());
+            } else {
+                dataIn = new DataInputStream(this.facade.getInputStream());
+            }
         }
     }
 }
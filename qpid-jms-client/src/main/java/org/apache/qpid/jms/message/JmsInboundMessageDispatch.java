@@ -42,6 +42,14 @@ public class JmsInboundMessageDispatch extends JmsAbstractResourceId {
         this.message = message;
     }
 
+    /**
+     * @return true if the Provider has deferred decoding of the message to the first call
+     *         of getMessage, which then does that work on the calling thread.
+     */
+    public boolean isMessageDeferred() {
+        return false;
+    }
+
     public JmsConsumerId getConsumerId() {
         return consumerId;
     }
@@ -40,9 +40,10 @@ public class JmsMessage implements javax.jms.Message {
     protected transient Callable<Void> acknowledgeCallback;
     protected transient JmsConnection connection;
 
-    protected final JmsMessageFacade facade;
+    protected JmsMessageFacade facade;
     protected boolean readOnlyBody;
     protected boolean readOnlyProperties;
+    protected boolean facadeShared;
 
     public JmsMessage(JmsMessageFacade facade) {
         this.facade = facade;
@@ -54,6 +55,27 @@ public class JmsMessage implements javax.jms.Message {
         return other;
     }
 
+    /**
+     * Creates a new message instance that shares this message's facade rather than copying
+     * it.  The facade is only copied once the new instance needs to modify it, which for
+     * read-only inbound messages is usually never, saving a full copy of the message on
+     * each delivery to the application.
+     *
+     * Both this message and the returned instance are marked as sharing the facade, so
+     * whichever of them is modified first takes its own copy and the other is unaffected.
+     *
+     * @return a new message instance that copies the shared facade on first write.
+     *
+     * @throws JMSException if an error occurs while creating the new instance.
+     */
+    public JmsMessage copyOnWrite() throws JMSException {
+        JmsMessage other = new JmsMessage(facade);
+        other.copy(this);
+        other.facadeShared = true;
+        facadeShared = true;
+        return other;
+    }
+
     protected void copy(JmsMessage other) {
         this.readOnlyBody = other.readOnlyBody;
         this.readOnlyProperties = other.readOnlyBody;
@@ -101,6 +123,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void clearBody() throws JMSException {
+        unshareFacade();
         readOnlyBody = false;
         facade.clearBody();
     }
@@ -133,6 +156,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSMessageID(String value) throws JMSException {
+        unshareFacade();
         facade.setMessageId(value);
     }
 
@@ -143,6 +167,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSTimestamp(long timestamp) throws JMSException {
+        unshareFacade();
         facade.setTimestamp(timestamp);
     }
 
@@ -153,6 +178,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSCorrelationID(String correlationId) throws JMSException {
+        unshareFacade();
         facade.setCorrelationId(correlationId);
     }
 
@@ -163,6 +189,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSCorrelationIDAsBytes(byte[] correlationId) throws JMSException {
+        unshareFacade();
         facade.setCorrelationIdBytes(correlationId);
     }
 
@@ -173,6 +200,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSReplyTo(Destination destination) throws JMSException {
+        unshareFacade();
         facade.setReplyTo(JmsMessageTransformation.transformDestination(connection, destination));
     }
 
@@ -183,6 +211,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSDestination(Destination destination) throws JMSException {
+        unshareFacade();
         facade.setDestination(JmsMessageTransformation.transformDestination(connection, destination));
     }
 
@@ -193,6 +222,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSDeliveryMode(int mode) throws JMSException {
+        unshareFacade();
         facade.setPersistent(mode == DeliveryMode.PERSISTENT);
     }
 
@@ -203,6 +233,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSRedelivered(boolean redelivered) throws JMSException {
+        unshareFacade();
         facade.setRedelivered(redelivered);
     }
 
@@ -213,6 +244,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSType(String type) throws JMSException {
+        unshareFacade();
         facade.setType(type);
     }
 
@@ -223,6 +255,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSExpiration(long expiration) throws JMSException {
+        unshareFacade();
         facade.setExpiration(expiration);
     }
 
@@ -233,11 +266,13 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSPriority(int priority) throws JMSException {
+        unshareFacade();
         facade.setPriority(priority);
     }
 
     @Override
     public void clearProperties() throws JMSException {
+        unshareFacade();
         JmsMessagePropertyIntercepter.clearProperties(facade, true);
     }
 
@@ -271,6 +306,7 @@ public class JmsMessage implements javax.jms.Message {
         checkReadOnlyProperties();
         checkPropertyNameIsValid(name);
         checkValidObject(value);
+        unshareFacade();
         JmsMessagePropertyIntercepter.setProperty(facade, name, value);
     }
 
@@ -464,11 +500,37 @@ public class JmsMessage implements javax.jms.Message {
      * @throws JMSException if an error occurs while preparing the message for send.
      */
     public void onSend(boolean disableMessageId, boolean disableTimestamp, long producerTtl) throws JMSException {
+        unshareFacade();
         setReadOnlyBody(true);
         setReadOnlyProperties(true);
         facade.onSend(disableMessageId, disableTimestamp, producerTtl);
     }
 
+    /**
+     * Encodes this message as it would be sent without first taking a copy of it.  The
+     * facade is prepared for send in place, which only touches state the application can
+     * not observe, and the encoded form then serves as the snapshot of the message that is
+     * sent so the application remains free to modify this message afterwards.
+     *
+     * Only valid when the message ID and timestamp are being sent, as otherwise preparing
+     * the facade would clear them from this message.
+     *
+     * @param producerTtl
+     *        the time to live value that the producer was configured with at send time.
+     *
+     * @return the encoded message, or null if this message needs to be copied for send.
+     *
+     * @throws JMSException if an error occurs while encoding the message.
+     */
+    public Object encodeForSend(long producerTtl) throws JMSException {
+        if (facadeShared) {
+            return null;
+        }
+
+        facade.onSend(false, false, producerTtl);
+        return facade.encodeMessage();
+    }
+
     /**
      * Used to trigger processing required before dispatch of a message to its intended
      * consumer.  This method should perform any needed unmarshal or message property
@@ -477,11 +539,23 @@ public class JmsMessage implements javax.jms.Message {
      * @throws JMSException if an error occurs while preparing the message for dispatch.
      */
     public void onDispatch() throws JMSException {
+        unshareFacade();
         setReadOnlyBody(true);
         setReadOnlyProperties(true);
         facade.onDispatch();
     }
 
+    /**
+     * Increments the redelivery count of a message that is about to be redelivered, any
+     * views of it already handed out keep the values they were delivered with.
+     *
+     * @throws JMSException if an error occurs while updating the message.
+     */
+    public void incrementRedeliveryCount() throws JMSException {
+        unshareFacade();
+        facade.setRedeliveryCount(facade.getRedeliveryCount() + 1);
+    }
+
     public JmsConnection getConnection() {
         return connection;
     }
@@ -499,6 +573,30 @@ public class JmsMessage implements javax.jms.Message {
         return "JmsMessage { " + facade + " }";
     }
 
+    /**
+     * Called before any operation that modifies the facade, if the facade is currently
+     * shared with another message instance it is first replaced with a private copy.
+     *
+     * @throws JMSException if an error occurs while copying the facade.
+     */
+    protected void unshareFacade() throws JMSException {
+        if (facadeShared) {
+            facadeShared = false;
+            setFacade(facade.copy());
+        }
+    }
+
+    /**
+     * Replaces the facade used by this message, subclasses that hold a typed reference to
+     * the facade must override this to update it as well.
+     *
+     * @param facade
+     *        the new facade for this message.
+     */
+    protected void setFacade(JmsMessageFacade facade) {
+        this.facade = facade;
+    }
+
     protected void checkReadOnlyProperties() throws MessageNotWriteableException {
         if (readOnlyProperties) {
             throw new MessageNotWriteableException("Message properties are read-only");
@@ -22,11 +22,12 @@ import javax.jms.JMSException;
 import javax.jms.MessageFormatException;
 import javax.jms.ObjectMessage;
 
+import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.message.facade.JmsObjectMessageFacade;
 
 public class JmsObjectMessage extends JmsMessage implements ObjectMessage {
 
-    private final JmsObjectMessageFacade facade;
+    private JmsObjectMessageFacade facade;
 
     public JmsObjectMessage(JmsObjectMessageFacade facade) {
         super(facade);
@@ -40,9 +41,25 @@ public class JmsObjectMessage extends JmsMessage implements ObjectMessage {
         return other;
     }
 
+    @Override
+    public JmsObjectMessage copyOnWrite() throws JMSException {
+        JmsObjectMessage other = new JmsObjectMessage(facade);
+        other.copy(this);
+        other.facadeShared = true;
+        facadeShared = true;
+        return other;
+    }
+
+    @Override
+    protected void setFacade(JmsMessageFacade facade) {
+        super.setFacade(facade);
+        this.facade = (JmsObjectMessageFacade) facade;
+    }
+
     @Override
     public void setObject(Serializable newObject) throws JMSException {
         checkReadOnlyBody();
+        unshareFacade();
         try {
             this.facade.setObject(newObject);
         } catch (Exception e) {
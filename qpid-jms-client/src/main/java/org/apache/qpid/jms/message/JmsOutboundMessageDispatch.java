@@ -29,6 +29,7 @@ public class JmsOutboundMessageDispatch {
     private JmsDestination destination;
     private boolean sendAsync;
     private String dispatchId;
+    private Object payload;
 
     public JmsDestination getDestination() {
         return destination;
@@ -70,6 +71,18 @@ public class JmsOutboundMessageDispatch {
         this.dispatchId = dispatchId;
     }
 
+    /**
+     * @return the message already encoded on the sending thread, or null if the Provider
+     *         must encode the message itself.
+     */
+    public Object getPayload() {
+        return payload;
+    }
+
+    public void setPayload(Object payload) {
+        this.payload = payload;
+    }
+
     @Override
     public String toString() {
         String result = "JmsOutboundMessageDispatch {dispatchId = ";
@@ -20,6 +20,7 @@ import javax.jms.JMSException;
 import javax.jms.MessageFormatException;
 import javax.jms.StreamMessage;
 
+import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.message.facade.JmsStreamMessageFacade;
 
 /**
@@ -29,7 +30,7 @@ public class JmsStreamMessage extends JmsMessage implements StreamMessage {
 
     private static final int NO_BYTES_IN_FLIGHT = -1;
 
-    private final JmsStreamMessageFacade facade;
+    private JmsStreamMessageFacade facade;
 
     private byte[] bytes;
     private int remainingBytes = NO_BYTES_IN_FLIGHT;
@@ -46,6 +47,25 @@ public class JmsStreamMessage extends JmsMessage implements StreamMessage {
         return other;
     }
 
+    @Override
+    public JmsStreamMessage copyOnWrite() throws JMSException {
+        // The stream read position is held in the facade so it cannot be shared.
+        return copy();
+    }
+
+    @Override
+    protected void setFacade(JmsMessageFacade facade) {
+        super.setFacade(facade);
+        this.facade = (JmsStreamMessageFacade) facade;
+    }
+
+    @Override
+    public Object encodeForSend(long producerTtl) throws JMSException {
+        // Send resets the body for reading, which must not happen to the application's
+        // own instance, so this type is always copied for send.
+        return null;
+    }
+
     @Override
     public void onSend(boolean disableMessageId, boolean disableTimestamp, long producerTtl) throws JMSException {
         super.onSend(disableMessageId, disableTimestamp, producerTtl);
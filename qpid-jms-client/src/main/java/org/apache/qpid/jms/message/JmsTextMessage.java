@@ -20,11 +20,12 @@ import javax.jms.JMSException;
 import javax.jms.MessageNotWriteableException;
 import javax.jms.TextMessage;
 
+import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.message.facade.JmsTextMessageFacade;
 
 public class JmsTextMessage extends JmsMessage implements TextMessage {
 
-    private final JmsTextMessageFacade facade;
+    private JmsTextMessageFacade facade;
 
     public JmsTextMessage(JmsTextMessageFacade facade) {
         super(facade);
@@ -38,6 +39,21 @@ public class JmsTextMessage extends JmsMessage implements TextMessage {
         return other;
     }
 
+    @Override
+    public JmsTextMessage copyOnWrite() throws JMSException {
+        JmsTextMessage other = new JmsTextMessage(facade);
+        other.copy(this);
+        other.facadeShared = true;
+        facadeShared = true;
+        return other;
+    }
+
+    @Override
+    protected void setFacade(JmsMessageFacade facade) {
+        super.setFacade(facade);
+        this.facade = (JmsTextMessageFacade) facade;
+    }
+
     private void copy(JmsTextMessage other) throws JMSException {
         super.copy(other);
     }
@@ -45,6 +61,7 @@ public class JmsTextMessage extends JmsMessage implements TextMessage {
     @Override
     public void setText(String text) throws JMSException, MessageNotWriteableException {
         checkReadOnlyBody();
+        unshareFacade();
         this.facade.setText(text);
     }
 
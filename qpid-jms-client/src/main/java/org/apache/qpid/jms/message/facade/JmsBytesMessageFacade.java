@@ -60,6 +60,18 @@ public interface JmsBytesMessageFacade extends JmsMessageFacade {
      */
     InputStream getInputStream() throws JMSException;
 
+    /**
+     * Create and return a new InputStream over the current body of the message that this
+     * facade does not keep track of.  Reading from it leaves the state of the facade as it
+     * was, so it can be used by one of several messages that share this facade.
+     *
+     * @return a new InputStream instance to read the message body.
+     *
+     * @throws JMSException if an error occurs creating the stream.
+     * @throws IllegalStateException if there is a current OutputStream in use.
+     */
+    InputStream createDetachedInputStream() throws JMSException;
+
     /**
      * Create and return a new OuputStream used to populate the body of the message. If an
      * InputStream was previously requested this method will fail until such time as a call
@@ -97,6 +97,17 @@ public interface JmsMessageFacade {
      */
     void onSend(boolean disableMessageId, boolean disableTimestamp, long producerTtl) throws JMSException;
 
+    /**
+     * Encodes the message into the form the Provider writes to the wire so that this work
+     * can be done on the sending thread.  The result is carried to the Provider in the
+     * outbound dispatch, the message must not be modified once it has been encoded.
+     *
+     * @return the encoded message, or null if the Provider only encodes messages itself.
+     *
+     * @throws JMSException if an error occurs while encoding the message.
+     */
+    Object encodeMessage() throws JMSException;
+
     /**
      * Called before a message is dispatched to its intended consumer to allow for
      * any necessary processing of message data such as setting read-only state etc.
@@ -29,6 +29,8 @@ public final class JmsConnectionInfo implements JmsResource, Comparable<JmsConne
     public static final long DEFAULT_CLOSE_TIMEOUT = 15000;
     public static final long DEFAULT_SEND_TIMEOUT = INFINITE;
     public static final long DEFAULT_REQUEST_TIMEOUT = INFINITE;
+    public static final int DEFAULT_MAX_IN_FLIGHT_ASYNC_SENDS = 1024;
+    public static final long DEFAULT_ACK_BATCH_TIMEOUT = 100;
 
     private final JmsConnectionId connectionId;
     private String clientId;
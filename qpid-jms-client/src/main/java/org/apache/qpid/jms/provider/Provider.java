@@ -18,6 +18,7 @@ package org.apache.qpid.jms.provider;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
 import javax.jms.JMSException;
 
@@ -183,6 +184,24 @@ public interface Provider {
      */
     void send(JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException;
 
+    /**
+     * Sends a batch of JmsMessages contained in the given outbound dispatch envelopes.
+     *
+     * The provider should start the send of each message in the order given and should
+     * write the result to the remote peer as a single unit of work where the protocol
+     * allows.  Each message has its own request which is signaled with the outcome of that
+     * message's send alone, a failure to send one message does not fail the others.
+     *
+     * @param envelopes
+     *        the message envelopes containing the JmsMessages to send.
+     * @param requests
+     *        the request objects signaled as each send completes, one for each envelope.
+     *
+     * @throws IOException if an error occurs or the Provider is already closed.
+     * @throws JMSException if an error that maps to JMS occurs such as not authorized.
+     */
+    void send(List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> requests) throws IOException, JMSException;
+
     /**
      * Called to acknowledge all messages that have been delivered in a given session.
      *
@@ -219,6 +238,26 @@ public interface Provider {
     void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType, AsyncResult request)
         throws IOException, JMSException;
 
+    /**
+     * Called to acknowledge a batch of JmsMessages with the same acknowledgment type.
+     *
+     * The provider should apply the acknowledgment to each message in the order given and
+     * should write the result to the remote peer as a single unit of work where the protocol
+     * allows, the request is only signaled once all the messages have been acknowledged.
+     *
+     * @param envelopes
+     *        The message dispatch envelopes of the Messages being acknowledged.
+     * @param ackType
+     *        The type of acknowledgment being done.
+     * @param request
+     *        The request object that should be signaled when this operation completes.
+     *
+     * @throws IOException if an error occurs or the Provider is already closed.
+     * @throws JMSException if an error occurs due to JMS violation such as unmatched ack.
+     */
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request)
+        throws IOException, JMSException;
+
     /**
      * Called to commit an open transaction.
      *
@@ -18,6 +18,7 @@ package org.apache.qpid.jms.provider;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
 import javax.jms.JMSException;
 
@@ -95,6 +96,11 @@ public class ProviderWrapper<E extends Provider> implements Provider, ProviderLi
         next.send(envelope, request);
     }
 
+    @Override
+    public void send(List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> requests) throws IOException, JMSException {
+        next.send(envelopes, requests);
+    }
+
     @Override
     public void acknowledge(JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException {
         next.acknowledge(sessionId, request);
@@ -105,6 +111,11 @@ public class ProviderWrapper<E extends Provider> implements Provider, ProviderLi
         next.acknowledge(envelope, ackType, request);
     }
 
+    @Override
+    public void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+        next.acknowledge(envelopes, ackType, request);
+    }
+
     @Override
     public void commit(JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         next.commit(sessionId, request);
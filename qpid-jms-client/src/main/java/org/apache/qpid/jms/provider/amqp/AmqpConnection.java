@@ -245,6 +245,44 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         return provider.isPresettleProducers();
     }
 
+    /**
+     * @return true if incoming messages should decode their sections on demand.
+     */
+    public boolean isLazyDecoding() {
+        return provider.isLazyDecoding();
+    }
+
+    /**
+     * @return true if incoming messages are decoded when consumed rather than on arrival.
+     */
+    public boolean isDeferredDecoding() {
+        return provider.isDeferredDecoding();
+    }
+
+    /**
+     * @return true if consumers evaluate their selector against incoming messages.
+     */
+    public boolean isClientSideSelectors() {
+        return provider.isClientSideSelectors();
+    }
+
+    /**
+     * Creates the controller used to size the link credit of a new consumer.
+     *
+     * @param prefetchSize
+     *        the prefetch configured for the consumer, used as the starting window.
+     *
+     * @return a new AmqpCreditWindow or null if consumers use a fixed prefetch.
+     */
+    public AmqpCreditWindow createCreditWindow(int prefetchSize) {
+        if (!provider.isAdaptiveCredit() || prefetchSize == 0) {
+            return null;
+        }
+
+        return new AmqpCreditWindow(prefetchSize, provider.getAdaptiveCreditMin(),
+                                    provider.getAdaptiveCreditMax(), provider.getAdaptiveCreditMemoryBudget());
+    }
+
     /**
      * @return true if anonymous producers should be cached or closed on send complete.
      */
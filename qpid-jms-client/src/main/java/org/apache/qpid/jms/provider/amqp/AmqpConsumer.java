@@ -21,6 +21,7 @@ import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -41,6 +42,11 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageBuilder;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFacade;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFilterable;
+import org.apache.qpid.jms.provider.amqp.message.AmqpLazyMessage;
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.DescribedType;
@@ -82,8 +88,11 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
     protected final AmqpSession session;
     protected final Map<JmsInboundMessageDispatch, Delivery> delivered = new LinkedHashMap<JmsInboundMessageDispatch, Delivery>();
     protected boolean presettle;
+    protected AmqpCreditWindow creditWindow;
+    protected BooleanExpression selectorFilter;
 
     private final ByteBuf incomingBuffer = Unpooled.buffer(INITIAL_BUFFER_CAPACITY);
+    private ByteBuf partialDelivery;
 
     private final AtomicLong _incomingSequence = new AtomicLong(0);
 
@@ -101,7 +110,11 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
      * Starts the consumer by setting the link credit to the given prefetch value.
      */
     public void start(AsyncResult request) {
-        getEndpoint().flow(resource.getPrefetchSize());
+        int credit = getCreditWindow();
+        getEndpoint().flow(credit);
+        if (creditWindow != null) {
+            creditWindow.onCreditIssued(0, System.nanoTime());
+        }
         request.onSuccess();
     }
 
@@ -338,13 +351,29 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
 
     /**
      * We only send more credits as the credit window dwindles to a certain point and
-     * then we open the window back up to full prefetch size.
+     * then we open the window back up to full prefetch size, or to the size chosen by
+     * the adaptive credit window when one is in use.
      */
     private void sendFlowIfNeeded() {
         if (resource.getPrefetchSize() == 0) {
             return;
         }
 
+        if (creditWindow != null) {
+            long now = System.nanoTime();
+            if (creditWindow.onMessageConsumed(now)) {
+                LOG.debug("{} credit window resized to {}", this, creditWindow.getWindow());
+            }
+
+            int window = creditWindow.getWindow();
+            int currentCredit = getEndpoint().getCredit();
+            if (currentCredit <= window * 0.2 && window > currentCredit) {
+                getEndpoint().flow(window - currentCredit);
+                creditWindow.onCreditIssued(currentCredit, now);
+            }
+            return;
+        }
+
         int currentCredit = getEndpoint().getCredit();
         if (currentCredit <= resource.getPrefetchSize() * 0.2) {
             getEndpoint().flow(resource.getPrefetchSize() - currentCredit);
@@ -365,8 +394,7 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         while (reverseIterator.hasPrevious()) {
             JmsInboundMessageDispatch envelope = reverseIterator.previous();
             // TODO: apply connection redelivery policy to those messages that are past max redelivery.
-            envelope.getMessage().getFacade().setRedeliveryCount(
-                envelope.getMessage().getFacade().getRedeliveryCount() + 1);
+            envelope.getMessage().incrementRedeliveryCount();
             envelope.setEnqueueFirst(true);
             deliver(envelope);
         }
@@ -403,6 +431,9 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
                     getEndpoint().advance();
                 } else {
                     LOG.trace("{} has a partial incoming Message(s), deferring.", this);
+                    if (incoming.isReadable()) {
+                        drainPartialDelivery(incoming);
+                    }
                     incoming = null;
                 }
             } else {
@@ -422,6 +453,23 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
     }
 
     private void processDelivery(Delivery incoming) throws Exception {
+        if (creditWindow != null) {
+            int size = incoming.pending() + (partialDelivery != null ? partialDelivery.readableBytes() : 0);
+            creditWindow.onMessageArrived(size, System.nanoTime());
+        }
+
+        // A client side selector needs the decoded message here to decide on delivery.
+        if (getConnection().isDeferredDecoding() && selectorFilter == null) {
+            JmsInboundMessageDispatch envelope = new AmqpDeferredMessageDispatch(
+                getNextIncomingSequenceNumber(), this, readIncomingMessage(incoming));
+            envelope.setConsumerId(resource.getConsumerId());
+            envelope.setProviderHint(incoming);
+            incoming.setContext(envelope);
+
+            deliver(envelope);
+            return;
+        }
+
         JmsMessage message = null;
         try {
             message = AmqpJmsMessageBuilder.createJmsMessage(this, decodeIncomingMessage(incoming));
@@ -441,6 +489,12 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         // the JmsMessageConsumer dispatch method if we needed to.
         message.onDispatch();
 
+        if (selectorFilter != null && !matchesSelector(message)) {
+            LOG.trace("{} filtered out message not matching its selector", this);
+            deliveryFiltered(incoming);
+            return;
+        }
+
         JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(getNextIncomingSequenceNumber());
         envelope.setMessage(message);
         envelope.setConsumerId(resource.getConsumerId());
@@ -499,6 +553,46 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         this.presettle = presettle;
     }
 
+    /**
+     * @return the number of messages the link credit is currently topped up to.
+     */
+    public int getCreditWindow() {
+        if (creditWindow != null) {
+            return creditWindow.getWindow();
+        }
+        return resource.getPrefetchSize();
+    }
+
+    /**
+     * Sets the controller used to size the link credit of this consumer, when not set the
+     * credit is always topped back up to the prefetch size.
+     *
+     * @param creditWindow
+     *        the credit window controller to use, or null to use the fixed prefetch.
+     */
+    public void setCreditWindow(AmqpCreditWindow creditWindow) {
+        this.creditWindow = creditWindow;
+    }
+
+    /**
+     * @return the selector evaluated against incoming messages, or null if none is applied.
+     */
+    public BooleanExpression getSelectorFilter() {
+        return selectorFilter;
+    }
+
+    /**
+     * Sets a selector that incoming messages are evaluated against before being dispatched,
+     * for use with remote peers that do not apply the selector sent on the link.  Messages
+     * that do not match are handed back to the remote without reaching the consumer.
+     *
+     * @param selectorFilter
+     *        the compiled selector to apply, or null to dispatch every message.
+     */
+    public void setSelectorFilter(BooleanExpression selectorFilter) {
+        this.selectorFilter = selectorFilter;
+    }
+
     @Override
     public String toString() {
         return "AmqpConsumer { " + this.resource.getConsumerId() + " }";
@@ -515,10 +609,34 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         }
     }
 
+    /*
+     * Hands a message that did not match the selector back to the remote, marking it as
+     * not to be sent to this link again without counting it as a failed delivery, and
+     * replaces the credit it used.
+     */
+    protected void deliveryFiltered(Delivery incoming) {
+        if (!incoming.remotelySettled()) {
+            Modified disposition = new Modified();
+            disposition.setUndeliverableHere(true);
+            incoming.disposition(disposition);
+        }
+        incoming.settle();
+        getEndpoint().flow(1);
+    }
+
+    private boolean matchesSelector(JmsMessage message) {
+        try {
+            return selectorFilter.matches(new AmqpJmsMessageFilterable((AmqpJmsMessageFacade) message.getFacade()));
+        } catch (FilterException e) {
+            LOG.debug("{} could not evaluate selector, message will be filtered: {}", this, e.getMessage());
+            return false;
+        }
+    }
+
     protected void deliver(JmsInboundMessageDispatch envelope) throws Exception {
         ProviderListener listener = session.getProvider().getProviderListener();
         if (listener != null) {
-            if (envelope.getMessage() != null) {
+            if (envelope.isMessageDeferred() || envelope.getMessage() != null) {
                 LOG.debug("Dispatching received message: {}", envelope);
             } else {
                 LOG.debug("Dispatching end of browse to: {}", envelope.getConsumerId());
@@ -529,23 +647,109 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         }
     }
 
+    /**
+     * @return a new Proton Message of the kind this consumer decodes incoming messages into.
+     */
+    protected Message createProtonMessage() {
+        if (getConnection().isLazyDecoding()) {
+            return new AmqpLazyMessage();
+        } else {
+            return Message.Factory.create();
+        }
+    }
+
+    /*
+     * Copies the bytes of a complete delivery out of Proton into an array of their exact
+     * size, which is all that a message whose decoding is deferred holds on to.
+     */
+    private byte[] readIncomingMessage(Delivery incoming) {
+        byte[] encoded = null;
+
+        if (partialDelivery != null) {
+            drainPartialDelivery(incoming);
+            try {
+                encoded = partialDelivery.array();
+                if (encoded.length != partialDelivery.readableBytes()) {
+                    encoded = Arrays.copyOf(encoded, partialDelivery.readableBytes());
+                }
+            } finally {
+                partialDelivery.release();
+                partialDelivery = null;
+            }
+        } else {
+            encoded = new byte[incoming.pending()];
+            int count = getEndpoint().recv(encoded, 0, encoded.length);
+            if (count < encoded.length) {
+                encoded = Arrays.copyOf(encoded, Math.max(count, 0));
+            }
+        }
+
+        return encoded;
+    }
+
     // TODO - Find more efficient ways to produce the Message instance.
     protected Message decodeIncomingMessage(Delivery incoming) {
-        int count;
+        Message protonMessage = createProtonMessage();
+
+        if (partialDelivery != null) {
+            drainPartialDelivery(incoming);
+            try {
+                protonMessage.decode(partialDelivery.array(), 0, partialDelivery.readableBytes());
+            } finally {
+                partialDelivery.release();
+                partialDelivery = null;
+            }
+        } else if (incoming.pending() > incomingBuffer.capacity()) {
+            // Oversized messages get a buffer of their own that can be collected once
+            // decoded instead of growing the one this consumer holds onto.
+            byte[] encoded = new byte[incoming.pending()];
+            int count = getEndpoint().recv(encoded, 0, encoded.length);
+            protonMessage.decode(encoded, 0, count);
+        } else {
+            int count;
+            while ((count = getEndpoint().recv(incomingBuffer.array(), incomingBuffer.writerIndex(), incomingBuffer.writableBytes())) > 0) {
+                incomingBuffer.writerIndex(incomingBuffer.writerIndex() + count);
+            }
 
-        while ((count = getEndpoint().recv(incomingBuffer.array(), incomingBuffer.writerIndex(), incomingBuffer.writableBytes())) > 0) {
-            incomingBuffer.writerIndex(incomingBuffer.writerIndex() + count);
-            if (!incomingBuffer.isWritable()) {
-                incomingBuffer.capacity((int) (incomingBuffer.capacity() * 1.5));
+            try {
+                protonMessage.decode(incomingBuffer.array(), 0, incomingBuffer.readableBytes());
+            } finally {
+                incomingBuffer.clear();
             }
         }
 
-        try {
-            Message protonMessage = Message.Factory.create();
-            protonMessage.decode(incomingBuffer.array(), 0, incomingBuffer.readableBytes());
-            return protonMessage;
-        } finally {
-            incomingBuffer.clear();
+        return protonMessage;
+    }
+
+    /**
+     * Pulls the bytes that have arrived so far for a delivery that spans multiple transfer
+     * frames out of Proton.  Proton appends each new frame to a copy of any bytes that have
+     * not yet been read, so leaving a large message in the delivery until the final frame
+     * arrives results in the payload being copied over and over.
+     *
+     * The bytes are gathered into a single array that doubles in size as needed, so that
+     * the complete message can be decoded from it without first being copied again.
+     *
+     * @param incoming
+     *        the Delivery whose currently available bytes should be read.
+     */
+    private void drainPartialDelivery(Delivery incoming) {
+        int pending = incoming.pending();
+        if (partialDelivery == null) {
+            partialDelivery = Unpooled.buffer(Math.max(pending, INITIAL_BUFFER_CAPACITY));
+        }
+
+        if (pending > 0) {
+            if (partialDelivery.writableBytes() < pending) {
+                long doubled = (long) partialDelivery.capacity() * 2;
+                int required = partialDelivery.writerIndex() + pending;
+                partialDelivery.capacity((int) Math.min(Integer.MAX_VALUE, Math.max(doubled, required)));
+            }
+
+            int count = getEndpoint().recv(partialDelivery.array(), partialDelivery.writerIndex(), pending);
+            if (count > 0) {
+                partialDelivery.writerIndex(partialDelivery.writerIndex() + count);
+            }
         }
     }
 
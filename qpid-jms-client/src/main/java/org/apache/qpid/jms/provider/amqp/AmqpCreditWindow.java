@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the link credit window of a consumer from its observed behavior.
+ *
+ * The window is the number of messages the consumer should have outstanding, either as
+ * link credit or buffered locally.  It aims to cover the time it takes for new credit to
+ * result in a message arriving at the rate the application is consuming messages, with
+ * some headroom so that a consumer that is being starved of messages grows its window.
+ * A slow consumer ends up with a small window so it does not hold messages that other
+ * consumers of the same queue could be processing.
+ *
+ * The window is kept within the configured minimum and maximum and, when a memory budget
+ * is set, is limited to the number of messages of the average observed size that fit in
+ * that budget.
+ *
+ * All methods are expected to be called from the provider thread.
+ */
+public class AmqpCreditWindow {
+
+    public static final int DEFAULT_MIN_WINDOW = 1;
+    public static final int DEFAULT_MAX_WINDOW = 5000;
+
+    private static final double SMOOTHING = 0.25;
+    private static final double HEADROOM = 2.0;
+    private static final long RATE_SAMPLE_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_LATENCY_SAMPLE = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minWindow;
+    private final int maxWindow;
+    private final long memoryBudget;
+
+    private int window;
+
+    private double consumeRate;
+    private double replenishLatency;
+    private double averageSize;
+
+    private long rateSampleStart = -1;
+    private int rateSampleCount;
+
+    private long flowIssuedAt = -1;
+    private int deliveriesBeforeNewCredit;
+
+    /**
+     * Creates a new credit window.
+     *
+     * @param initialWindow
+     *        the window to use until enough has been observed to size it, usually the prefetch.
+     * @param minWindow
+     *        the smallest window that will be used.
+     * @param maxWindow
+     *        the largest window that will be used.
+     * @param memoryBudget
+     *        the number of bytes the window may cover, or zero for no limit.
+     */
+    public AmqpCreditWindow(int initialWindow, int minWindow, int maxWindow, long memoryBudget) {
+        this.minWindow = Math.max(1, minWindow);
+        this.maxWindow = Math.max(this.minWindow, maxWindow);
+        this.memoryBudget = memoryBudget;
+        this.window = clamp(initialWindow);
+    }
+
+    /**
+     * @return the current size of the credit window.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @return the smoothed rate at which messages are consumed in messages per second.
+     */
+    public double getConsumeRate() {
+        return consumeRate * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the smoothed time in milliseconds between issuing credit and a message arriving on it.
+     */
+    public double getReplenishLatency() {
+        return replenishLatency / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Called when new credit is issued on the link.
+     *
+     * @param outstandingCredit
+     *        the credit the remote still held before the new credit was added.
+     * @param now
+     *        the current time from {@link System#nanoTime()}.
+     */
+    public void onCreditIssued(int outstandingCredit, long now) {
+        if (flowIssuedAt < 0) {
+            flowIssuedAt = now;
+            deliveriesBeforeNewCredit = outstandingCredit;
+        }
+    }
+
+    /**
+     * Called when a message arrives on the link.
+     *
+     * @param size
+     *        the encoded size of the message.
+     * @param now
+     *        the current time from {@link System#nanoTime()}.
+     */
+    public void onMessageArrived(int size, long now) {
+        averageSize = averageSize == 0 ? size : smooth(averageSize, size);
+        if (memoryBudget > 0) {
+            window = clamp(window);
+        }
+
+        // Messages sent on credit issued earlier don't tell us anything about how long
+        // the new credit took to be used, only the first delivery beyond them does.
+        if (flowIssuedAt >= 0 && deliveriesBeforeNewCredit-- <= 0) {
+            long latency = Math.min(now - flowIssuedAt, MAX_LATENCY_SAMPLE);
+            replenishLatency = replenishLatency == 0 ? latency : smooth(replenishLatency, latency);
+            flowIssuedAt = -1;
+        }
+    }
+
+    /**
+     * Called when the application has consumed a message.
+     *
+     * @param now
+     *        the current time from {@link System#nanoTime()}.
+     *
+     * @return true if the window changed size as a result.
+     */
+    public boolean onMessageConsumed(long now) {
+        if (rateSampleStart < 0) {
+            rateSampleStart = now;
+        }
+
+        rateSampleCount++;
+
+        long elapsed = now - rateSampleStart;
+        if (elapsed < RATE_SAMPLE_PERIOD) {
+            return false;
+        }
+
+        double rate = (double) rateSampleCount / elapsed;
+        consumeRate = consumeRate == 0 ? rate : smooth(consumeRate, rate);
+        rateSampleStart = now;
+        rateSampleCount = 0;
+
+        if (replenishLatency == 0) {
+            return false;
+        }
+
+        int previous = window;
+        window = clamp((int) Math.ceil(consumeRate * replenishLatency * HEADROOM));
+        return window != previous;
+    }
+
+    @Override
+    public String toString() {
+        return "AmqpCreditWindow { window = " + window + " }";
+    }
+
+    private int clamp(int value) {
+        int limit = maxWindow;
+        if (memoryBudget > 0 && averageSize > 0) {
+            limit = (int) Math.min(limit, Math.max(minWindow, memoryBudget / averageSize));
+        }
+
+        return Math.max(minWindow, Math.min(limit, value));
+    }
+
+    private static double smooth(double current, double sample) {
+        return current + SMOOTHING * (sample - current);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import org.apache.qpid.jms.message.JmsBytesMessage;
+import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+import org.apache.qpid.jms.message.JmsMessage;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsBytesMessageFacade;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageBuilder;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inbound dispatch that carries the encoded bytes of a delivery instead of a decoded
+ * message.  The message is decoded by whichever thread first asks for it, normally the
+ * one receiving or dispatching it, so the Provider thread only copies bytes out of Proton
+ * and a prefetched message holds no more than its encoded form.
+ */
+public class AmqpDeferredMessageDispatch extends JmsInboundMessageDispatch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpDeferredMessageDispatch.class);
+
+    private final AmqpConsumer consumer;
+    private byte[] encoded;
+
+    public AmqpDeferredMessageDispatch(long sequence, AmqpConsumer consumer, byte[] encoded) {
+        super(sequence);
+        this.consumer = consumer;
+        this.encoded = encoded;
+    }
+
+    @Override
+    public synchronized JmsMessage getMessage() {
+        if (encoded != null) {
+            setMessage(decode());
+        }
+
+        return super.getMessage();
+    }
+
+    @Override
+    public synchronized void setMessage(JmsMessage message) {
+        encoded = null;
+        super.setMessage(message);
+    }
+
+    @Override
+    public synchronized boolean isMessageDeferred() {
+        return encoded != null;
+    }
+
+    /*
+     * The delivery was accepted from the remote before it was decoded so it can no longer
+     * be handed back as failed, a message that cannot be decoded is instead given to the
+     * application as a BytesMessage holding the raw delivery.
+     */
+    private JmsMessage decode() {
+        JmsMessage message = null;
+        try {
+            Message protonMessage = consumer.createProtonMessage();
+            protonMessage.decode(encoded, 0, encoded.length);
+            message = AmqpJmsMessageBuilder.createJmsMessage(consumer, protonMessage);
+        } catch (Exception e) {
+            LOG.warn("Error on transform, delivering raw message bytes: {}", e.getMessage());
+            Message raw = Message.Factory.create();
+            raw.setBody(new Data(new Binary(encoded)));
+            message = new JmsBytesMessage(new AmqpJmsBytesMessageFacade(consumer, raw));
+        }
+
+        try {
+            message.onDispatch();
+        } catch (Exception e) {
+            LOG.debug("Error preparing decoded message for dispatch: {}", e.getMessage());
+        }
+
+        message.setReadOnlyBody(true);
+        message.setReadOnlyProperties(true);
+        return message;
+    }
+}
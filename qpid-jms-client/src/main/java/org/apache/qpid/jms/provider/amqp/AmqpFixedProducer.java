@@ -16,8 +16,12 @@
  */
 package org.apache.qpid.jms.provider.amqp;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,11 +47,13 @@ import org.apache.qpid.proton.amqp.messaging.Source;
 import org.apache.qpid.proton.amqp.messaging.Target;
 import org.apache.qpid.proton.amqp.transaction.TransactionalState;
 import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.amqp.transport.ReceiverSettleMode;
 import org.apache.qpid.proton.amqp.transport.SenderSettleMode;
 import org.apache.qpid.proton.engine.Delivery;
 import org.apache.qpid.proton.engine.Sender;
 import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.message.impl.MessageImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +66,7 @@ public class AmqpFixedProducer extends AmqpProducer {
 
     private static final Logger LOG = LoggerFactory.getLogger(AmqpFixedProducer.class);
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[] {};
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024 * 8;
     //TODO: Use constants available from Proton 0.9
     private static final Symbol ACCEPTED_DESCRIPTOR_SYMBOL = Symbol.valueOf("amqp:accepted:list");
     private static final Symbol REJECTED_DESCRIPTOR_SYMBOL = Symbol.valueOf("amqp:rejected:list");
@@ -67,7 +74,6 @@ public class AmqpFixedProducer extends AmqpProducer {
     private final AmqpTransferTagGenerator tagGenerator = new AmqpTransferTagGenerator(true);
     private final Set<Delivery> pending = new LinkedHashSet<Delivery>();
     private final LinkedList<PendingSend> pendingSends = new LinkedList<PendingSend>();
-    private byte[] encodeBuffer = new byte[1024 * 8];
     private boolean presettle = false;
 
     public AmqpFixedProducer(AmqpSession session, JmsProducerInfo info) {
@@ -88,9 +94,7 @@ public class AmqpFixedProducer extends AmqpProducer {
     @Override
     public boolean send(JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException {
 
-        // TODO - Handle the case where remote has no credit which means we can't send to it.
-        //        We need to hold the send until remote credit becomes available but we should
-        //        also have a send timeout option and filter timed out sends.
+        // Sends held without credit are dropped by cancelSend if the send timeout expires.
         if (getEndpoint().getCredit() <= 0) {
             LOG.trace("Holding Message send until credit is available.");
             // Once a message goes into a held mode we no longer can send it async, so
@@ -127,8 +131,15 @@ public class AmqpFixedProducer extends AmqpProducer {
             delivery.disposition(state);
         }
 
-        AmqpJmsMessageFacade amqpMessageFacade = (AmqpJmsMessageFacade) facade;
-        encodeAndSend(amqpMessageFacade.getAmqpMessage(), delivery);
+        if (envelope.getPayload() instanceof ByteBuf) {
+            // Already encoded on the sending thread, the buffer is left as is in case
+            // failover needs to send it again.
+            ByteBuf encoded = (ByteBuf) envelope.getPayload();
+            transfer(encoded.array(), encoded.arrayOffset() + encoded.readerIndex(), encoded.readableBytes());
+        } else {
+            AmqpJmsMessageFacade amqpMessageFacade = (AmqpJmsMessageFacade) facade;
+            encodeAndSend(amqpMessageFacade.getAmqpMessage(), delivery);
+        }
 
         if (presettle) {
             delivery.settle();
@@ -143,21 +154,23 @@ public class AmqpFixedProducer extends AmqpProducer {
     }
 
     private void encodeAndSend(Message message, Delivery delivery) throws IOException {
-
-        int encodedSize;
-        while (true) {
-            try {
-                encodedSize = message.encode(encodeBuffer, 0, encodeBuffer.length);
-                break;
-            } catch (java.nio.BufferOverflowException e) {
-                encodeBuffer = new byte[encodeBuffer.length * 2];
-            }
+        // Encode into a pooled buffer that grows as needed, the buffer is returned to
+        // the pool once Proton has copied the bytes so no producer holds on to the
+        // memory used to encode a large message after the send completes.
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(INITIAL_ENCODE_BUFFER_SIZE);
+        try {
+            ((MessageImpl) message).encode(new AmqpWritableBuffer(buffer));
+            transfer(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), buffer.readableBytes());
+        } finally {
+            buffer.release();
         }
+    }
 
+    private void transfer(byte[] encoded, int offset, int encodedSize) {
         int sentSoFar = 0;
 
         while (true) {
-            int sent = getEndpoint().send(encodeBuffer, sentSoFar, encodedSize - sentSoFar);
+            int sent = getEndpoint().send(encoded, offset + sentSoFar, encodedSize - sentSoFar);
             if (sent > 0) {
                 sentSoFar += sent;
                 if ((encodedSize - sentSoFar) == 0) {
@@ -191,6 +204,31 @@ public class AmqpFixedProducer extends AmqpProducer {
         super.processFlowUpdates(provider);
     }
 
+    @Override
+    public void cancelSend(AsyncResult request) {
+        Iterator<PendingSend> held = pendingSends.iterator();
+        while (held.hasNext()) {
+            if (held.next().request == request) {
+                held.remove();
+                if (pendingSends.isEmpty() && isAwaitingClose()) {
+                    super.close(closeRequest);
+                }
+                return;
+            }
+        }
+
+        Iterator<Delivery> inFlight = pending.iterator();
+        while (inFlight.hasNext()) {
+            Delivery delivery = inFlight.next();
+            if (delivery.getContext() == request) {
+                inFlight.remove();
+                delivery.setContext(null);
+                delivery.settle();
+                return;
+            }
+        }
+    }
+
     @Override
     public void processDeliveryUpdates(AmqpProvider provider) throws IOException {
         List<Delivery> toRemove = new ArrayList<Delivery>();
@@ -222,6 +260,9 @@ public class AmqpFixedProducer extends AmqpProducer {
                 }
             } else if (outcome instanceof Rejected) {
                 Exception remoteError = getRemoteError();
+                if (remoteError == null) {
+                    remoteError = createRejectedException((Rejected) outcome);
+                }
                 LOG.trace("Outcome of delivery was rejected: {}", delivery);
                 tagGenerator.returnTag(delivery.getTag());
                 if (request != null && !request.isComplete()) {
@@ -243,6 +284,18 @@ public class AmqpFixedProducer extends AmqpProducer {
         super.processDeliveryUpdates(provider);
     }
 
+    private Exception createRejectedException(Rejected rejected) {
+        String message = "Message send was rejected by the remote peer";
+        ErrorCondition error = rejected.getError();
+        if (error != null && error.getDescription() != null) {
+            message += ": " + error.getDescription();
+        } else if (error != null && error.getCondition() != null) {
+            message += ": " + error.getCondition();
+        }
+
+        return new JMSException(message);
+    }
+
     @Override
     protected void doOpen() {
         JmsDestination destination = resource.getDestination();
@@ -60,6 +60,17 @@ public abstract class AmqpProducer extends AmqpAbstractResource<JmsProducerInfo,
      */
     public abstract boolean send(JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException;
 
+    /**
+     * Called when a send has not completed within the send timeout so that the producer
+     * can forget it, a send still waiting on credit is never sent and one awaiting its
+     * disposition is settled so that a late answer from the remote is ignored.
+     *
+     * @param request
+     *        The AsyncRequest that was given to the send which has timed out.
+     */
+    public void cancelSend(AsyncResult request) {
+    }
+
     /**
      * @return true if this is an anonymous producer or false if fixed to a given destination.
      */
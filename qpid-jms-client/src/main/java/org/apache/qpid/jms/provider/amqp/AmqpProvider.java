@@ -23,8 +23,14 @@ import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,6 +39,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.jms.JMSException;
 
 import org.apache.qpid.jms.JmsTemporaryDestination;
+import org.apache.qpid.jms.exceptions.JmsOperationTimedOutException;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsMessageFactory;
 import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
@@ -54,9 +61,13 @@ import org.apache.qpid.jms.provider.ProviderClosedException;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
+import org.apache.qpid.jms.provider.WrappedAsyncResult;
 import org.apache.qpid.jms.transports.TransportFactory;
 import org.apache.qpid.jms.transports.TransportListener;
 import org.apache.qpid.jms.util.IOExceptionSupport;
+import org.apache.qpid.jms.util.TimerWheel;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
+import org.apache.qpid.proton.amqp.transport.Open;
 import org.apache.qpid.proton.engine.Collector;
 import org.apache.qpid.proton.engine.Connection;
 import org.apache.qpid.proton.engine.Event;
@@ -81,6 +92,8 @@ import org.slf4j.LoggerFactory;
  *
  * All work within this Provider is serialized to a single Thread.  Any asynchronous exceptions
  * will be dispatched from that Thread and all in-bound requests are handled there as well.
+ * When the Transport is configured to use a shared event loop that Thread is the event loop
+ * the Transport was assigned to, otherwise the Provider creates a Thread of its own.
  */
 public class AmqpProvider implements Provider, TransportListener {
 
@@ -92,6 +105,13 @@ public class AmqpProvider implements Provider, TransportListener {
     // NOTE: Limit default channel max to signed short range to deal with
     //       brokers that don't currently handle the unsigned range well.
     private static final int DEFAULT_CHANNEL_MAX = 32767;
+    private static final int DEFAULT_COALESCE_WRITE_THRESHOLD = 64 * 1024;
+    // An AMQP frame with no body: size 8, data offset 2, type AMQP, channel 0.
+    private static final byte[] EMPTY_FRAME = new byte[] { 0, 0, 0, 8, 2, 0, 0, 0 };
+    // Send and request timeouts share one wheel, a 10ms tick with 512 buckets covers about
+    // five seconds per turn and longer timeouts simply go around more than once.
+    private static final long TIMEOUT_TICK = 10;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
     private static final AtomicInteger PROVIDER_SEQUENCE = new AtomicInteger();
     private static final NoOpAsyncResult NOOP_REQUEST = new NoOpAsyncResult();
 
@@ -108,12 +128,35 @@ public class AmqpProvider implements Provider, TransportListener {
     private long requestTimeout = JmsConnectionInfo.DEFAULT_REQUEST_TIMEOUT;
     private long sendTimeout = JmsConnectionInfo.DEFAULT_SEND_TIMEOUT;
     private int channelMax = DEFAULT_CHANNEL_MAX;
+    private boolean coalesceWrites;
+    private int coalesceWriteThreshold = DEFAULT_COALESCE_WRITE_THRESHOLD;
+    private boolean lazyDecoding;
+    private boolean deferredDecoding;
+    private boolean adaptiveCredit;
+    private int adaptiveCreditMin = AmqpCreditWindow.DEFAULT_MIN_WINDOW;
+    private int adaptiveCreditMax = AmqpCreditWindow.DEFAULT_MAX_WINDOW;
+    private long adaptiveCreditMemoryBudget;
+    private long idleTimeout;
+    private long remoteIdleTimeout;
+    private long lastInputTime;
+    private long lastOutputTime;
+    private ScheduledFuture<?> idleTimeoutTask;
+    private boolean clientSideSelectors;
+    private ScheduledFuture<?> timeoutTicker;
+    private int unflushedBytes;
+    private boolean flushScheduled;
 
     private final URI remoteURI;
     private final AtomicBoolean closed = new AtomicBoolean();
-    private final ScheduledExecutorService serializer;
+    private volatile ScheduledExecutorService serializer;
+    private boolean sharedSerializer;
     private final Transport protonTransport = Transport.Factory.create();
     private final Collector protonCollector = new CollectorImpl();
+    private final Queue<ByteBuf> pendingInput = new ConcurrentLinkedQueue<ByteBuf>();
+    private final AtomicBoolean inputScheduled = new AtomicBoolean();
+    private final Runnable inputProcessor = new InputProcessor();
+    private final Runnable flushTask = new FlushTask();
+    private final TimerWheel timeouts = new TimerWheel(TIMEOUT_TICK, TimeUnit.MILLISECONDS, TIMEOUT_WHEEL_SIZE);
 
     /**
      * Create a new instance of an AmqpProvider bonded to the given remote URI.
@@ -150,6 +193,16 @@ public class AmqpProvider implements Provider, TransportListener {
         }
         transport.setTransportListener(this);
         transport.connect();
+
+        // When the transport runs on a shared event loop the provider work is run there as
+        // well, nothing has been queued yet so the provider's own thread was never started.
+        ScheduledExecutorService eventLoop = transport.getEventLoop();
+        if (eventLoop != null) {
+            ScheduledExecutorService unused = serializer;
+            serializer = eventLoop;
+            sharedSerializer = true;
+            unused.shutdown();
+        }
     }
 
     @Override
@@ -198,6 +251,9 @@ public class AmqpProvider implements Provider, TransportListener {
             } catch (IOException e) {
                 LOG.warn("Error caught while closing Provider: ", e.getMessage());
             } finally {
+                stopIdleTimeoutProcessing();
+                stopTimeoutProcessing();
+
                 if (transport != null) {
                     try {
                         transport.close();
@@ -206,7 +262,15 @@ public class AmqpProvider implements Provider, TransportListener {
                     }
                 }
 
-                serializer.shutdown();
+                if (!sharedSerializer) {
+                    serializer.shutdown();
+                }
+
+                // Release any reads that the serializer never got around to processing.
+                ByteBuf input = null;
+                while ((input = pendingInput.poll()) != null) {
+                    ReferenceCountUtil.release(input);
+                }
             }
         }
     }
@@ -218,6 +282,7 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Create of " + resource);
                 try {
                     checkClosed();
                     resource.visit(new JmsResourceVistor() {
@@ -225,21 +290,24 @@ public class AmqpProvider implements Provider, TransportListener {
                         @Override
                         public void processSessionInfo(JmsSessionInfo sessionInfo) throws Exception {
                             AmqpSession session = connection.createSession(sessionInfo);
-                            session.open(request);
+                            timed.setResource(session);
+                            session.open(timed);
                         }
 
                         @Override
                         public void processProducerInfo(JmsProducerInfo producerInfo) throws Exception {
                             AmqpSession session = connection.getSession(producerInfo.getParentId());
                             AmqpProducer producer = session.createProducer(producerInfo);
-                            producer.open(request);
+                            timed.setResource(producer);
+                            producer.open(timed);
                         }
 
                         @Override
                         public void processConsumerInfo(JmsConsumerInfo consumerInfo) throws Exception {
                             AmqpSession session = connection.getSession(consumerInfo.getParentId());
                             AmqpConsumer consumer = session.createConsumer(consumerInfo);
-                            consumer.open(request);
+                            timed.setResource(consumer);
+                            consumer.open(timed);
                         }
 
                         @Override
@@ -263,6 +331,7 @@ public class AmqpProvider implements Provider, TransportListener {
 
                                 @Override
                                 public void onSuccess() {
+                                    startIdleTimeoutProcessing();
                                     fireConnectionEstablished();
                                     request.onSuccess();
                                 }
@@ -283,7 +352,8 @@ public class AmqpProvider implements Provider, TransportListener {
                         public void processDestination(JmsTemporaryDestination destination) throws Exception {
                             if (destination.isTemporary()) {
                                 AmqpTemporaryDestination temporary = connection.createTemporaryDestination(destination);
-                                temporary.open(request);
+                                timed.setResource(temporary);
+                                temporary.open(timed);
                             } else {
                                 request.onSuccess();
                             }
@@ -292,13 +362,18 @@ public class AmqpProvider implements Provider, TransportListener {
                         @Override
                         public void processTransactionInfo(JmsTransactionInfo transactionInfo) throws Exception {
                             AmqpSession session = connection.getSession(transactionInfo.getParentId());
-                            session.begin(transactionInfo.getTransactionId(), request);
+                            timed.setTransactionContext(session.getTransactionContext());
+                            session.begin(transactionInfo.getTransactionId(), timed);
                         }
                     });
 
+                    // The connection open is bounded by the connect timeout instead.
+                    if (!(resource instanceof JmsConnectionInfo)) {
+                        timed.startTimeout(requestTimeout);
+                    }
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -311,6 +386,7 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Start of " + resource);
                 try {
                     checkClosed();
                     resource.visit(new JmsDefaultResourceVisitor() {
@@ -319,13 +395,14 @@ public class AmqpProvider implements Provider, TransportListener {
                         public void processConsumerInfo(JmsConsumerInfo consumerInfo) throws Exception {
                             AmqpSession session = connection.getSession(consumerInfo.getParentId());
                             AmqpConsumer consumer = session.getConsumer(consumerInfo);
-                            consumer.start(request);
+                            consumer.start(timed);
                         }
                     });
 
+                    timed.startTimeout(requestTimeout);
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -338,6 +415,7 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Stop of " + resource);
                 try {
                     checkClosed();
                     resource.visit(new JmsDefaultResourceVisitor() {
@@ -346,13 +424,14 @@ public class AmqpProvider implements Provider, TransportListener {
                         public void processConsumerInfo(JmsConsumerInfo consumerInfo) throws Exception {
                             AmqpSession session = connection.getSession(consumerInfo.getParentId());
                             AmqpConsumer consumer = session.getConsumer(consumerInfo);
-                            consumer.stop(request);
+                            consumer.stop(timed);
                         }
                     });
 
+                    timed.startTimeout(requestTimeout);
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -365,6 +444,7 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Close of " + resource);
                 try {
                     checkClosed();
                     resource.visit(new JmsDefaultResourceVisitor() {
@@ -372,21 +452,24 @@ public class AmqpProvider implements Provider, TransportListener {
                         @Override
                         public void processSessionInfo(JmsSessionInfo sessionInfo) throws Exception {
                             AmqpSession session = connection.getSession(sessionInfo.getSessionId());
-                            session.close(request);
+                            timed.setResource(session);
+                            session.close(timed);
                         }
 
                         @Override
                         public void processProducerInfo(JmsProducerInfo producerInfo) throws Exception {
                             AmqpSession session = connection.getSession(producerInfo.getParentId());
                             AmqpProducer producer = session.getProducer(producerInfo);
-                            producer.close(request);
+                            timed.setResource(producer);
+                            producer.close(timed);
                         }
 
                         @Override
                         public void processConsumerInfo(JmsConsumerInfo consumerInfo) throws Exception {
                             AmqpSession session = connection.getSession(consumerInfo.getParentId());
                             AmqpConsumer consumer = session.getConsumer(consumerInfo);
-                            consumer.close(request);
+                            timed.setResource(consumer);
+                            consumer.close(timed);
                         }
 
                         @Override
@@ -398,7 +481,8 @@ public class AmqpProvider implements Provider, TransportListener {
                         public void processDestination(JmsTemporaryDestination destination) throws Exception {
                             AmqpTemporaryDestination temporary = connection.getTemporaryDestination(destination);
                             if (temporary != null) {
-                                temporary.close(request);
+                                timed.setResource(temporary);
+                                temporary.close(timed);
                             } else {
                                 LOG.debug("Could not find temporary destination {} to delete.", destination);
                                 request.onSuccess();
@@ -406,9 +490,13 @@ public class AmqpProvider implements Provider, TransportListener {
                         }
                     });
 
+                    // The connection close is bounded by the close timeout instead.
+                    if (!(resource instanceof JmsConnectionInfo)) {
+                        timed.startTimeout(requestTimeout);
+                    }
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -421,26 +509,84 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Send of message " + envelope.getDispatchId());
                 try {
                     checkClosed();
 
-                    JmsProducerId producerId = envelope.getProducerId();
-                    AmqpProducer producer = null;
-
-                    if (producerId.getProviderHint() instanceof AmqpFixedProducer) {
-                        producer = (AmqpFixedProducer) producerId.getProviderHint();
-                    } else {
-                        AmqpSession session = connection.getSession(producerId.getParentId());
-                        producer = session.getProducer(producerId);
-                    }
-
-                    boolean couldSend = producer.send(envelope, request);
+                    AmqpProducer producer = lookupProducer(envelope.getProducerId());
+                    timed.setProducer(producer);
+                    boolean couldSend = producer.send(envelope, timed);
                     pumpToProtonTransport(request);
                     if (couldSend && envelope.isSendAsync()) {
-                        request.onSuccess();
+                        timed.onSuccess();
+                    } else {
+                        timed.startTimeout(sendTimeout);
                     }
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void send(final List<JmsOutboundMessageDispatch> envelopes, final List<AsyncResult> requests) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                final List<TimedRequest> sends = new ArrayList<TimedRequest>(envelopes.size());
+                final boolean[] couldSend = new boolean[envelopes.size()];
+
+                // Every transfer is handed to proton before the output is pumped, so the
+                // whole batch goes out in one write that the queued flush task then flushes.
+                for (int i = 0; i < envelopes.size(); ++i) {
+                    JmsOutboundMessageDispatch envelope = envelopes.get(i);
+                    TimedRequest timed = new TimedRequest(requests.get(i), "Send of message " + envelope.getDispatchId());
+                    sends.add(timed);
+                    try {
+                        checkClosed();
+                        AmqpProducer producer = lookupProducer(envelope.getProducerId());
+                        timed.setProducer(producer);
+                        couldSend[i] = producer.send(envelope, timed);
+                    } catch (Exception error) {
+                        timed.onFailure(error);
+                    }
+                }
+
+                pumpToProtonTransport(new AsyncResult() {
+
+                    @Override
+                    public void onFailure(Throwable result) {
+                        for (TimedRequest timed : sends) {
+                            if (!timed.isComplete()) {
+                                timed.onFailure(result);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onSuccess() {
+                    }
+
+                    @Override
+                    public boolean isComplete() {
+                        return false;
+                    }
+                }, true);
+
+                for (int i = 0; i < sends.size(); ++i) {
+                    TimedRequest timed = sends.get(i);
+                    if (timed.isComplete()) {
+                        continue;
+                    }
+
+                    if (couldSend[i] && envelopes.get(i).isSendAsync()) {
+                        timed.onSuccess();
+                    } else {
+                        timed.startTimeout(sendTimeout);
+                    }
                 }
             }
         });
@@ -476,19 +622,47 @@ public class AmqpProvider implements Provider, TransportListener {
                 try {
                     checkClosed();
 
-                    JmsConsumerId consumerId = envelope.getConsumerId();
-                    AmqpConsumer consumer = null;
+                    AmqpConsumer consumer = lookupConsumer(envelope);
+                    consumer.acknowledge(envelope, ackType);
 
-                    if (consumerId.getProviderHint() instanceof AmqpConsumer) {
-                        consumer = (AmqpConsumer) consumerId.getProviderHint();
+                    if (consumer.getSession().isAsyncAck()) {
+                        request.onSuccess();
+                        pumpToProtonTransport(request);
                     } else {
-                        AmqpSession session = connection.getSession(consumerId.getParentId());
-                        consumer = session.getConsumer(consumerId);
+                        pumpToProtonTransport(request);
+                        request.onSuccess();
                     }
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
 
-                    consumer.acknowledge(envelope, ackType);
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
 
-                    if (consumer.getSession().isAsyncAck()) {
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+
+                    // Proton only supports a disposition per delivery so each ack still
+                    // produces its own frame, but all of them are written out together.
+                    boolean asyncAck = true;
+                    for (JmsInboundMessageDispatch envelope : envelopes) {
+                        AmqpConsumer consumer = lookupConsumer(envelope);
+                        if (consumer == null) {
+                            LOG.debug("Dropping batched ack for closed consumer: {}", envelope);
+                            continue;
+                        }
+                        consumer.acknowledge(envelope, ackType);
+                        asyncAck &= consumer.getSession().isAsyncAck();
+                    }
+
+                    if (asyncAck) {
                         request.onSuccess();
                         pumpToProtonTransport(request);
                     } else {
@@ -509,13 +683,16 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Commit of " + sessionId);
                 try {
                     checkClosed();
                     AmqpSession session = connection.getSession(sessionId);
-                    session.commit(request);
+                    timed.setTransactionContext(session.getTransactionContext());
+                    session.commit(timed);
+                    timed.startTimeout(requestTimeout);
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -528,13 +705,16 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Rollback of " + sessionId);
                 try {
                     checkClosed();
                     AmqpSession session = connection.getSession(sessionId);
-                    session.rollback(request);
+                    timed.setTransactionContext(session.getTransactionContext());
+                    session.rollback(timed);
+                    timed.startTimeout(requestTimeout);
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -567,12 +747,14 @@ public class AmqpProvider implements Provider, TransportListener {
 
             @Override
             public void run() {
+                final TimedRequest timed = new TimedRequest(request, "Unsubscribe of " + subscription);
                 try {
                     checkClosed();
-                    connection.unsubscribe(subscription, request);
+                    connection.unsubscribe(subscription, timed);
+                    timed.startTimeout(requestTimeout);
                     pumpToProtonTransport(request);
                 } catch (Exception error) {
-                    request.onFailure(error);
+                    timed.onFailure(error);
                 }
             }
         });
@@ -608,19 +790,236 @@ public class AmqpProvider implements Provider, TransportListener {
 
     //---------- Event handlers and Utility methods  -------------------------//
 
+    /*
+     * The tracer is also how the idle timeout the remote asks for is learned as proton does
+     * not expose it, when frame tracing is off it removes itself once the Open has arrived.
+     */
     private void updateTracer() {
-        if (isTraceFrames()) {
-            ((TransportImpl) protonTransport).setProtocolTracer(new ProtocolTracer() {
-                @Override
-                public void receivedFrame(TransportFrame transportFrame) {
+        ((TransportImpl) protonTransport).setProtocolTracer(new ProtocolTracer() {
+            @Override
+            public void receivedFrame(TransportFrame transportFrame) {
+                if (transportFrame.getBody() instanceof Open) {
+                    UnsignedInteger remoteTimeout = ((Open) transportFrame.getBody()).getIdleTimeOut();
+                    if (remoteTimeout != null) {
+                        remoteIdleTimeout = remoteTimeout.longValue();
+                    }
+
+                    if (!isTraceFrames()) {
+                        ((TransportImpl) protonTransport).setProtocolTracer(null);
+                    }
+                }
+
+                if (isTraceFrames()) {
                     TRACE_FRAMES.trace("RECV: {}", transportFrame.getBody());
                 }
+            }
 
-                @Override
-                public void sentFrame(TransportFrame transportFrame) {
+            @Override
+            public void sentFrame(TransportFrame transportFrame) {
+                if (isTraceFrames()) {
                     TRACE_FRAMES.trace("SENT: {}", transportFrame.getBody());
                 }
-            });
+            }
+        });
+    }
+
+    /*
+     * Runs the idle timeout checks on the serializer at half the shortest of the local and
+     * remote timeouts, nothing is scheduled when neither side asked for one.
+     */
+    private void startIdleTimeoutProcessing() {
+        long period = 0;
+        if (idleTimeout > 0) {
+            period = idleTimeout / 2;
+        }
+        if (remoteIdleTimeout > 0) {
+            period = period == 0 ? remoteIdleTimeout / 2 : Math.min(period, remoteIdleTimeout / 2);
+        }
+
+        if (period > 0 && idleTimeoutTask == null) {
+            long now = System.nanoTime();
+            lastInputTime = now;
+            lastOutputTime = now;
+            idleTimeoutTask = serializer.scheduleAtFixedRate(
+                new IdleTimeoutTask(), period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void stopIdleTimeoutProcessing() {
+        ScheduledFuture<?> task = idleTimeoutTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Declares the connection failed once the remote has been silent for longer than the
+     * local idle timeout and sends an empty frame whenever nothing else has been written
+     * for half of the idle timeout the remote asked for.
+     */
+    private final class IdleTimeoutTask implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed.get() || transport == null || !transport.isConnected()) {
+                stopIdleTimeoutProcessing();
+                return;
+            }
+
+            long now = System.nanoTime();
+
+            if (idleTimeout > 0 && now - lastInputTime > TimeUnit.MILLISECONDS.toNanos(idleTimeout)) {
+                LOG.info("No frames received from {} within the idle timeout of {} ms", getRemoteURI(), idleTimeout);
+                stopIdleTimeoutProcessing();
+                fireProviderException(new IOException("Remote peer idle timeout of " + idleTimeout + " ms expired"));
+                if (connection != null) {
+                    connection.closed();
+                }
+                return;
+            }
+
+            if (remoteIdleTimeout > 0 && now - lastOutputTime >= TimeUnit.MILLISECONDS.toNanos(remoteIdleTimeout / 2)) {
+                try {
+                    ByteBuf outbound = transport.allocateSendBuffer(EMPTY_FRAME.length);
+                    outbound.writeBytes(EMPTY_FRAME);
+                    transport.send(outbound);
+                    lastOutputTime = now;
+                } catch (IOException e) {
+                    stopIdleTimeoutProcessing();
+                    fireProviderException(e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Must be called from the serializer, the ticker is only running while the wheel holds
+     * timeouts so an idle connection carries no periodic work for them.
+     */
+    private TimerWheel.Timeout scheduleTimeout(Runnable task, long delay) {
+        TimerWheel.Timeout timeout = timeouts.schedule(task, delay, TimeUnit.MILLISECONDS);
+        if (timeoutTicker == null) {
+            timeoutTicker = serializer.scheduleAtFixedRate(
+                new TimeoutTicker(), TIMEOUT_TICK, TIMEOUT_TICK, TimeUnit.MILLISECONDS);
+        }
+
+        return timeout;
+    }
+
+    private void stopTimeoutProcessing() {
+        ScheduledFuture<?> ticker = timeoutTicker;
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+    }
+
+    /**
+     * Advances the timeout wheel on the serializer and writes out anything the expired
+     * requests left behind, such as the detach of a link that never attached.
+     */
+    private final class TimeoutTicker implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed.get()) {
+                stopTimeoutProcessing();
+                return;
+            }
+
+            if (timeouts.expireTimeouts() > 0) {
+                try {
+                    pumpToProtonTransport(NOOP_REQUEST);
+                } catch (Exception e) {
+                    LOG.debug("Error writing out work for expired requests: {}", e.getMessage());
+                }
+            }
+
+            if (timeouts.isEmpty()) {
+                stopTimeoutProcessing();
+                timeoutTicker = null;
+            }
+        }
+    }
+
+    /**
+     * Wraps a request so that it fails with a JmsOperationTimedOutException if it is not
+     * completed in time, the resource or transaction it was waiting on is told first so
+     * that a late answer from the remote finds nothing to complete.
+     */
+    private final class TimedRequest extends WrappedAsyncResult implements Runnable {
+
+        private final String operation;
+        private TimerWheel.Timeout timeout;
+        private long delay;
+        private AmqpResource resource;
+        private AmqpProducer producer;
+        private AmqpTransactionContext txContext;
+
+        public TimedRequest(AsyncResult request, String operation) {
+            super(request);
+            this.operation = operation;
+        }
+
+        public void setResource(AmqpResource resource) {
+            this.resource = resource;
+        }
+
+        public void setProducer(AmqpProducer producer) {
+            this.producer = producer;
+        }
+
+        public void setTransactionContext(AmqpTransactionContext txContext) {
+            this.txContext = txContext;
+        }
+
+        public void startTimeout(long delay) {
+            if (delay > 0 && !isComplete()) {
+                this.delay = delay;
+                this.timeout = scheduleTimeout(this, delay);
+            }
+        }
+
+        @Override
+        public void onSuccess() {
+            cancelTimeout();
+            super.onSuccess();
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            cancelTimeout();
+            super.onFailure(result);
+        }
+
+        @Override
+        public void run() {
+            timeout = null;
+            if (isComplete()) {
+                return;
+            }
+
+            LOG.debug("{} timed out after {} ms", operation, delay);
+            JmsOperationTimedOutException error =
+                new JmsOperationTimedOutException(operation + " timed out after " + delay + " ms");
+
+            if (producer != null) {
+                producer.cancelSend(this);
+            } else if (txContext != null) {
+                txContext.requestTimedOut(this, error);
+            } else if (resource != null) {
+                resource.failed(error);
+            }
+
+            if (!isComplete()) {
+                super.onFailure(error);
+            }
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
         }
     }
 
@@ -629,33 +1028,61 @@ public class AmqpProvider implements Provider, TransportListener {
 
         // We need to retain until the serializer gets around to processing it.
         ReferenceCountUtil.retain(input);
+        pendingInput.add(input);
 
-        serializer.execute(new Runnable() {
-
-            @Override
-            public void run() {
-                LOG.trace("Received from Broker {} bytes: {}", input.readableBytes(), input);
+        // Reads that arrive while a previous batch is still waiting on the serializer are
+        // aggregated into that batch so that they are processed in a single pass.
+        if (inputScheduled.compareAndSet(false, true)) {
+            serializer.execute(inputProcessor);
+        }
+    }
 
-                ByteBuffer source = input.nioBuffer();
+    /**
+     * Drains all pending inbound reads into the proton Transport and then processes the
+     * resulting state changes once for the whole batch.
+     */
+    private final class InputProcessor implements Runnable {
 
-                do {
-                    ByteBuffer buffer = protonTransport.getInputBuffer();
-                    int limit = Math.min(buffer.remaining(), source.remaining());
-                    ByteBuffer duplicate = source.duplicate();
-                    duplicate.limit(source.position() + limit);
-                    buffer.put(duplicate);
-                    protonTransport.processInput();
-                    source.position(source.position() + limit);
-                } while (source.hasRemaining());
+        @Override
+        public void run() {
+            inputScheduled.set(false);
 
-                ReferenceCountUtil.release(input);
+            ByteBuf input = null;
+            boolean processed = false;
+            while ((input = pendingInput.poll()) != null) {
+                processInput(input);
+                processed = true;
+            }
 
+            if (processed) {
                 // Process the state changes from the latest data and then answer back
                 // any pending updates to the Broker.
                 processUpdates();
                 pumpToProtonTransport(NOOP_REQUEST);
             }
-        });
+        }
+    }
+
+    /*
+     * Copies the incoming bytes straight from the Netty buffer into the proton input
+     * buffer without creating any intermediate buffers or views along the way.
+     */
+    private void processInput(ByteBuf input) {
+        LOG.trace("Received from Broker {} bytes: {}", input.readableBytes(), input);
+        lastInputTime = System.nanoTime();
+
+        try {
+            while (input.isReadable()) {
+                ByteBuffer buffer = protonTransport.getInputBuffer();
+                int limit = buffer.limit();
+                buffer.limit(buffer.position() + Math.min(buffer.remaining(), input.readableBytes()));
+                input.readBytes(buffer);
+                buffer.limit(limit);
+                protonTransport.processInput();
+            }
+        } finally {
+            ReferenceCountUtil.release(input);
+        }
     }
 
     /**
@@ -772,7 +1199,34 @@ public class AmqpProvider implements Provider, TransportListener {
         }
     }
 
+    private AmqpConsumer lookupConsumer(JmsInboundMessageDispatch envelope) {
+        JmsConsumerId consumerId = envelope.getConsumerId();
+        if (consumerId.getProviderHint() instanceof AmqpConsumer) {
+            return (AmqpConsumer) consumerId.getProviderHint();
+        }
+
+        AmqpSession session = connection.getSession(consumerId.getParentId());
+        return session.getConsumer(consumerId);
+    }
+
+    private AmqpProducer lookupProducer(JmsProducerId producerId) {
+        if (producerId.getProviderHint() instanceof AmqpFixedProducer) {
+            return (AmqpFixedProducer) producerId.getProviderHint();
+        }
+
+        AmqpSession session = connection.getSession(producerId.getParentId());
+        return session.getProducer(producerId);
+    }
+
     private void pumpToProtonTransport(AsyncResult request) {
+        pumpToProtonTransport(request, isCoalesceWrites());
+    }
+
+    /*
+     * When coalescing the output is only written to the transport and the flush is left to
+     * a flush task queued on the serializer, otherwise each chunk is flushed as it is sent.
+     */
+    private void pumpToProtonTransport(AsyncResult request, boolean coalesce) {
         try {
             boolean done = false;
             while (!done) {
@@ -785,18 +1239,62 @@ public class AmqpProvider implements Provider, TransportListener {
                         TRACE_BYTES.info("Sending: {}", ByteBufUtil.hexDump(outbound));
                     }
 
-                    transport.send(outbound);
+                    if (coalesce) {
+                        unflushedBytes += outbound.readableBytes();
+                        transport.write(outbound);
+                        if (isCoalesceWrites() && unflushedBytes >= getCoalesceWriteThreshold()) {
+                            flushTransport();
+                        }
+                    } else {
+                        transport.send(outbound);
+                    }
+
                     protonTransport.outputConsumed();
+                    lastOutputTime = System.nanoTime();
                 } else {
                     done = true;
                 }
             }
+
+            // The flush is queued behind any work already waiting on the serializer so that
+            // the output of all of those tasks is written to the socket in one go.
+            if (unflushedBytes > 0 && !flushScheduled) {
+                try {
+                    serializer.execute(flushTask);
+                    flushScheduled = true;
+                } catch (RejectedExecutionException ree) {
+                    flushTransport();
+                }
+            }
         } catch (IOException e) {
             fireProviderException(e);
             request.onFailure(e);
         }
     }
 
+    private void flushTransport() throws IOException {
+        unflushedBytes = 0;
+        transport.flush();
+    }
+
+    /**
+     * Flushes any writes that were held back when write coalescing is enabled.
+     */
+    private final class FlushTask implements Runnable {
+
+        @Override
+        public void run() {
+            flushScheduled = false;
+            if (unflushedBytes > 0) {
+                try {
+                    flushTransport();
+                } catch (IOException e) {
+                    fireProviderException(e);
+                }
+            }
+        }
+    }
+
     void fireConnectionEstablished() {
         ProviderListener listener = this.listener;
         if (listener != null) {
@@ -888,6 +1386,171 @@ public class AmqpProvider implements Provider, TransportListener {
         this.presettleProducers = presettle;
     }
 
+    public boolean isCoalesceWrites() {
+        return coalesceWrites;
+    }
+
+    /**
+     * Controls whether output is written to the Transport without flushing after each
+     * chunk.  When enabled the written bytes are flushed once the work that was already
+     * queued on the provider has been processed, or sooner if the amount of unflushed
+     * data reaches the coalesce write threshold.
+     *
+     * @param coalesceWrites
+     *        true if outbound writes should be batched into fewer flushes.
+     */
+    public void setCoalesceWrites(boolean coalesceWrites) {
+        this.coalesceWrites = coalesceWrites;
+    }
+
+    public int getCoalesceWriteThreshold() {
+        return coalesceWriteThreshold;
+    }
+
+    /**
+     * Sets the number of unflushed bytes that forces a flush of the Transport when
+     * write coalescing is enabled.
+     *
+     * @param coalesceWriteThreshold
+     *        the number of bytes that can be written before a flush is forced.
+     */
+    public void setCoalesceWriteThreshold(int coalesceWriteThreshold) {
+        this.coalesceWriteThreshold = coalesceWriteThreshold;
+    }
+
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Controls whether incoming messages have their application-properties, body and
+     * footer sections decoded only when first accessed.  Sections that are never accessed
+     * are passed through in their encoded form when the message is copied or resent.
+     *
+     * @param lazyDecoding
+     *        true if incoming message sections should be decoded on demand.
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    public boolean isDeferredDecoding() {
+        return deferredDecoding;
+    }
+
+    /**
+     * Controls whether incoming messages are decoded by the thread that receives them
+     * from, or dispatches them for, their consumer instead of on arrival.  Prefetched
+     * messages are then held in their encoded form and the decoding work of a connection
+     * is spread over its sessions.  Consumers that evaluate their selector on the client
+     * always decode on arrival.
+     *
+     * @param deferredDecoding
+     *        true if incoming messages should be decoded when they are consumed.
+     */
+    public void setDeferredDecoding(boolean deferredDecoding) {
+        this.deferredDecoding = deferredDecoding;
+    }
+
+    public boolean isAdaptiveCredit() {
+        return adaptiveCredit;
+    }
+
+    /**
+     * Controls whether consumers size their link credit from the rate at which they are
+     * consuming messages and the time it takes new credit to be answered, rather than
+     * always topping it back up to the prefetch size.  The prefetch is then only used as
+     * the starting window.
+     *
+     * @param adaptiveCredit
+     *        true if consumers should adapt their link credit window.
+     */
+    public void setAdaptiveCredit(boolean adaptiveCredit) {
+        this.adaptiveCredit = adaptiveCredit;
+    }
+
+    public int getAdaptiveCreditMin() {
+        return adaptiveCreditMin;
+    }
+
+    /**
+     * Sets the smallest credit window an adaptive consumer will use.
+     *
+     * @param adaptiveCreditMin
+     *        the minimum number of messages of credit.
+     */
+    public void setAdaptiveCreditMin(int adaptiveCreditMin) {
+        this.adaptiveCreditMin = adaptiveCreditMin;
+    }
+
+    public int getAdaptiveCreditMax() {
+        return adaptiveCreditMax;
+    }
+
+    /**
+     * Sets the largest credit window an adaptive consumer will use.
+     *
+     * @param adaptiveCreditMax
+     *        the maximum number of messages of credit.
+     */
+    public void setAdaptiveCreditMax(int adaptiveCreditMax) {
+        this.adaptiveCreditMax = adaptiveCreditMax;
+    }
+
+    public long getAdaptiveCreditMemoryBudget() {
+        return adaptiveCreditMemoryBudget;
+    }
+
+    /**
+     * Sets the number of bytes of messages an adaptive consumer may have outstanding, the
+     * window is limited to the number of messages of the average size seen so far that
+     * fit within it.  A value of zero places no limit on the window beyond its maximum.
+     *
+     * @param adaptiveCreditMemoryBudget
+     *        the memory budget in bytes for each consumer.
+     */
+    public void setAdaptiveCreditMemoryBudget(long adaptiveCreditMemoryBudget) {
+        this.adaptiveCreditMemoryBudget = adaptiveCreditMemoryBudget;
+    }
+
+    public boolean isClientSideSelectors() {
+        return clientSideSelectors;
+    }
+
+    /**
+     * Controls whether consumers evaluate their message selector against each incoming
+     * message in addition to sending it to the remote peer, for use with peers that do
+     * not honor the selector filter.  Messages that do not match are handed back to the
+     * remote peer as undeliverable to that consumer and never reach the application.
+     *
+     * @param clientSideSelectors
+     *        true if consumers should filter incoming messages with their selector.
+     */
+    public void setClientSideSelectors(boolean clientSideSelectors) {
+        this.clientSideSelectors = clientSideSelectors;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds the remote peer may stay silent before the connection
+     * is considered dead and failed, which lets a failover wrapper reconnect well before
+     * the operating system gives up on a half open socket.  Any inbound bytes, including
+     * empty heartbeat frames, reset the timer.  The version of proton in use cannot place
+     * this value in the outgoing Open frame, so it should only be enabled for peers that
+     * are configured to send traffic or heartbeats at least this often.  Idle timeouts
+     * requested by the remote peer are always honored with empty frames regardless of
+     * this setting.  A value of zero, the default, disables the check.
+     *
+     * @param idleTimeout
+     *        the time in milliseconds without inbound data before the connection fails.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
     /**
      * @return the currently set Max Frame Size value.
      */
@@ -20,6 +20,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import javax.jms.IllegalStateException;
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
 
 import org.apache.qpid.jms.meta.JmsConsumerId;
 import org.apache.qpid.jms.meta.JmsConsumerInfo;
@@ -29,6 +31,8 @@ import org.apache.qpid.jms.meta.JmsSessionId;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
 import org.apache.qpid.jms.meta.JmsTransactionId;
 import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.selector.SelectorCompiler;
+import org.apache.qpid.jms.selector.filter.FilterException;
 import org.apache.qpid.proton.engine.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -126,16 +130,27 @@ public class AmqpSession extends AmqpAbstractResource<JmsSessionInfo, Session> {
         return null;
     }
 
-    public AmqpConsumer createConsumer(JmsConsumerInfo consumerInfo) {
+    public AmqpConsumer createConsumer(JmsConsumerInfo consumerInfo) throws JMSException {
         AmqpConsumer result = null;
 
         if (consumerInfo.isBrowser()) {
             result = new AmqpQueueBrowser(this, consumerInfo);
         } else {
             result = new AmqpConsumer(this, consumerInfo);
+            result.setCreditWindow(connection.createCreditWindow(consumerInfo.getPrefetchSize()));
         }
 
         result.setPresettle(connection.isPresettleConsumers());
+
+        String selector = consumerInfo.getSelector();
+        if (connection.isClientSideSelectors() && selector != null && !selector.trim().isEmpty()) {
+            try {
+                result.setSelectorFilter(SelectorCompiler.compile(selector));
+            } catch (FilterException e) {
+                throw new InvalidSelectorException(e.getMessage());
+            }
+        }
+
         return result;
     }
 
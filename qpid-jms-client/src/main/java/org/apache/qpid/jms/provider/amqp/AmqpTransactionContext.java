@@ -203,6 +203,40 @@ public class AmqpTransactionContext extends AmqpAbstractResource<JmsSessionInfo,
         sendTxCommand(message);
     }
 
+    /**
+     * Called when the remote has not answered a declare or discharge within the request
+     * timeout.  The pending delivery is settled locally so a late answer is ignored, and an
+     * abandoned discharge is treated as a rollback, which is how the JMS layer handles any
+     * failed commit.
+     *
+     * @param request
+     *        the request that timed out.
+     * @param cause
+     *        the error used to fail the request.
+     */
+    public void requestTimedOut(AsyncResult request, Exception cause) {
+        if (pendingRequest != request) {
+            return;
+        }
+
+        boolean discharge = pendingDelivery.getContext() != null;
+        pendingDelivery.settle();
+
+        this.current = null;
+        this.pendingRequest = null;
+        this.pendingDelivery = null;
+
+        if (discharge) {
+            try {
+                postRollback();
+            } catch (Exception e) {
+                LOG.debug("Error resetting consumers after a timed out discharge: {}", e.getMessage());
+            }
+        }
+
+        request.onFailure(cause);
+    }
+
     public void registerTxConsumer(AmqpConsumer consumer) {
         this.txConsumers.add(consumer);
     }
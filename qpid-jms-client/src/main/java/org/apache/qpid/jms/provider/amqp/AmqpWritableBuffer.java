@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
+import org.apache.qpid.proton.codec.WritableBuffer;
+
+/**
+ * Proton WritableBuffer implementation that wraps a Netty ByteBuf so that a
+ * Message can be encoded directly into a buffer that grows on demand instead
+ * of failing with a BufferOverflowException once a fixed size array is full.
+ */
+public class AmqpWritableBuffer implements WritableBuffer {
+
+    private final ByteBuf buffer;
+
+    public AmqpWritableBuffer(ByteBuf buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return the ByteBuf that this instance is writing into.
+     */
+    public ByteBuf getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void put(byte b) {
+        buffer.writeByte(b);
+    }
+
+    @Override
+    public void putFloat(float f) {
+        buffer.writeFloat(f);
+    }
+
+    @Override
+    public void putDouble(double d) {
+        buffer.writeDouble(d);
+    }
+
+    @Override
+    public void put(byte[] src, int offset, int length) {
+        buffer.writeBytes(src, offset, length);
+    }
+
+    @Override
+    public void putShort(short s) {
+        buffer.writeShort(s);
+    }
+
+    @Override
+    public void putInt(int i) {
+        buffer.writeInt(i);
+    }
+
+    @Override
+    public void putLong(long l) {
+        buffer.writeLong(l);
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return buffer.maxCapacity() > buffer.writerIndex();
+    }
+
+    @Override
+    public int remaining() {
+        return buffer.maxCapacity() - buffer.writerIndex();
+    }
+
+    @Override
+    public int position() {
+        return buffer.writerIndex();
+    }
+
+    @Override
+    public void position(int position) {
+        if (position > buffer.capacity()) {
+            buffer.ensureWritable(position - buffer.writerIndex());
+        }
+        buffer.writerIndex(position);
+    }
+
+    @Override
+    public void put(ByteBuffer payload) {
+        buffer.writeBytes(payload);
+    }
+
+    @Override
+    public int limit() {
+        return buffer.maxCapacity();
+    }
+}
@@ -84,13 +84,15 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
         AmqpJmsBytesMessageFacade copy = new AmqpJmsBytesMessageFacade(connection);
         copyInto(copy);
 
-        Binary payload = getBinaryFromBody();
-        if (payload.getLength() > 0) {
-            byte[] result = new byte[payload.getLength()];
-            System.arraycopy(payload.getArray(), payload.getArrayOffset(), result, 0, payload.getLength());
-            copy.message.setBody(new Data(new Binary(result)));
-        } else {
-            copy.message.setBody(EMPTY_BODY);
+        if (!copyEncodedBodyInto(copy)) {
+            // The body payload is never modified in place, writes always produce a new
+            // Binary on reset and clearBody replaces it, so the copy can share it.
+            Binary payload = getBinaryFromBody();
+            if (payload.getLength() > 0) {
+                copy.message.setBody(new Data(payload));
+            } else {
+                copy.message.setBody(EMPTY_BODY);
+            }
         }
 
         return copy;
@@ -143,6 +145,16 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
         return bytesIn;
     }
 
+    @Override
+    public InputStream createDetachedInputStream() throws JMSException {
+        if (bytesOut != null) {
+            throw new IllegalStateException("Body is being written to, cannot perform a read.");
+        }
+
+        Binary body = getBinaryFromBody();
+        return new ByteBufInputStream(Unpooled.wrappedBuffer(body.getArray(), body.getArrayOffset(), body.getLength()));
+    }
+
     @Override
     public OutputStream getOutputStream() throws JMSException {
         if (bytesIn != null) {
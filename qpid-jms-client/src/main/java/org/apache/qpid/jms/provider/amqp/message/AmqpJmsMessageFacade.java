@@ -20,6 +20,9 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_A
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MESSAGE;
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MSG_TYPE;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -37,6 +40,7 @@ import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
 import org.apache.qpid.proton.Proton;
+import org.apache.qpid.jms.provider.amqp.AmqpWritableBuffer;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.UnsignedByte;
@@ -47,6 +51,7 @@ import org.apache.qpid.proton.amqp.messaging.Header;
 import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.amqp.messaging.Properties;
 import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.message.impl.MessageImpl;
 
 /**
  *
@@ -56,12 +61,14 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     private static final int DEFAULT_PRIORITY = javax.jms.Message.DEFAULT_PRIORITY;
     private static final Charset UTF8 = Charset.forName("UTF-8");
     private static final long UINT_MAX = 0xFFFFFFFFL;
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
 
     protected final Message message;
     protected final AmqpConnection connection;
 
     private Map<Symbol,Object> messageAnnotationsMap;
     private Map<String,Object> applicationPropertiesMap;
+    private boolean applicationPropertiesPending;
 
     private JmsDestination replyTo;
     private JmsDestination destination;
@@ -82,7 +89,12 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
      *        the AmqpConnection that under which this facade was created.
      */
     public AmqpJmsMessageFacade(AmqpConnection connection) {
-        this.message = Proton.message();
+        // A lazily decoded message can only hand its encoded sections to another of its kind.
+        if (connection != null && connection.isLazyDecoding()) {
+            this.message = new AmqpLazyMessage();
+        } else {
+            this.message = Proton.message();
+        }
         this.message.setDurable(true);
 
         this.connection = connection;
@@ -108,7 +120,11 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
             messageAnnotationsMap = message.getMessageAnnotations().getValue();
         }
 
-        if (message.getApplicationProperties() != null) {
+        if (message instanceof AmqpLazyMessage) {
+            // Application properties are read on first use so that they need not be decoded
+            // for messages whose properties are never looked at.
+            applicationPropertiesPending = true;
+        } else if (message.getApplicationProperties() != null) {
             applicationPropertiesMap = message.getApplicationProperties().getValue();
         }
 
@@ -152,6 +168,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     public boolean applicationPropertyExists(String key) throws JMSException {
+        lazyReadApplicationProperties();
         if (applicationPropertiesMap != null) {
             return applicationPropertiesMap.containsKey(key);
         }
@@ -172,6 +189,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     public Set<String> getApplicationPropertyNames(Set<String> propertyNames) {
+        lazyReadApplicationProperties();
         if (applicationPropertiesMap != null) {
             propertyNames.addAll(applicationPropertiesMap.keySet());
         }
@@ -185,6 +203,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     public Object getApplicationProperty(String key) throws JMSException {
+        lazyReadApplicationProperties();
         if (applicationPropertiesMap != null) {
             return applicationPropertiesMap.get(key);
         }
@@ -238,6 +257,17 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         setMessageAnnotation(JMS_MSG_TYPE, getJmsMsgType());
     }
 
+    /**
+     * Encodes into an unpooled buffer as the result may be held for a while, or sent more
+     * than once by failover, and is simply left to the garbage collector once written.
+     */
+    @Override
+    public ByteBuf encodeMessage() {
+        ByteBuf encoded = Unpooled.buffer(INITIAL_ENCODE_BUFFER_SIZE);
+        ((MessageImpl) message).encode(new AmqpWritableBuffer(encoded));
+        return encoded;
+    }
+
     @Override
     public void onDispatch() throws JMSException {
     }
@@ -325,9 +355,15 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
             targetMsg.setFooter(new Footer(newDeliveryAnnotations));
         }
 
-        if (applicationPropertiesMap != null) {
-            target.lazyCreateApplicationProperties();
-            target.applicationPropertiesMap.putAll(applicationPropertiesMap);
+        if (copyPendingApplicationPropertiesInto(target)) {
+            target.applicationPropertiesMap = null;
+            target.applicationPropertiesPending = true;
+        } else {
+            lazyReadApplicationProperties();
+            if (applicationPropertiesMap != null) {
+                target.lazyCreateApplicationProperties();
+                target.applicationPropertiesMap.putAll(applicationPropertiesMap);
+            }
         }
 
         if (messageAnnotationsMap != null) {
@@ -336,6 +372,20 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         }
     }
 
+    /**
+     * Passes the body of this message to the target in its encoded form if it has not been
+     * decoded yet, avoiding a decode and re-encode of a body that nobody has looked at.
+     *
+     * @param target
+     *        the facade whose message body should be replaced.
+     *
+     * @return true if the encoded body was copied, false if the caller must copy the body.
+     */
+    protected boolean copyEncodedBodyInto(AmqpJmsMessageFacade target) {
+        return message instanceof AmqpLazyMessage && target.message instanceof AmqpLazyMessage &&
+               ((AmqpLazyMessage) message).copyEncodedBodyInto((AmqpLazyMessage) target.message);
+    }
+
     @Override
     public String getMessageId() {
         Object underlying = message.getMessageId();
@@ -833,6 +883,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
      * Removes all application level properties from the Message.
      */
     void clearAllApplicationProperties() {
+        applicationPropertiesPending = false;
         applicationPropertiesMap = null;
         message.setApplicationProperties(null);
     }
@@ -894,7 +945,26 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         }
     }
 
+    // Synchronized along with the lazy read, a facade shared between messages can be read on
+    // the application's thread while the client copies it on another.
+    private synchronized boolean copyPendingApplicationPropertiesInto(AmqpJmsMessageFacade target) {
+        return applicationPropertiesPending && message instanceof AmqpLazyMessage &&
+               target.message instanceof AmqpLazyMessage &&
+               ((AmqpLazyMessage) message).copyEncodedApplicationPropertiesInto((AmqpLazyMessage) target.message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void lazyReadApplicationProperties() {
+        if (applicationPropertiesPending) {
+            applicationPropertiesPending = false;
+            if (message.getApplicationProperties() != null) {
+                applicationPropertiesMap = message.getApplicationProperties().getValue();
+            }
+        }
+    }
+
     private void lazyCreateApplicationProperties() {
+        lazyReadApplicationProperties();
         if (applicationPropertiesMap == null) {
             applicationPropertiesMap = new HashMap<String, Object>();
             message.setApplicationProperties(new ApplicationProperties(applicationPropertiesMap));
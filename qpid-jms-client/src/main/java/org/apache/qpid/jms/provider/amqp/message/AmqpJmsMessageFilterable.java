@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.apache.qpid.jms.message.JmsMessageSupport.JMS_DESTINATION;
+import static org.apache.qpid.jms.message.JmsMessageSupport.JMS_REPLYTO;
+
+import javax.jms.JMSException;
+
+import org.apache.qpid.jms.message.JmsMessagePropertyIntercepter;
+import org.apache.qpid.jms.selector.filter.Filterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes an incoming AMQP message to the selector filter classes so that a JMS selector
+ * can be evaluated against it on the client.
+ *
+ * Identifiers that name a JMS header or JMSX property are read through the property
+ * intercepters so that they have the values a selector expects, JMSDeliveryMode for
+ * instance evaluates to 'PERSISTENT' or 'NON_PERSISTENT'.  All other identifiers are
+ * looked up directly in the application properties of the message.
+ */
+public class AmqpJmsMessageFilterable implements Filterable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpJmsMessageFilterable.class);
+
+    private static final String JMS_PREFIX = "JMS";
+
+    private final AmqpJmsMessageFacade message;
+
+    public AmqpJmsMessageFilterable(AmqpJmsMessageFacade message) {
+        this.message = message;
+    }
+
+    @Override
+    public <T> T getBodyAs(Class<T> type) {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        try {
+            if (!name.startsWith(JMS_PREFIX)) {
+                return message.getApplicationProperty(name);
+            }
+
+            // Destinations are not valid selector identifiers.
+            if (JMS_DESTINATION.equals(name) || JMS_REPLYTO.equals(name)) {
+                return null;
+            }
+
+            return JmsMessagePropertyIntercepter.getProperty(message, name);
+        } catch (JMSException ex) {
+            LOG.trace("Could not read property {} for selector evaluation: {}", name, ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Object getLocalConnectionId() {
+        return null;
+    }
+}
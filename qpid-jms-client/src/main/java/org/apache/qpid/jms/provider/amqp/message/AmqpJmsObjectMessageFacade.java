@@ -92,10 +92,12 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
         AmqpJmsObjectMessageFacade copy = new AmqpJmsObjectMessageFacade(connection, isAmqpTypedEncoding());
         copyInto(copy);
 
-        try {
-            copy.setObject(getObject());
-        } catch (Exception e) {
-            throw JmsExceptionSupport.create("Failed to copy object value", e);
+        if (!copyEncodedBodyInto(copy)) {
+            try {
+                copy.setObject(getObject());
+            } catch (Exception e) {
+                throw JmsExceptionSupport.create("Failed to copy object value", e);
+            }
         }
 
         return copy;
@@ -90,7 +90,9 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
     public AmqpJmsTextMessageFacade copy() throws JMSException {
         AmqpJmsTextMessageFacade copy = new AmqpJmsTextMessageFacade(connection);
         copyInto(copy);
-        copy.setText(getText());
+        if (!copyEncodedBodyInto(copy)) {
+            copy.setText(getText());
+        }
         return copy;
     }
 
@@ -108,11 +110,14 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
                 Binary b = data.getValue();
                 ByteBuffer buf = ByteBuffer.wrap(b.getArray(), b.getArrayOffset(), b.getLength());
 
-                try {
-                    CharBuffer chars = decoder.decode(buf);
-                    return String.valueOf(chars);
-                } catch (CharacterCodingException e) {
-                    throw JmsExceptionSupport.create("Cannot decode String in UFT-8", e);
+                // The decoder is stateful and a facade can be shared between messages.
+                synchronized (decoder) {
+                    try {
+                        CharBuffer chars = decoder.decode(buf);
+                        return String.valueOf(chars);
+                    } catch (CharacterCodingException e) {
+                        throw JmsExceptionSupport.create("Cannot decode String in UFT-8", e);
+                    }
                 }
             }
         } else if (body instanceof AmqpValue) {
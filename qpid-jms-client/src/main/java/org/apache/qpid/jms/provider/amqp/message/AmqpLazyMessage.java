@@ -0,0 +1,493 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.DeliveryAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecodeException;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.codec.WritableBuffer;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+
+/**
+ * Proton Message implementation that only decodes the header, annotations and properties
+ * sections of an incoming message up front.  The application-properties, body and footer
+ * sections are held in their encoded form and decoded on first access.  Sections that are
+ * never accessed or modified are written back out as the original bytes when the message
+ * is encoded, and can be handed to another instance without being decoded.
+ *
+ * When none of the sections are held in encoded form this class behaves exactly as the
+ * Proton MessageImpl that it extends.
+ *
+ * The methods that decode or hand off the encoded sections are synchronized, a received
+ * message can be read by the application while the client copies it on another thread.
+ */
+public class AmqpLazyMessage extends MessageImpl {
+
+    private static final long HEADER_CODE = 0x70L;
+    private static final long DELIVERY_ANNOTATIONS_CODE = 0x71L;
+    private static final long MESSAGE_ANNOTATIONS_CODE = 0x72L;
+    private static final long PROPERTIES_CODE = 0x73L;
+    private static final long APPLICATION_PROPERTIES_CODE = 0x74L;
+    private static final long DATA_CODE = 0x75L;
+    private static final long AMQP_SEQUENCE_CODE = 0x76L;
+    private static final long AMQP_VALUE_CODE = 0x77L;
+    private static final long FOOTER_CODE = 0x78L;
+
+    private static final byte DESCRIBED_TYPE_CONSTRUCTOR = 0x00;
+    private static final byte SMALL_ULONG_CONSTRUCTOR = 0x53;
+    private static final byte ULONG_CONSTRUCTOR = (byte) 0x80;
+    private static final byte SYM8_CONSTRUCTOR = (byte) 0xa3;
+    private static final byte SYM32_CONSTRUCTOR = (byte) 0xb3;
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final Map<String, Long> SECTION_SYMBOLS = new HashMap<String, Long>();
+
+    static {
+        SECTION_SYMBOLS.put("amqp:header:list", HEADER_CODE);
+        SECTION_SYMBOLS.put("amqp:delivery-annotations:map", DELIVERY_ANNOTATIONS_CODE);
+        SECTION_SYMBOLS.put("amqp:message-annotations:map", MESSAGE_ANNOTATIONS_CODE);
+        SECTION_SYMBOLS.put("amqp:properties:list", PROPERTIES_CODE);
+        SECTION_SYMBOLS.put("amqp:application-properties:map", APPLICATION_PROPERTIES_CODE);
+        SECTION_SYMBOLS.put("amqp:data:binary", DATA_CODE);
+        SECTION_SYMBOLS.put("amqp:amqp-sequence:list", AMQP_SEQUENCE_CODE);
+        SECTION_SYMBOLS.put("amqp:value:*", AMQP_VALUE_CODE);
+        SECTION_SYMBOLS.put("amqp:footer:map", FOOTER_CODE);
+    }
+
+    private static final ThreadLocal<Codec> CODEC = new ThreadLocal<Codec>() {
+
+        @Override
+        protected Codec initialValue() {
+            return new Codec();
+        }
+    };
+
+    private Binary encodedApplicationProperties;
+    private Binary encodedBody;
+    private Binary encodedFooter;
+
+    /**
+     * Creates an empty message, the client only creates these when lazy decoding is enabled.
+     */
+    // Proton deprecates this constructor in favor of its message factory, which cannot create
+    // a subclass, and offers no other way to extend MessageImpl.
+    @SuppressWarnings("deprecation")
+    public AmqpLazyMessage() {
+        super();
+    }
+
+    @Override
+    public synchronized ApplicationProperties getApplicationProperties() {
+        if (encodedApplicationProperties != null) {
+            super.setApplicationProperties((ApplicationProperties) decodeSection(encodedApplicationProperties));
+            encodedApplicationProperties = null;
+        }
+
+        return super.getApplicationProperties();
+    }
+
+    @Override
+    public synchronized void setApplicationProperties(ApplicationProperties applicationProperties) {
+        encodedApplicationProperties = null;
+        super.setApplicationProperties(applicationProperties);
+    }
+
+    @Override
+    public synchronized Section getBody() {
+        if (encodedBody != null) {
+            super.setBody(decodeSection(encodedBody));
+            encodedBody = null;
+        }
+
+        return super.getBody();
+    }
+
+    @Override
+    public synchronized void setBody(Section body) {
+        encodedBody = null;
+        super.setBody(body);
+    }
+
+    @Override
+    public synchronized Footer getFooter() {
+        if (encodedFooter != null) {
+            super.setFooter((Footer) decodeSection(encodedFooter));
+            encodedFooter = null;
+        }
+
+        return super.getFooter();
+    }
+
+    @Override
+    public synchronized void setFooter(Footer footer) {
+        encodedFooter = null;
+        super.setFooter(footer);
+    }
+
+    @Override
+    public synchronized void clear() {
+        encodedApplicationProperties = null;
+        encodedBody = null;
+        encodedFooter = null;
+        super.clear();
+    }
+
+    /**
+     * @return true if the application-properties section has not been decoded yet.
+     */
+    public synchronized boolean isApplicationPropertiesEncoded() {
+        return encodedApplicationProperties != null;
+    }
+
+    /**
+     * @return true if the body section has not been decoded yet.
+     */
+    public synchronized boolean isBodyEncoded() {
+        return encodedBody != null;
+    }
+
+    /**
+     * Gives the target message the encoded application-properties of this message if they
+     * have not yet been decoded, the target will decode its own copy when it is accessed.
+     *
+     * @param target
+     *        the message whose application-properties are to be replaced.
+     *
+     * @return true if the encoded section was copied, false if there was nothing to copy.
+     */
+    public synchronized boolean copyEncodedApplicationPropertiesInto(AmqpLazyMessage target) {
+        if (encodedApplicationProperties == null) {
+            return false;
+        }
+
+        target.setApplicationProperties(null);
+        target.encodedApplicationProperties = encodedApplicationProperties;
+        return true;
+    }
+
+    /**
+     * Gives the target message the encoded body of this message if it has not yet been
+     * decoded, the target will decode its own copy when it is accessed.
+     *
+     * @param target
+     *        the message whose body is to be replaced.
+     *
+     * @return true if the encoded section was copied, false if there was nothing to copy.
+     */
+    public synchronized boolean copyEncodedBodyInto(AmqpLazyMessage target) {
+        if (encodedBody == null) {
+            return false;
+        }
+
+        target.setBody(null);
+        target.encodedBody = encodedBody;
+        return true;
+    }
+
+    @Override
+    public synchronized int decode(byte[] data, int offset, int length) {
+        clear();
+
+        try {
+            if (decodeSections(data, offset, length)) {
+                return length;
+            }
+        } catch (RuntimeException e) {
+            // Fall through and let the full decode report the problem.
+        }
+
+        clear();
+        return super.decode(data, offset, length);
+    }
+
+    @Override
+    public synchronized int encode(WritableBuffer buffer) {
+        if (encodedApplicationProperties == null && encodedBody == null && encodedFooter == null) {
+            return super.encode(buffer);
+        }
+
+        int length = buffer.remaining();
+        EncoderImpl encoder = CODEC.get().encoder;
+        encoder.setByteBuffer(buffer);
+
+        try {
+            writeSection(encoder, getHeader());
+            writeSection(encoder, getDeliveryAnnotations());
+            writeSection(encoder, getMessageAnnotations());
+            writeSection(encoder, getProperties());
+
+            if (encodedApplicationProperties != null) {
+                writeEncoded(buffer, encodedApplicationProperties);
+            } else {
+                writeSection(encoder, super.getApplicationProperties());
+            }
+
+            if (encodedBody != null) {
+                writeEncoded(buffer, encodedBody);
+            } else {
+                writeSection(encoder, super.getBody());
+            }
+
+            if (encodedFooter != null) {
+                writeEncoded(buffer, encodedFooter);
+            } else {
+                writeSection(encoder, super.getFooter());
+            }
+        } finally {
+            encoder.setByteBuffer((WritableBuffer) null);
+        }
+
+        return length - buffer.remaining();
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    /*
+     * Decodes the leading sections and records where the lazily decoded ones are.  Returns
+     * false if the message uses an encoding this scanner does not handle, in which case the
+     * caller falls back to a full decode.
+     */
+    private boolean decodeSections(byte[] data, int offset, int length) {
+        ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+        DecoderImpl decoder = CODEC.get().decoder;
+        decoder.setByteBuffer(buffer);
+
+        int lazyStart = -1;
+        int applicationPropertiesStart = -1, applicationPropertiesEnd = -1;
+        int bodyStart = -1, bodyEnd = -1;
+        int footerStart = -1, footerEnd = -1;
+
+        try {
+            while (buffer.hasRemaining()) {
+                int start = buffer.position();
+                long code = peekSectionCode(buffer);
+
+                if (code == HEADER_CODE || code == DELIVERY_ANNOTATIONS_CODE ||
+                    code == MESSAGE_ANNOTATIONS_CODE || code == PROPERTIES_CODE) {
+
+                    if (lazyStart >= 0) {
+                        return false;
+                    }
+
+                    Object section = decoder.readObject();
+                    if (section instanceof Header) {
+                        setHeader((Header) section);
+                    } else if (section instanceof DeliveryAnnotations) {
+                        setDeliveryAnnotations((DeliveryAnnotations) section);
+                    } else if (section instanceof MessageAnnotations) {
+                        setMessageAnnotations((MessageAnnotations) section);
+                    } else if (section instanceof Properties) {
+                        setProperties((Properties) section);
+                    } else {
+                        return false;
+                    }
+                } else if (code == APPLICATION_PROPERTIES_CODE) {
+                    if (bodyStart >= 0 || footerStart >= 0 || applicationPropertiesStart >= 0) {
+                        return false;
+                    }
+
+                    skipValue(buffer);
+                    applicationPropertiesStart = start;
+                    applicationPropertiesEnd = buffer.position();
+                } else if (code == DATA_CODE || code == AMQP_SEQUENCE_CODE || code == AMQP_VALUE_CODE) {
+                    if (bodyStart >= 0 || footerStart >= 0) {
+                        return false;
+                    }
+
+                    skipValue(buffer);
+                    bodyStart = start;
+                    bodyEnd = buffer.position();
+                } else if (code == FOOTER_CODE) {
+                    if (footerStart >= 0) {
+                        return false;
+                    }
+
+                    skipValue(buffer);
+                    footerStart = start;
+                    footerEnd = buffer.position();
+                } else {
+                    return false;
+                }
+
+                if (lazyStart < 0 && (applicationPropertiesStart >= 0 || bodyStart >= 0 || footerStart >= 0)) {
+                    lazyStart = start;
+                }
+            }
+        } finally {
+            decoder.setByteBuffer(null);
+        }
+
+        if (lazyStart >= 0) {
+            // Take a copy as the caller is free to reuse the array once decode returns.
+            byte[] encoded = Arrays.copyOfRange(data, lazyStart, offset + length);
+
+            if (applicationPropertiesStart >= 0) {
+                encodedApplicationProperties = slice(encoded, lazyStart, applicationPropertiesStart, applicationPropertiesEnd);
+            }
+            if (bodyStart >= 0) {
+                encodedBody = slice(encoded, lazyStart, bodyStart, bodyEnd);
+            }
+            if (footerStart >= 0) {
+                encodedFooter = slice(encoded, lazyStart, footerStart, footerEnd);
+            }
+        }
+
+        return true;
+    }
+
+    private static Binary slice(byte[] encoded, int base, int start, int end) {
+        return new Binary(encoded, start - base, end - start);
+    }
+
+    private static Section decodeSection(Binary encoded) {
+        DecoderImpl decoder = CODEC.get().decoder;
+        decoder.setByteBuffer(ByteBuffer.wrap(encoded.getArray(), encoded.getArrayOffset(), encoded.getLength()));
+        try {
+            return (Section) decoder.readObject();
+        } finally {
+            decoder.setByteBuffer(null);
+        }
+    }
+
+    private static void writeSection(EncoderImpl encoder, Section section) {
+        if (section != null) {
+            encoder.writeObject(section);
+        }
+    }
+
+    private static void writeEncoded(WritableBuffer buffer, Binary encoded) {
+        buffer.put(encoded.getArray(), encoded.getArrayOffset(), encoded.getLength());
+    }
+
+    /*
+     * Returns the numeric descriptor code of the section at the current position without
+     * moving it, or -1 if the section descriptor is not one this class recognizes.
+     */
+    private static long peekSectionCode(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.remaining() < 3 || buffer.get(position) != DESCRIBED_TYPE_CONSTRUCTOR) {
+            return -1;
+        }
+
+        byte constructor = buffer.get(position + 1);
+        if (constructor == SMALL_ULONG_CONSTRUCTOR) {
+            return buffer.get(position + 2) & 0xFF;
+        } else if (constructor == ULONG_CONSTRUCTOR && buffer.remaining() >= 10) {
+            return buffer.getLong(position + 2);
+        } else if (constructor == SYM8_CONSTRUCTOR || constructor == SYM32_CONSTRUCTOR) {
+            int length;
+            int start;
+            if (constructor == SYM8_CONSTRUCTOR) {
+                length = buffer.get(position + 2) & 0xFF;
+                start = position + 3;
+            } else if (buffer.remaining() >= 6) {
+                length = buffer.getInt(position + 2);
+                start = position + 6;
+            } else {
+                return -1;
+            }
+
+            if (length < 0 || start + length > buffer.limit()) {
+                return -1;
+            }
+
+            String symbol = new String(buffer.array(), buffer.arrayOffset() + start, length, ASCII);
+            Long code = SECTION_SYMBOLS.get(symbol);
+            return code != null ? code : -1;
+        }
+
+        return -1;
+    }
+
+    /*
+     * Moves past the encoded value at the current position using only the size
+     * information carried by its constructor.
+     */
+    private static void skipValue(ByteBuffer buffer) {
+        int constructor = buffer.get() & 0xFF;
+        if (constructor == DESCRIBED_TYPE_CONSTRUCTOR) {
+            skipValue(buffer);
+            skipValue(buffer);
+            return;
+        }
+
+        int size;
+        switch (constructor >>> 4) {
+            case 0x4:
+                size = 0;
+                break;
+            case 0x5:
+                size = 1;
+                break;
+            case 0x6:
+                size = 2;
+                break;
+            case 0x7:
+                size = 4;
+                break;
+            case 0x8:
+                size = 8;
+                break;
+            case 0x9:
+                size = 16;
+                break;
+            case 0xA:
+            case 0xC:
+            case 0xE:
+                size = buffer.get() & 0xFF;
+                break;
+            case 0xB:
+            case 0xD:
+            case 0xF:
+                size = buffer.getInt();
+                break;
+            default:
+                throw new DecodeException("Unknown constructor: 0x" + Integer.toHexString(constructor));
+        }
+
+        if (size < 0 || size > buffer.remaining()) {
+            throw new DecodeException("Encoded value size exceeds the available bytes");
+        }
+
+        buffer.position(buffer.position() + size);
+    }
+
+    private static class Codec {
+
+        private final DecoderImpl decoder = new DecoderImpl();
+        private final EncoderImpl encoder = new EncoderImpl(decoder);
+
+        public Codec() {
+            AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+        }
+    }
+}
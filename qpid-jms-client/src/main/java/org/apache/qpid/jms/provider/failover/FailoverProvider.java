@@ -22,9 +22,9 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,6 +33,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import javax.jms.JMSException;
 
+import org.apache.qpid.jms.exceptions.JmsOperationTimedOutException;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsMessageFactory;
 import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
@@ -49,6 +50,7 @@ import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.jms.util.ThreadPoolUtils;
+import org.apache.qpid.jms.util.TimerWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,11 +75,14 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     public static final double DEFAULT_RECONNECT_BACKOFF_MULTIPLIER = 2.0d;
     public static final int DEFAULT_WARN_AFTER_RECONNECT_ATTEMPTS = 10;
 
+    private static final long TIMEOUT_TICK = 10;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+
     private ProviderListener listener;
     private Provider provider;
     private final FailoverUriPool uris;
 
-    private final ExecutorService serializer;
+    private final ScheduledExecutorService serializer;
     private final ScheduledExecutorService connectionHub;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicBoolean failed = new AtomicBoolean();
@@ -85,6 +90,8 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     private final Map<Long, FailoverRequest> requests = new LinkedHashMap<Long, FailoverRequest>();
     private final DefaultProviderListener closedListener = new DefaultProviderListener();
     private final AtomicReference<JmsMessageFactory> messageFactory = new AtomicReference<JmsMessageFactory>();
+    private final TimerWheel timeouts = new TimerWheel(TIMEOUT_TICK, TimeUnit.MILLISECONDS, TIMEOUT_WHEEL_SIZE);
+    private ScheduledFuture<?> timeoutTicker;
 
     // Current state of connection / reconnection
     private boolean firstConnection = true;
@@ -306,19 +313,73 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     @Override
     public void send(final JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException {
         checkClosed();
-        final FailoverRequest pending = new FailoverRequest(request) {
+        serializer.execute(createSendRequest(envelope, request));
+    }
+
+    @Override
+    public void send(List<JmsOutboundMessageDispatch> envelopes, List<AsyncResult> sendRequests) throws IOException, JMSException {
+        checkClosed();
+
+        // Each send stays its own request so that only those not yet settled are replayed
+        // on their own after a reconnect, while connected they go down as one batch.
+        final List<JmsOutboundMessageDispatch> batch = new ArrayList<JmsOutboundMessageDispatch>(envelopes);
+        final List<FailoverRequest> pending = new ArrayList<FailoverRequest>(envelopes.size());
+        for (int i = 0; i < envelopes.size(); ++i) {
+            pending.add(createSendRequest(envelopes.get(i), sendRequests.get(i)));
+        }
+
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (provider == null) {
+                    for (FailoverRequest request : pending) {
+                        request.run();
+                    }
+                    return;
+                }
+
+                for (FailoverRequest request : pending) {
+                    requests.put(request.id, request);
+                    request.cancelTimeout();
+                }
+
+                try {
+                    LOG.debug("Executing Failover Task: batch send -> {} messages", batch.size());
+                    provider.send(batch, new ArrayList<AsyncResult>(pending));
+                } catch (JMSException jmsEx) {
+                    for (FailoverRequest request : pending) {
+                        requests.remove(request.id);
+                        request.getWrappedRequest().onFailure(jmsEx);
+                    }
+                } catch (Throwable e) {
+                    LOG.debug("Caught exception while executing batch send - {}", e.getMessage());
+                    for (FailoverRequest request : pending) {
+                        request.whenOffline(IOExceptionSupport.create(e));
+                    }
+                    handleProviderFailure(IOExceptionSupport.create(e));
+                }
+            }
+        });
+    }
+
+    private FailoverRequest createSendRequest(final JmsOutboundMessageDispatch envelope, AsyncResult request) {
+        return new FailoverRequest(request) {
             @Override
             public void doTask() throws Exception {
                 provider.send(envelope, this);
             }
 
+            @Override
+            public long getTimeout() {
+                return getSendTimeout();
+            }
+
             @Override
             public String toString() {
                 return "send -> " + envelope;
             }
         };
-
-        serializer.execute(pending);
     }
 
     @Override
@@ -369,6 +430,30 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         serializer.execute(pending);
     }
 
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        final FailoverRequest pending = new FailoverRequest(request) {
+            @Override
+            public void doTask() throws Exception {
+                provider.acknowledge(envelopes, ackType, this);
+            }
+
+            @Override
+            public boolean succeedsWhenOffline() {
+                // Allow this to succeed, acks would be stale.
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return "batch acknowledge -> " + envelopes.size() + " messages ackType: " + ackType;
+            }
+        };
+
+        serializer.execute(pending);
+    }
+
     @Override
     public void commit(final JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         checkClosed();
@@ -873,6 +958,28 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
 
     //--------------- FailoverProvider Asynchronous Request --------------------//
 
+    /*
+     * Must be called from the serializer, the ticker only runs while requests are held.
+     */
+    private TimerWheel.Timeout scheduleTimeout(Runnable task, long delay) {
+        TimerWheel.Timeout timeout = timeouts.schedule(task, delay, TimeUnit.MILLISECONDS);
+        if (timeoutTicker == null) {
+            timeoutTicker = serializer.scheduleAtFixedRate(new Runnable() {
+
+                @Override
+                public void run() {
+                    timeouts.expireTimeouts();
+                    if (timeouts.isEmpty() || closed.get()) {
+                        timeoutTicker.cancel(false);
+                        timeoutTicker = null;
+                    }
+                }
+            }, TIMEOUT_TICK, TIMEOUT_TICK, TimeUnit.MILLISECONDS);
+        }
+
+        return timeout;
+    }
+
     /**
      * For all requests that are dispatched from the FailoverProvider to a connected
      * Provider instance an instance of FailoverRequest is used to handle errors that
@@ -881,6 +988,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     protected abstract class FailoverRequest extends ProviderFuture implements Runnable {
 
         private final long id = requestId.incrementAndGet();
+        private TimerWheel.Timeout timeout;
 
         public FailoverRequest(AsyncResult watcher) {
             super(watcher);
@@ -892,6 +1000,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
             if (provider == null) {
                 whenOffline(IOExceptionSupport.create(new IOException("Connection failed.")));
             } else {
+                cancelTimeout();
                 try {
                     LOG.debug("Executing Failover Task: {}", this);
                     doTask();
@@ -911,7 +1020,12 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
 
         @Override
         public void onFailure(final Throwable result) {
-            if (closed.get() || failed.get()) {
+            if (isComplete()) {
+                return;
+            }
+
+            // A timeout is an answer for this request alone, not a sign the connection failed.
+            if (closed.get() || failed.get() || result instanceof JmsOperationTimedOutException) {
                 requests.remove(id);
                 super.onFailure(result);
             } else {
@@ -927,6 +1041,10 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
 
         @Override
         public void onSuccess() {
+            if (isComplete()) {
+                return;
+            }
+
             requests.remove(id);
             super.onSuccess();
         }
@@ -956,6 +1074,16 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
             return false;
         }
 
+        /**
+         * The time a request held while there is no connection may wait before it fails,
+         * the connected Provider enforces its own timeouts once the request reaches it.
+         *
+         * @return the timeout in milliseconds, zero or less to wait until reconnected.
+         */
+        public long getTimeout() {
+            return getRequestTimeout();
+        }
+
         private void whenOffline(IOException error) {
             if (failureWhenOffline()) {
                 requests.remove(id);
@@ -964,6 +1092,36 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                 onSuccess();
             } else {
                 LOG.trace("Task {} held until connection recovered:", this);
+                startTimeout();
+            }
+        }
+
+        // Requests can complete on the connected Provider's thread so the timeout is not
+        // cancelled on completion, an expiry after that simply finds the request complete.
+        // It is cancelled when the request is handed to a connected Provider, which then
+        // enforces its own timeouts.
+        private void startTimeout() {
+            final long delay = getTimeout();
+            if (timeout != null || delay <= 0) {
+                return;
+            }
+
+            timeout = scheduleTimeout(new Runnable() {
+
+                @Override
+                public void run() {
+                    timeout = null;
+                    LOG.debug("Task {} timed out waiting for the connection to recover", FailoverRequest.this);
+                    onFailure(new JmsOperationTimedOutException(
+                        "Timed out after " + delay + " ms waiting for the connection to recover"));
+                }
+            }, delay);
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
             }
         }
     }
@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import java.io.StringReader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.parser.SelectorParserImpl;
+
+/**
+ * A thread safe cache of parsed selectors keyed by the selector string.
+ *
+ * The cache is bounded both by the number of selectors it holds and by their total
+ * weight, the weight of a selector being the length of its text.  When either bound
+ * is exceeded the least recently used selectors are evicted.  Lookups of cached
+ * selectors do not take any lock.  Selectors that fail to parse are not cached.
+ *
+ * Along with the parsed expression the cache holds the form produced by the
+ * {@link SelectorCompiler}, created on first use, so that both selector validation
+ * and client side evaluation share the one cache.
+ */
+public class SelectorCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100;
+    public static final long DEFAULT_MAX_WEIGHT = 64 * 1024;
+
+    private final ConcurrentMap<String, CacheEntry> entries = new ConcurrentHashMap<String, CacheEntry>();
+    private final Object evictionLock = new Object();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile int maxEntries;
+    private volatile long maxWeight;
+
+    public SelectorCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    public SelectorCache(int maxEntries, long maxWeight) {
+        setMaxEntries(maxEntries);
+        setMaxWeight(maxWeight);
+    }
+
+    /**
+     * Returns the parsed form of the given selector, parsing it if not already cached.
+     *
+     * @param selector
+     *        the selector string to parse.
+     *
+     * @return the parsed selector expression.
+     *
+     * @throws FilterException if the selector string is invalid.
+     */
+    public BooleanExpression parse(String selector) throws FilterException {
+        return lookup(selector).parsed;
+    }
+
+    /**
+     * Returns the compiled form of the given selector, parsing and compiling it if
+     * not already cached.
+     *
+     * @param selector
+     *        the selector string to compile.
+     *
+     * @return the compiled selector expression.
+     *
+     * @throws FilterException if the selector string is invalid.
+     */
+    public BooleanExpression compile(String selector) throws FilterException {
+        CacheEntry entry = lookup(selector);
+        BooleanExpression compiled = entry.compiled;
+        if (compiled == null) {
+            // Racing threads may each compile, the results are equivalent.
+            compiled = SelectorCompiler.compile(entry.parsed);
+            entry.compiled = compiled;
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Removes all selectors from the cache, the hit, miss and eviction counts are retained.
+     */
+    public void clear() {
+        for (CacheEntry entry : entries.values()) {
+            if (entries.remove(entry.selector, entry)) {
+                weight.addAndGet(-entry.weight);
+            }
+        }
+    }
+
+    /**
+     * @return the number of selectors currently held in the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total weight of the selectors currently held in the cache.
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * @return the number of lookups that found the selector already in the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that required the selector to be parsed.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of selectors removed to keep the cache within its bounds.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of selectors held in the cache, a value of zero
+     * disables caching.  Reducing the value evicts selectors as needed.
+     *
+     * @param maxEntries
+     *        the maximum number of cached selectors.
+     */
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Maximum cache entries cannot be negative: " + maxEntries);
+        }
+
+        this.maxEntries = maxEntries;
+        evictIfNeeded();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the maximum total length of the selector strings held in the cache.
+     * Selectors longer than this value are never cached.  Reducing the value evicts
+     * selectors as needed.
+     *
+     * @param maxWeight
+     *        the maximum total weight of cached selectors.
+     */
+    public void setMaxWeight(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum cache weight cannot be negative: " + maxWeight);
+        }
+
+        this.maxWeight = maxWeight;
+        evictIfNeeded();
+    }
+
+    @Override
+    public String toString() {
+        return "SelectorCache { size = " + size() + ", weight = " + getWeight() +
+               ", hits = " + getHitCount() + ", misses = " + getMissCount() +
+               ", evictions = " + getEvictionCount() + " }";
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private CacheEntry lookup(String selector) throws FilterException {
+        CacheEntry entry = entries.get(selector);
+        if (entry != null) {
+            hits.incrementAndGet();
+            entry.lastAccess = clock.incrementAndGet();
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        entry = new CacheEntry(selector, doParse(selector), clock.incrementAndGet());
+
+        if (entry.weight <= maxWeight && maxEntries > 0) {
+            CacheEntry existing = entries.putIfAbsent(selector, entry);
+            if (existing != null) {
+                return existing;
+            }
+
+            weight.addAndGet(entry.weight);
+            evictIfNeeded();
+        }
+
+        return entry;
+    }
+
+    private boolean isOverBounds() {
+        return entries.size() > maxEntries || weight.get() > maxWeight;
+    }
+
+    private void evictIfNeeded() {
+        if (!isOverBounds()) {
+            return;
+        }
+
+        synchronized (evictionLock) {
+            while (isOverBounds()) {
+                CacheEntry eldest = null;
+                for (CacheEntry candidate : entries.values()) {
+                    if (eldest == null || candidate.lastAccess < eldest.lastAccess) {
+                        eldest = candidate;
+                    }
+                }
+
+                if (eldest == null) {
+                    break;
+                }
+
+                if (entries.remove(eldest.selector, eldest)) {
+                    weight.addAndGet(-eldest.weight);
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static BooleanExpression doParse(String selector) throws FilterException {
+        try {
+            SelectorParserImpl parser = new SelectorParserImpl(new StringReader(selector));
+            return parser.JmsSelector();
+        } catch (Throwable e) {
+            throw new FilterException(selector, e);
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final String selector;
+        private final BooleanExpression parsed;
+        private final long weight;
+
+        private volatile BooleanExpression compiled;
+        private volatile long lastAccess;
+
+        public CacheEntry(String selector, BooleanExpression parsed, long lastAccess) {
+            this.selector = selector;
+            this.parsed = parsed;
+            this.weight = selector.length();
+            this.lastAccess = lastAccess;
+        }
+    }
+}
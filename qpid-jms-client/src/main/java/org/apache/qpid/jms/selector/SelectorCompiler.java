@@ -0,0 +1,466 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import org.apache.qpid.jms.selector.filter.ArithmeticExpression;
+import org.apache.qpid.jms.selector.filter.BinaryExpression;
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.ComparisonExpression;
+import org.apache.qpid.jms.selector.filter.ConstantExpression;
+import org.apache.qpid.jms.selector.filter.Expression;
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.filter.Filterable;
+import org.apache.qpid.jms.selector.filter.LogicExpression;
+import org.apache.qpid.jms.selector.filter.PropertyExpression;
+import org.apache.qpid.jms.selector.filter.UnaryExpression;
+
+/**
+ * Rewrites a parsed selector into an equivalent expression tree that is cheaper to
+ * evaluate against each message.
+ *
+ * The compiled tree folds sub-expressions that do not reference any message property
+ * into constants, replaces comparisons between a property and a numeric or string
+ * literal with type specialised comparisons that avoid the generic widening done by
+ * {@link ComparisonExpression}, and orders the operands of AND and OR so that the
+ * cheaper side is evaluated first and can short-circuit the more expensive one.
+ *
+ * The parsed expression passed in is never modified, so trees shared through the
+ * {@link SelectorParser} cache remain valid.
+ */
+public class SelectorCompiler {
+
+    private static final int UNSAFE = Integer.MAX_VALUE;
+
+    /**
+     * Compiles the given parsed selector.
+     *
+     * @param selector
+     *        the expression returned from {@link SelectorParser#parse(String)}.
+     *
+     * @return an expression giving the same {@link BooleanExpression#matches(Filterable)}
+     *         result as the given selector for every message.
+     */
+    public static BooleanExpression compile(BooleanExpression selector) {
+        return (BooleanExpression) compile(selector, true);
+    }
+
+    /**
+     * Parses and then compiles the given selector string, the result is held in the
+     * {@link SelectorParser} cache along with the parsed form.
+     *
+     * @param selector
+     *        the selector string to parse and compile.
+     *
+     * @return the compiled selector expression.
+     *
+     * @throws FilterException if the selector string is invalid.
+     */
+    public static BooleanExpression compile(String selector) throws FilterException {
+        return SelectorParser.getCache().compile(selector);
+    }
+
+    /*
+     * When matchOnly is true the caller only cares whether the result is TRUE, so a null
+     * and a FALSE result are interchangeable.  That holds for the root of the selector and
+     * for the operands of an AND or OR beneath it, which is what makes reordering those
+     * operands safe, it does not hold beneath a NOT.
+     */
+    private static Expression compile(Expression expression, boolean matchOnly) {
+        if (expression instanceof ConstantExpression || expression instanceof PropertyExpression) {
+            return expression;
+        }
+
+        if (isConstant(expression)) {
+            return fold(expression);
+        }
+
+        Expression result = expression;
+
+        if (expression instanceof LogicExpression) {
+            result = compileLogic((LogicExpression) expression, matchOnly);
+        } else if (expression instanceof ComparisonExpression) {
+            result = compileComparison((ComparisonExpression) expression);
+        } else if (expression instanceof ArithmeticExpression) {
+            result = compileArithmetic((ArithmeticExpression) expression);
+        } else if (expression instanceof UnaryExpression && expression instanceof BooleanExpression) {
+            result = compileUnary((UnaryExpression) expression);
+        }
+
+        return isConstant(result) ? fold(result) : result;
+    }
+
+    private static Expression compileLogic(LogicExpression expression, boolean matchOnly) {
+        boolean and = "AND".equals(expression.getExpressionSymbol());
+
+        BooleanExpression left = (BooleanExpression) compile(expression.getLeft(), matchOnly);
+        BooleanExpression right = (BooleanExpression) compile(expression.getRight(), matchOnly);
+
+        // Mirror the short-circuit rules of LogicExpression for a constant left operand.
+        if (left instanceof ConstantExpression) {
+            Object value = ((ConstantExpression) left).getValue();
+            if (and) {
+                return Boolean.TRUE.equals(value) ? right : left;
+            } else {
+                return Boolean.TRUE.equals(value) ? left : right;
+            }
+        }
+
+        if (matchOnly) {
+            int leftCost = cost(left);
+            int rightCost = cost(right);
+            if (leftCost != UNSAFE && rightCost < leftCost) {
+                BooleanExpression swap = left;
+                left = right;
+                right = swap;
+            }
+        }
+
+        if (left == expression.getLeft() && right == expression.getRight()) {
+            return expression;
+        }
+
+        return and ? LogicExpression.createAND(left, right) : LogicExpression.createOR(left, right);
+    }
+
+    private static Expression compileComparison(ComparisonExpression expression) {
+        String symbol = expression.getExpressionSymbol();
+        Expression left = compile(expression.getLeft(), false);
+        Expression right = compile(expression.getRight(), false);
+
+        if (left instanceof PropertyExpression && right instanceof ConstantExpression) {
+            Expression specialised = specialise((PropertyExpression) left, symbol, ((ConstantExpression) right).getValue());
+            if (specialised != null) {
+                return specialised;
+            }
+        } else if (left instanceof ConstantExpression && right instanceof PropertyExpression) {
+            Expression specialised = specialise((PropertyExpression) right, mirror(symbol), ((ConstantExpression) left).getValue());
+            if (specialised != null) {
+                return specialised;
+            }
+        }
+
+        if (left == expression.getLeft() && right == expression.getRight()) {
+            return expression;
+        }
+
+        try {
+            if ("=".equals(symbol)) {
+                return ComparisonExpression.createEqual(left, right);
+            } else if (">".equals(symbol)) {
+                return ComparisonExpression.createGreaterThan(left, right);
+            } else if (">=".equals(symbol)) {
+                return ComparisonExpression.createGreaterThanEqual(left, right);
+            } else if ("<".equals(symbol)) {
+                return ComparisonExpression.createLessThan(left, right);
+            } else if ("<=".equals(symbol)) {
+                return ComparisonExpression.createLessThanEqual(left, right);
+            }
+        } catch (RuntimeException e) {
+            // The folded operands fail the parse time checks, leave it to fail at evaluation.
+        }
+
+        return expression;
+    }
+
+    private static Expression compileArithmetic(ArithmeticExpression expression) {
+        String symbol = expression.getExpressionSymbol();
+        Expression left = compile(expression.getLeft(), false);
+        Expression right = compile(expression.getRight(), false);
+
+        if (left == expression.getLeft() && right == expression.getRight()) {
+            return expression;
+        }
+
+        if ("+".equals(symbol)) {
+            return ArithmeticExpression.createPlus(left, right);
+        } else if ("-".equals(symbol)) {
+            return ArithmeticExpression.createMinus(left, right);
+        } else if ("*".equals(symbol)) {
+            return ArithmeticExpression.createMultiply(left, right);
+        } else if ("/".equals(symbol)) {
+            return ArithmeticExpression.createDivide(left, right);
+        } else if ("%".equals(symbol)) {
+            return ArithmeticExpression.createMod(left, right);
+        }
+
+        return expression;
+    }
+
+    private static Expression compileUnary(UnaryExpression expression) {
+        String symbol = expression.getExpressionSymbol();
+        Expression right = compile(expression.getRight(), false);
+
+        if (right == expression.getRight()) {
+            return expression;
+        }
+
+        if ("NOT".equals(symbol)) {
+            return UnaryExpression.createNOT((BooleanExpression) right);
+        } else if ("".equals(symbol)) {
+            return UnaryExpression.createBooleanCast(right);
+        }
+
+        return expression;
+    }
+
+    private static Expression specialise(PropertyExpression property, String symbol, Object constant) {
+        if (constant instanceof String) {
+            return "=".equals(symbol) ? new StringEquals(property, (String) constant) : null;
+        }
+
+        Class<?> type = constant == null ? null : constant.getClass();
+        if (type == Integer.class || type == Long.class || type == Double.class) {
+            int operator = operator(symbol);
+            if (operator != 0) {
+                return new NumericComparison(property, (Number) constant, operator);
+            }
+        }
+
+        return null;
+    }
+
+    //----- Constant folding -------------------------------------------------//
+
+    private static boolean isConstant(Expression expression) {
+        if (expression instanceof ConstantExpression) {
+            return true;
+        } else if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            return isConstant(binary.getLeft()) && isConstant(binary.getRight());
+        } else if (expression instanceof UnaryExpression) {
+            return isConstant(((UnaryExpression) expression).getRight());
+        }
+
+        return false;
+    }
+
+    private static Expression fold(Expression expression) {
+        if (expression instanceof ConstantExpression) {
+            return expression;
+        }
+
+        Object value;
+        try {
+            value = expression.evaluate(null);
+        } catch (Exception e) {
+            // Leave it to fail in the same way when evaluated against a message.
+            return expression;
+        }
+
+        if (expression instanceof BooleanExpression) {
+            if (value == null) {
+                return ConstantExpression.NULL;
+            } else if (Boolean.TRUE.equals(value)) {
+                return ConstantExpression.TRUE;
+            } else if (Boolean.FALSE.equals(value)) {
+                return ConstantExpression.FALSE;
+            }
+
+            return expression;
+        }
+
+        return new ConstantExpression(value);
+    }
+
+    //----- Operand ordering -------------------------------------------------//
+
+    /*
+     * Rough relative cost of evaluating an expression, or UNSAFE if evaluating it could
+     * throw in a way that skipping it through a short-circuit would otherwise avoid, in
+     * which case it is never moved ahead of the operand that guards it.
+     */
+    private static int cost(Expression expression) {
+        if (expression instanceof ConstantExpression) {
+            return 0;
+        } else if (expression instanceof PropertyExpression) {
+            return 1;
+        } else if (expression instanceof StringEquals || expression instanceof NumericComparison) {
+            return 2;
+        } else if (expression instanceof LogicExpression || expression instanceof ComparisonExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            return add(add(cost(binary.getLeft()), cost(binary.getRight())), 2);
+        } else if (expression instanceof UnaryExpression && expression instanceof BooleanExpression) {
+            UnaryExpression unary = (UnaryExpression) expression;
+            String symbol = unary.getExpressionSymbol();
+            if ("LIKE".equals(symbol)) {
+                return add(cost(unary.getRight()), 8);
+            } else if ("IN".equals(symbol) || "NOT IN".equals(symbol)) {
+                return add(cost(unary.getRight()), 3);
+            } else {
+                return add(cost(unary.getRight()), 1);
+            }
+        }
+
+        return UNSAFE;
+    }
+
+    private static int add(int cost, int extra) {
+        return cost == UNSAFE || extra == UNSAFE ? UNSAFE : cost + extra;
+    }
+
+    //----- Specialised comparisons ------------------------------------------//
+
+    private static final int EQUAL = 1;
+    private static final int GREATER_THAN = 2;
+    private static final int GREATER_THAN_EQUAL = 3;
+    private static final int LESS_THAN = 4;
+    private static final int LESS_THAN_EQUAL = 5;
+
+    private static int operator(String symbol) {
+        if ("=".equals(symbol)) {
+            return EQUAL;
+        } else if (">".equals(symbol)) {
+            return GREATER_THAN;
+        } else if (">=".equals(symbol)) {
+            return GREATER_THAN_EQUAL;
+        } else if ("<".equals(symbol)) {
+            return LESS_THAN;
+        } else if ("<=".equals(symbol)) {
+            return LESS_THAN_EQUAL;
+        }
+
+        return 0;
+    }
+
+    private static String mirror(String symbol) {
+        if (">".equals(symbol)) {
+            return "<";
+        } else if (">=".equals(symbol)) {
+            return "<=";
+        } else if ("<".equals(symbol)) {
+            return ">";
+        } else if ("<=".equals(symbol)) {
+            return ">=";
+        }
+
+        return symbol;
+    }
+
+    /*
+     * Equality of a property with a string literal, a value of any other type never
+     * compares equal to a string.
+     */
+    private static final class StringEquals extends ComparisonExpression {
+
+        private final String value;
+
+        public StringEquals(PropertyExpression property, String value) {
+            super(property, new ConstantExpression(value));
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
+            return value.equals(left.evaluate(message)) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        protected boolean asBoolean(int answer) {
+            return answer == 0;
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            return "=";
+        }
+    }
+
+    /*
+     * Comparison of a property with a numeric literal.  The literal is unpacked once and
+     * the property value compared using primitives, widening in the same way as the
+     * generic ComparisonExpression so the results are identical.
+     */
+    private static final class NumericComparison extends ComparisonExpression {
+
+        private final int operator;
+        private final boolean integral;
+        private final long longValue;
+        private final float floatValue;
+        private final double doubleValue;
+
+        public NumericComparison(PropertyExpression property, Number value, int operator) {
+            super(property, new ConstantExpression(value));
+            this.operator = operator;
+            this.integral = !(value instanceof Double);
+            this.longValue = value.longValue();
+            this.floatValue = value.floatValue();
+            this.doubleValue = value.doubleValue();
+        }
+
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
+            Object lv = left.evaluate(message);
+            if (lv == null) {
+                return operator == EQUAL ? Boolean.FALSE : null;
+            }
+
+            Class<?> type = lv.getClass();
+            int answer;
+            if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+                if (integral) {
+                    answer = Long.compare(((Number) lv).longValue(), longValue);
+                } else {
+                    answer = Double.compare(((Number) lv).doubleValue(), doubleValue);
+                }
+            } else if (type == Float.class) {
+                if (integral) {
+                    answer = Float.compare(((Float) lv).floatValue(), floatValue);
+                } else {
+                    answer = Double.compare(((Float) lv).doubleValue(), doubleValue);
+                }
+            } else if (type == Double.class) {
+                answer = Double.compare(((Double) lv).doubleValue(), doubleValue);
+            } else {
+                return Boolean.FALSE;
+            }
+
+            return asBoolean(answer) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        protected boolean asBoolean(int answer) {
+            switch (operator) {
+                case EQUAL:
+                    return answer == 0;
+                case GREATER_THAN:
+                    return answer > 0;
+                case GREATER_THAN_EQUAL:
+                    return answer >= 0;
+                case LESS_THAN:
+                    return answer < 0;
+                default:
+                    return answer <= 0;
+            }
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            switch (operator) {
+                case EQUAL:
+                    return "=";
+                case GREATER_THAN:
+                    return ">";
+                case GREATER_THAN_EQUAL:
+                    return ">=";
+                case LESS_THAN:
+                    return "<";
+                default:
+                    return "<=";
+            }
+        }
+    }
+}
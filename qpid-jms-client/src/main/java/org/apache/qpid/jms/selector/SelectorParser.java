@@ -16,36 +16,28 @@
  */
 package org.apache.qpid.jms.selector;
 
-import java.io.StringReader;
-
 import org.apache.qpid.jms.selector.filter.BooleanExpression;
 import org.apache.qpid.jms.selector.filter.FilterException;
-import org.apache.qpid.jms.selector.parser.SelectorParserImpl;
-import org.apache.qpid.jms.util.LRUCache;
 
 public class SelectorParser {
 
-    private static final LRUCache<Object, Object> cache = new LRUCache<Object, Object>(100);
+    public static final String PROPERTY_CACHE_MAX_ENTRIES = "org.apache.qpid.jms.selector.cacheMaxEntries";
+    public static final String PROPERTY_CACHE_MAX_WEIGHT = "org.apache.qpid.jms.selector.cacheMaxWeight";
+
+    private static final SelectorCache cache = new SelectorCache(
+        Integer.getInteger(PROPERTY_CACHE_MAX_ENTRIES, SelectorCache.DEFAULT_MAX_ENTRIES),
+        Long.getLong(PROPERTY_CACHE_MAX_WEIGHT, SelectorCache.DEFAULT_MAX_WEIGHT));
 
     public static BooleanExpression parse(String sql) throws FilterException {
-        Object result = cache.get(sql);
-        if (result instanceof FilterException) {
-            throw (FilterException) result;
-        } else if (result instanceof BooleanExpression) {
-            return (BooleanExpression) result;
-        } else {
-            try {
-                BooleanExpression e = null;
-                SelectorParserImpl parser = new SelectorParserImpl(new StringReader(sql));
-                e = parser.JmsSelector();
-                cache.put(sql, e);
-                return e;
-            } catch (Throwable e) {
-                FilterException fe = new FilterException(sql, e);
-                cache.put(sql, fe);
-                throw fe;
-            }
-        }
+        return cache.parse(sql);
+    }
+
+    /**
+     * @return the cache shared by all parsed selectors, which can be used to read its
+     *         statistics or to change its bounds.
+     */
+    public static SelectorCache getCache() {
+        return cache;
     }
 
     public static void clearCache() {
@@ -71,12 +71,21 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
         Pattern likePattern;
 
+        // Patterns that are a literal with an optional wildcard at either end are
+        // matched with plain String operations instead of a regular expression.
+        String literal;
+        boolean leadingWildcard;
+        boolean trailingWildcard;
+
         /**
          */
         public LikeExpression(Expression right, String like, int escape) {
             super(right);
 
             StringBuffer regexp = new StringBuffer(like.length() * 2);
+            StringBuilder plain = new StringBuilder(like.length());
+            boolean simple = true;
+
             regexp.append("\\A"); // The beginning of the input
             for (int i = 0; i < like.length(); i++) {
                 char c = like.charAt(i);
@@ -90,20 +99,36 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                     char t = like.charAt(i);
                     regexp.append("\\x");
                     regexp.append(Integer.toHexString(0xFFFF & t));
+                    simple &= !trailingWildcard;
+                    plain.append(t);
                 } else if (c == '%') {
                     regexp.append(".*?"); // Do a non-greedy match
+                    if (plain.length() == 0) {
+                        leadingWildcard = true;
+                    } else {
+                        trailingWildcard = true;
+                    }
                 } else if (c == '_') {
                     regexp.append("."); // match one
+                    simple = false;
                 } else if (REGEXP_CONTROL_CHARS.contains(Character.valueOf(c))) {
                     regexp.append("\\x");
                     regexp.append(Integer.toHexString(0xFFFF & c));
+                    simple &= !trailingWildcard;
+                    plain.append(c);
                 } else {
                     regexp.append(c);
+                    simple &= !trailingWildcard;
+                    plain.append(c);
                 }
             }
             regexp.append("\\z"); // The end of the input
 
-            likePattern = Pattern.compile(regexp.toString(), Pattern.DOTALL);
+            if (simple) {
+                literal = plain.toString();
+            } else {
+                likePattern = Pattern.compile(regexp.toString(), Pattern.DOTALL);
+            }
         }
 
         /**
@@ -132,7 +157,21 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                 // identifiers. LIKE attempted on: '" + rv.getClass());
             }
 
-            return likePattern.matcher((String)rv).matches() ? Boolean.TRUE : Boolean.FALSE;
+            return matches((String) rv) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        private boolean matches(String value) {
+            if (literal == null) {
+                return likePattern.matcher(value).matches();
+            } else if (leadingWildcard && trailingWildcard) {
+                return value.contains(literal);
+            } else if (leadingWildcard) {
+                return value.endsWith(literal);
+            } else if (trailingWildcard) {
+                return value.startsWith(literal);
+            } else {
+                return value.equals(literal);
+            }
         }
 
         @Override
@@ -20,6 +20,7 @@ import io.netty.buffer.ByteBuf;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Base class for all QpidJMS Transport instances.
@@ -69,6 +70,24 @@ public interface Transport {
      */
     void send(ByteBuf output) throws IOException;
 
+    /**
+     * Writes a chunk of data to the Transport connection without forcing it onto the wire,
+     * the data is held until the next call to {@link #flush()} or {@link #send(ByteBuf)}.
+     *
+     * @param output
+     *        The buffer of data that is to be transmitted.
+     *
+     * @throws IOException if an error occurs during the write operation.
+     */
+    void write(ByteBuf output) throws IOException;
+
+    /**
+     * Flushes any data previously written to the Transport connection.
+     *
+     * @throws IOException if an error occurs during the flush operation.
+     */
+    void flush() throws IOException;
+
     /**
      * Gets the currently set TransportListener instance
      *
@@ -97,4 +116,13 @@ public interface Transport {
      */
     URI getRemoteLocation();
 
+    /**
+     * Returns the event loop that handles the I/O of this Transport when that event loop
+     * may also be used by the owner of the Transport to run its own work, which avoids the
+     * owner needing a thread of its own.  Tasks run there must never block.
+     *
+     * @return the event loop of a connected Transport or null if it should not be shared.
+     */
+    ScheduledExecutorService getEventLoop();
+
 }
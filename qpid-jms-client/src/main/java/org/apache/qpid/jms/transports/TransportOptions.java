@@ -16,6 +16,10 @@
  */
 package org.apache.qpid.jms.transports;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
 /**
  * Encapsulates all the TCP Transport options in one configuration object.
  */
@@ -29,9 +33,17 @@ public class TransportOptions {
     public static final int DEFAULT_SO_LINGER = Integer.MIN_VALUE;
     public static final int DEFAULT_SO_TIMEOUT = -1;
     public static final int DEFAULT_CONNECT_TIMEOUT = 60000;
+    public static final int DEFAULT_SHARED_EVENT_LOOP_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final boolean DEFAULT_TCP_CORK = false;
+    public static final int DEFAULT_EPOLL_MAX_EVENTS = 128;
+    public static final boolean DEFAULT_POOLED_DIRECT_BUFFERS = false;
+    public static final int DEFAULT_DIRECT_BUFFER_ARENAS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
 
     public static final TransportOptions INSTANCE = new TransportOptions();
 
+    private static final List<String> LEAK_DETECTION_LEVELS =
+        Arrays.asList("DISABLED", "SIMPLE", "ADVANCED", "PARANOID");
+
     private int sendBufferSize = DEFAULT_SEND_BUFFER_SIZE;
     private int receiveBufferSize = DEFAULT_RECEIVE_BUFFER_SIZE;
     private int trafficClass = DEFAULT_TRAFFIC_CLASS;
@@ -40,6 +52,13 @@ public class TransportOptions {
     private int soLinger = DEFAULT_SO_LINGER;
     private boolean tcpKeepAlive = DEFAULT_TCP_KEEP_ALIVE;
     private boolean tcpNoDelay = DEFAULT_TCP_NO_DELAY;
+    private boolean sharedEventLoop;
+    private int sharedEventLoopThreads = DEFAULT_SHARED_EVENT_LOOP_THREADS;
+    private boolean tcpCork = DEFAULT_TCP_CORK;
+    private int epollMaxEvents = DEFAULT_EPOLL_MAX_EVENTS;
+    private boolean pooledDirectBuffers = DEFAULT_POOLED_DIRECT_BUFFERS;
+    private int directBufferArenas = DEFAULT_DIRECT_BUFFER_ARENAS;
+    private String leakDetectionLevel;
 
     /**
      * @return the currently set send buffer size in bytes.
@@ -153,6 +172,170 @@ public class TransportOptions {
         this.connectTimeout = connectTimeout;
     }
 
+    /**
+     * @return true if the Transport uses the event loop pool shared by all connections.
+     */
+    public boolean isSharedEventLoop() {
+        return sharedEventLoop;
+    }
+
+    /**
+     * Sets whether the Transport is assigned to one of a fixed pool of event loops that is
+     * shared by every connection using this option, rather than creating its own.  The
+     * connection also runs its protocol work on that event loop so that no threads are
+     * created per connection.
+     *
+     * @param sharedEventLoop
+     *        true if the shared event loop pool should be used.
+     */
+    public void setSharedEventLoop(boolean sharedEventLoop) {
+        this.sharedEventLoop = sharedEventLoop;
+    }
+
+    /**
+     * @return the number of threads used when the shared event loop pool is created.
+     */
+    public int getSharedEventLoopThreads() {
+        return sharedEventLoopThreads;
+    }
+
+    /**
+     * Sets the number of event loop threads the shared pool is created with, defaults to
+     * the number of available processors.  The value only has an effect on the connection
+     * that causes the pool to be created, later connections join the existing pool.
+     *
+     * @param sharedEventLoopThreads
+     *        the number of threads in the shared event loop pool.
+     *
+     * @throws IllegalArgumentException if the value given is not in the valid range.
+     */
+    public void setSharedEventLoopThreads(int sharedEventLoopThreads) {
+        if (sharedEventLoopThreads <= 0) {
+            throw new IllegalArgumentException("The shared event loop thread count must be > 0");
+        }
+
+        this.sharedEventLoopThreads = sharedEventLoopThreads;
+    }
+
+    /**
+     * @return true if the TCP_CORK option is enabled on native epoll sockets.
+     */
+    public boolean isTcpCork() {
+        return tcpCork;
+    }
+
+    /**
+     * Sets whether the TCP_CORK socket option is enabled when the native epoll transport
+     * is in use, this option has no effect on other transports.  A corked socket holds
+     * back partial frames so that many small writes leave as full segments, which can
+     * raise throughput at the cost of latency for small request / response exchanges.
+     *
+     * @param tcpCork
+     *        true if TCP_CORK should be enabled on the socket.
+     */
+    public void setTcpCork(boolean tcpCork) {
+        this.tcpCork = tcpCork;
+    }
+
+    /**
+     * @return the maximum number of ready events an epoll event loop handles per wakeup.
+     */
+    public int getEpollMaxEvents() {
+        return epollMaxEvents;
+    }
+
+    /**
+     * Sets the maximum number of ready events an epoll event loop collects each time it
+     * wakes, this only has an effect when the native epoll transport is in use and is
+     * mostly of interest when many connections share an event loop.
+     *
+     * @param epollMaxEvents
+     *        the maximum number of events handled per wakeup of the event loop.
+     *
+     * @throws IllegalArgumentException if the value given is not in the valid range.
+     */
+    public void setEpollMaxEvents(int epollMaxEvents) {
+        if (epollMaxEvents <= 0) {
+            throw new IllegalArgumentException("The epoll max events value must be > 0");
+        }
+
+        this.epollMaxEvents = epollMaxEvents;
+    }
+
+    /**
+     * @return true if pooled direct buffers are used for socket I/O.
+     */
+    public boolean isPooledDirectBuffers() {
+        return pooledDirectBuffers;
+    }
+
+    /**
+     * Sets whether the Transport uses pooled direct buffers for socket I/O instead of
+     * unpooled heap buffers.  Direct buffers avoid a copy on every socket write and pooling
+     * them avoids allocating a new buffer for every frame, which lowers garbage collection
+     * pressure for connections that move a lot of data.
+     *
+     * @param pooledDirectBuffers
+     *        true if pooled direct buffers should be used for I/O.
+     */
+    public void setPooledDirectBuffers(boolean pooledDirectBuffers) {
+        this.pooledDirectBuffers = pooledDirectBuffers;
+    }
+
+    /**
+     * @return the number of arenas in the pool of direct buffers.
+     */
+    public int getDirectBufferArenas() {
+        return directBufferArenas;
+    }
+
+    /**
+     * Sets the number of arenas in the pool that direct I/O buffers are taken from when
+     * pooled direct buffers are enabled.  More arenas reduce contention between threads
+     * at the cost of more memory held by the pool.  Connections configured with the same
+     * number of arenas share a single pool.
+     *
+     * @param directBufferArenas
+     *        the number of arenas in the direct buffer pool.
+     *
+     * @throws IllegalArgumentException if the value given is not in the valid range.
+     */
+    public void setDirectBufferArenas(int directBufferArenas) {
+        if (directBufferArenas <= 0) {
+            throw new IllegalArgumentException("The direct buffer arena count must be > 0");
+        }
+
+        this.directBufferArenas = directBufferArenas;
+    }
+
+    /**
+     * @return the buffer leak detection level to apply, or null to leave it unchanged.
+     */
+    public String getLeakDetectionLevel() {
+        return leakDetectionLevel;
+    }
+
+    /**
+     * Sets the level of buffer leak detection to apply when the Transport connects, one of
+     * disabled, simple, advanced or paranoid.  Leak detection is a process wide setting so
+     * the most recently connected Transport that sets a level determines it for all.
+     *
+     * @param leakDetectionLevel
+     *        the leak detection level, or null to leave the current level unchanged.
+     *
+     * @throws IllegalArgumentException if the value given is not a known level.
+     */
+    public void setLeakDetectionLevel(String leakDetectionLevel) {
+        if (leakDetectionLevel != null) {
+            leakDetectionLevel = leakDetectionLevel.toUpperCase(Locale.ENGLISH);
+            if (!LEAK_DETECTION_LEVELS.contains(leakDetectionLevel)) {
+                throw new IllegalArgumentException("Unknown leak detection level: " + leakDetectionLevel);
+            }
+        }
+
+        this.leakDetectionLevel = leakDetectionLevel;
+    }
+
     @Override
     public TransportOptions clone() {
         return copyOptions(new TransportOptions());
@@ -167,6 +350,13 @@ public class TransportOptions {
         copy.setTcpKeepAlive(isTcpKeepAlive());
         copy.setTcpNoDelay(isTcpNoDelay());
         copy.setTrafficClass(getTrafficClass());
+        copy.setSharedEventLoop(isSharedEventLoop());
+        copy.setSharedEventLoopThreads(getSharedEventLoopThreads());
+        copy.setTcpCork(isTcpCork());
+        copy.setEpollMaxEvents(getEpollMaxEvents());
+        copy.setPooledDirectBuffers(isPooledDirectBuffers());
+        copy.setDirectBufferArenas(getDirectBufferArenas());
+        copy.setLeakDetectionLevel(getLeakDetectionLevel());
 
         return copy;
     }
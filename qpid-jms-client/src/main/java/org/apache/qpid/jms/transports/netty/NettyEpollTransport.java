@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.transports.netty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.transports.TransportListener;
+import org.apache.qpid.jms.transports.TransportOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extends the Netty based TCP transport to use Netty's native epoll transport on Linux.
+ *
+ * When the native library cannot be loaded, for instance on other platforms, the transport
+ * falls back to the NIO based implementation of its parent and the epoll specific options
+ * are ignored.
+ */
+public class NettyEpollTransport extends NettyTcpTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyEpollTransport.class);
+
+    private static final boolean EPOLL_AVAILABLE = checkEpollAvailable();
+
+    /**
+     * Create a new transport instance
+     *
+     * @param remoteLocation
+     *        the URI that defines the remote resource to connect to.
+     * @param options
+     *        the transport options used to configure the socket connection.
+     */
+    public NettyEpollTransport(URI remoteLocation, TransportOptions options) {
+        this(null, remoteLocation, options);
+    }
+
+    /**
+     * Create a new transport instance
+     *
+     * @param listener
+     *        the TransportListener that will receive events from this Transport.
+     * @param remoteLocation
+     *        the URI that defines the remote resource to connect to.
+     * @param options
+     *        the transport options used to configure the socket connection.
+     */
+    public NettyEpollTransport(TransportListener listener, URI remoteLocation, TransportOptions options) {
+        super(listener, remoteLocation, options);
+    }
+
+    /**
+     * @return true if the native epoll transport can be used on this platform.
+     */
+    public static boolean isEpollAvailable() {
+        return EPOLL_AVAILABLE;
+    }
+
+    @Override
+    protected EventLoopGroup acquireEventLoopGroup(TransportOptions options) {
+        if (!EPOLL_AVAILABLE) {
+            return super.acquireEventLoopGroup(options);
+        }
+
+        if (options.isSharedEventLoop()) {
+            return NettySharedEventLoopGroup.EPOLL.acquire(options);
+        } else {
+            return new EpollEventLoopGroup(1, new DefaultThreadFactory(EpollEventLoopGroup.class), options.getEpollMaxEvents());
+        }
+    }
+
+    @Override
+    protected void releaseEventLoopGroup(EventLoopGroup group, TransportOptions options) {
+        if (!EPOLL_AVAILABLE) {
+            super.releaseEventLoopGroup(group, options);
+        } else if (options.isSharedEventLoop()) {
+            NettySharedEventLoopGroup.EPOLL.release(group);
+        } else {
+            group.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected Class<? extends Channel> getChannelType() {
+        if (!EPOLL_AVAILABLE) {
+            return super.getChannelType();
+        }
+
+        return EpollSocketChannel.class;
+    }
+
+    @Override
+    protected void configureNetty(Bootstrap bootstrap, TransportOptions options) {
+        super.configureNetty(bootstrap, options);
+
+        if (EPOLL_AVAILABLE) {
+            bootstrap.option(EpollChannelOption.TCP_CORK, options.isTcpCork());
+        }
+    }
+
+    private static boolean checkEpollAvailable() {
+        try {
+            // Loading the Native class loads the shared library, which fails on any
+            // platform that the bundled library was not built for.
+            Class.forName("io.netty.channel.epoll.Native", true, NettyEpollTransport.class.getClassLoader());
+            return true;
+        } catch (Throwable error) {
+            LOG.info("Native epoll transport is not available, falling back to NIO: {}", error.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.transports.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.transports.TransportOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the event loop group that is shared by all Transports configured to use a shared
+ * event loop.  Each Transport channel is registered with one of the loops in the group for
+ * its lifetime.  The group is created on first use and shut down once the last Transport
+ * using it has released it.
+ *
+ * Channels can only be registered with event loops of their own kind, so there is one
+ * holder for NIO based Transports and one for those using the native epoll transport.
+ */
+final class NettySharedEventLoopGroup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettySharedEventLoopGroup.class);
+
+    private static final int QUIET_PERIOD = 20;
+    private static final int SHUTDOWN_TIMEOUT = 100;
+
+    static final NettySharedEventLoopGroup NIO = new NettySharedEventLoopGroup(false);
+    static final NettySharedEventLoopGroup EPOLL = new NettySharedEventLoopGroup(true);
+
+    private final boolean epoll;
+
+    private EventLoopGroup group;
+    private int references;
+
+    private NettySharedEventLoopGroup(boolean epoll) {
+        this.epoll = epoll;
+    }
+
+    /**
+     * Returns the shared event loop group, creating it if no Transport currently holds it.
+     *
+     * @param options
+     *        the options that configure the group if it does not exist.
+     *
+     * @return the shared EventLoopGroup.
+     */
+    synchronized EventLoopGroup acquire(TransportOptions options) {
+        if (group == null) {
+            int threads = options.getSharedEventLoopThreads();
+            DefaultThreadFactory threadFactory = new DefaultThreadFactory("QpidJMS Shared Event Loop", true);
+            if (epoll) {
+                LOG.debug("Creating shared epoll event loop group with {} threads", threads);
+                group = new EpollEventLoopGroup(threads, threadFactory, options.getEpollMaxEvents());
+            } else {
+                LOG.debug("Creating shared event loop group with {} threads", threads);
+                group = new NioEventLoopGroup(threads, threadFactory);
+            }
+        }
+
+        references++;
+        return group;
+    }
+
+    /**
+     * Releases a reference to the shared event loop group, shutting it down if no Transport
+     * holds a reference any longer.
+     *
+     * @param released
+     *        the group that was returned from {@link #acquire(TransportOptions)}.
+     */
+    synchronized void release(EventLoopGroup released) {
+        if (released != group) {
+            return;
+        }
+
+        if (--references == 0) {
+            LOG.debug("Shutting down shared event loop group");
+            group.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            group = null;
+        }
+    }
+}
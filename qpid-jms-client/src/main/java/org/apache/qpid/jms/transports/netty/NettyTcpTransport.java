@@ -29,10 +29,12 @@ import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ResourceLeakDetector;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -50,8 +52,8 @@ public class NettyTcpTransport implements Transport {
 
     private static final Logger LOG = LoggerFactory.getLogger(NettyTcpTransport.class);
 
-    private static final int QUIET_PERIOD = 20;
-    private static final int SHUTDOWN_TIMEOUT = 100;
+    protected static final int QUIET_PERIOD = 20;
+    protected static final int SHUTDOWN_TIMEOUT = 100;
 
     protected Bootstrap bootstrap;
     protected EventLoopGroup group;
@@ -100,11 +102,11 @@ public class NettyTcpTransport implements Transport {
             throw new IllegalStateException("A transport listener must be set before connection attempts.");
         }
 
-        group = new NioEventLoopGroup(1);
+        group = acquireEventLoopGroup(getTransportOptions());
 
         bootstrap = new Bootstrap();
         bootstrap.group(group);
-        bootstrap.channel(NioSocketChannel.class);
+        bootstrap.channel(getChannelType());
         bootstrap.handler(new ChannelInitializer<Channel>() {
 
             @Override
@@ -144,10 +146,7 @@ public class NettyTcpTransport implements Transport {
                 channel.close();
                 channel = null;
             }
-            if (group != null) {
-                group.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
-                group = null;
-            }
+            releaseGroup();
 
             throw failureCause;
         }
@@ -163,11 +162,14 @@ public class NettyTcpTransport implements Transport {
         if (closed.compareAndSet(false, true)) {
             connected.set(false);
             if (channel != null) {
-                channel.close().syncUninterruptibly();
-            }
-            if (group != null) {
-                group.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (channel.eventLoop().inEventLoop()) {
+                    // Work running on a shared event loop can't block waiting on it.
+                    channel.close();
+                } else {
+                    channel.close().syncUninterruptibly();
+                }
             }
+            releaseGroup();
         }
     }
 
@@ -190,6 +192,25 @@ public class NettyTcpTransport implements Transport {
         channel.writeAndFlush(output);
     }
 
+    @Override
+    public void write(ByteBuf output) throws IOException {
+        checkConnected();
+        int length = output.readableBytes();
+        if (length == 0) {
+            return;
+        }
+
+        LOG.trace("Attempted buffered write of: {} bytes", length);
+
+        channel.write(output);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkConnected();
+        channel.flush();
+    }
+
     @Override
     public TransportListener getTransportListener() {
         return listener;
@@ -214,14 +235,52 @@ public class NettyTcpTransport implements Transport {
         return remote;
     }
 
+    @Override
+    public ScheduledExecutorService getEventLoop() {
+        Channel channel = this.channel;
+        if (channel != null && getTransportOptions().isSharedEventLoop()) {
+            return channel.eventLoop();
+        }
+
+        return null;
+    }
+
     //----- Internal implementation details, can be overridden as needed --//
 
+    protected EventLoopGroup acquireEventLoopGroup(TransportOptions options) {
+        if (options.isSharedEventLoop()) {
+            return NettySharedEventLoopGroup.NIO.acquire(options);
+        } else {
+            return new NioEventLoopGroup(1);
+        }
+    }
+
+    protected void releaseEventLoopGroup(EventLoopGroup group, TransportOptions options) {
+        if (options.isSharedEventLoop()) {
+            NettySharedEventLoopGroup.NIO.release(group);
+        } else {
+            group.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    protected Class<? extends Channel> getChannelType() {
+        return NioSocketChannel.class;
+    }
+
     protected void configureNetty(Bootstrap bootstrap, TransportOptions options) {
         bootstrap.option(ChannelOption.TCP_NODELAY, options.isTcpNoDelay());
         bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, options.getConnectTimeout());
         bootstrap.option(ChannelOption.SO_KEEPALIVE, options.isTcpKeepAlive());
         bootstrap.option(ChannelOption.SO_LINGER, options.getSoLinger());
-        bootstrap.option(ChannelOption.ALLOCATOR, PartialPooledByteBufAllocator.INSTANCE);
+        if (options.isPooledDirectBuffers()) {
+            bootstrap.option(ChannelOption.ALLOCATOR, PartialPooledByteBufAllocator.directIoInstance(options.getDirectBufferArenas()));
+        } else {
+            bootstrap.option(ChannelOption.ALLOCATOR, PartialPooledByteBufAllocator.INSTANCE);
+        }
+
+        if (options.getLeakDetectionLevel() != null) {
+            ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(options.getLeakDetectionLevel()));
+        }
 
         if (options.getSendBufferSize() != -1) {
             bootstrap.option(ChannelOption.SO_SNDBUF, options.getSendBufferSize());
@@ -266,6 +325,13 @@ public class NettyTcpTransport implements Transport {
         connectLatch.countDown();
     }
 
+    private void releaseGroup() {
+        if (group != null) {
+            releaseEventLoopGroup(group, getTransportOptions());
+            group = null;
+        }
+    }
+
     private void checkConnected() throws IOException {
         if (!connected.get()) {
             throw new IOException("Cannot send to a non-connected transport.");
@@ -22,11 +22,18 @@ import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A {@link ByteBufAllocator} which is partial pooled. Which means only direct {@link ByteBuf}s are pooled. The rest
  * is unpooled.
  *
+ * By default I/O buffers are unpooled heap buffers, the instances returned from {@link #directIoInstance(int)}
+ * instead hand out pooled direct buffers for I/O which saves the copy into a temporary direct buffer on each
+ * socket write and the allocation of a new buffer for every frame.  Those instances are shared by all Transports
+ * that use the same number of arenas so that each connection does not reserve memory for a pool of its own.
+ *
  * @author <a href="mailto:nmaurer@redhat.com">Norman Maurer</a>
  */
 public class PartialPooledByteBufAllocator implements ByteBufAllocator
@@ -34,10 +41,54 @@ public class PartialPooledByteBufAllocator implements ByteBufAllocator
    private static final ByteBufAllocator POOLED = new PooledByteBufAllocator(false);
    private static final ByteBufAllocator UNPOOLED = new UnpooledByteBufAllocator(false);
 
-   public static final PartialPooledByteBufAllocator INSTANCE = new PartialPooledByteBufAllocator();
+   private static final int PAGE_SIZE = 8192;
+   private static final int MAX_ORDER = 11;
+
+   private static final Map<Integer, PartialPooledByteBufAllocator> DIRECT_IO_INSTANCES =
+      new HashMap<Integer, PartialPooledByteBufAllocator>();
+
+   public static final PartialPooledByteBufAllocator INSTANCE = new PartialPooledByteBufAllocator(POOLED, false);
+
+   private final ByteBufAllocator pooled;
+   private final boolean directIo;
+
+   private PartialPooledByteBufAllocator(ByteBufAllocator pooled, boolean directIo)
+   {
+      this.pooled = pooled;
+      this.directIo = directIo;
+   }
+
+   /**
+    * Returns the allocator that hands out pooled direct buffers for I/O from a pool with the given
+    * number of direct arenas, creating it on first use.
+    *
+    * @param arenas
+    *        the number of direct arenas in the pool, bounds the memory the pool can hold on to.
+    *
+    * @return the shared allocator instance for the given arena count.
+    */
+   public static PartialPooledByteBufAllocator directIoInstance(int arenas)
+   {
+      synchronized (DIRECT_IO_INSTANCES)
+      {
+         PartialPooledByteBufAllocator allocator = DIRECT_IO_INSTANCES.get(arenas);
+         if (allocator == null)
+         {
+            allocator = new PartialPooledByteBufAllocator(
+               new PooledByteBufAllocator(true, 0, arenas, PAGE_SIZE, MAX_ORDER), true);
+            DIRECT_IO_INSTANCES.put(arenas, allocator);
+         }
+
+         return allocator;
+      }
+   }
 
-   private PartialPooledByteBufAllocator()
+   /**
+    * @return true if this allocator hands out pooled direct buffers for I/O.
+    */
+   public boolean isDirectIo()
    {
+      return directIo;
    }
 
    @Override
@@ -61,18 +112,33 @@ public class PartialPooledByteBufAllocator implements ByteBufAllocator
    @Override
    public ByteBuf ioBuffer()
    {
+      if (directIo)
+      {
+         return pooled.directBuffer();
+      }
+
       return UNPOOLED.heapBuffer();
    }
 
    @Override
    public ByteBuf ioBuffer(int initialCapacity)
    {
+      if (directIo)
+      {
+         return pooled.directBuffer(initialCapacity);
+      }
+
       return UNPOOLED.heapBuffer(initialCapacity);
    }
 
    @Override
    public ByteBuf ioBuffer(int initialCapacity, int maxCapacity)
    {
+      if (directIo)
+      {
+         return pooled.directBuffer(initialCapacity, maxCapacity);
+      }
+
       return UNPOOLED.heapBuffer(initialCapacity, maxCapacity);
    }
 
@@ -97,19 +163,19 @@ public class PartialPooledByteBufAllocator implements ByteBufAllocator
    @Override
    public ByteBuf directBuffer()
    {
-      return POOLED.directBuffer();
+      return pooled.directBuffer();
    }
 
    @Override
    public ByteBuf directBuffer(int initialCapacity)
    {
-      return POOLED.directBuffer(initialCapacity);
+      return pooled.directBuffer(initialCapacity);
    }
 
    @Override
    public ByteBuf directBuffer(int initialCapacity, int maxCapacity)
    {
-      return POOLED.directBuffer(initialCapacity, maxCapacity);
+      return pooled.directBuffer(initialCapacity, maxCapacity);
    }
 
    @Override
@@ -139,13 +205,13 @@ public class PartialPooledByteBufAllocator implements ByteBufAllocator
    @Override
    public CompositeByteBuf compositeDirectBuffer()
    {
-      return POOLED.compositeDirectBuffer();
+      return pooled.compositeDirectBuffer();
    }
 
    @Override
    public CompositeByteBuf compositeDirectBuffer(int maxNumComponents)
    {
-      return POOLED.compositeDirectBuffer();
+      return pooled.compositeDirectBuffer();
    }
 
    @Override
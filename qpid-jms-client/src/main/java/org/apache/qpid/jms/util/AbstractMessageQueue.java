@@ -16,6 +16,9 @@
  */
 package org.apache.qpid.jms.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 
 /**
@@ -66,6 +69,18 @@ public abstract class AbstractMessageQueue implements MessageQueue {
         }
     }
 
+    @Override
+    public List<JmsInboundMessageDispatch> dequeueNoWait(int maxMessages) {
+        List<JmsInboundMessageDispatch> rc = new ArrayList<JmsInboundMessageDispatch>(Math.min(maxMessages, 16));
+        synchronized (lock) {
+            while (!closed && running && rc.size() < maxMessages && !isEmpty()) {
+                rc.add(removeFirst());
+            }
+        }
+
+        return rc;
+    }
+
     @Override
     public void start() {
         synchronized (lock) {
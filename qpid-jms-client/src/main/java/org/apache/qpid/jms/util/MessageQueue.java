@@ -74,6 +74,17 @@ public interface MessageQueue {
      */
     JmsInboundMessageDispatch dequeueNoWait();
 
+    /**
+     * Used to get up to the given number of enqueued Messages in a single operation,
+     * without blocking if fewer or none are available.
+     *
+     * @param maxMessages
+     *        the maximum number of Messages to remove from the Queue.
+     *
+     * @return the next Messages in the Queue in order, empty if there are none.
+     */
+    List<JmsInboundMessageDispatch> dequeueNoWait(int maxMessages);
+
     /**
      * Starts the Message Queue.  An non-started Queue will always return null for
      * any of the Queue accessor methods.
@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+
+/**
+ * First in / first out Message Queue backed by a bounded array ring.
+ *
+ * Messages are added and removed without taking a lock, each slot of the ring carries
+ * a sequence number that tells the producer and consumer whether it is free or holds a
+ * message, so no per-message node is allocated and the provider thread never contends
+ * with the consumer for a monitor.  The lock is only used when a consumer has to block
+ * waiting for a message, and a producer only takes it to wake such a waiting consumer.
+ *
+ * Should the ring fill, which can happen when more messages arrive than the prefetch the
+ * ring was sized for, new messages are held in an overflow list until the ring drains
+ * so that ordering is preserved.  Messages added with {@link #enqueueFirst} are placed in
+ * a separate list that is always consumed ahead of the ring.
+ */
+public final class RingMessageQueue implements MessageQueue {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 16;
+
+    private final int mask;
+    private final AtomicReferenceArray<JmsInboundMessageDispatch> ring;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    private final ConcurrentLinkedDeque<JmsInboundMessageDispatch> head =
+        new ConcurrentLinkedDeque<JmsInboundMessageDispatch>();
+    private final ConcurrentLinkedQueue<JmsInboundMessageDispatch> overflow =
+        new ConcurrentLinkedQueue<JmsInboundMessageDispatch>();
+
+    private final Object lock = new Object();
+    private volatile int waiters;
+    private volatile boolean closed;
+    private volatile boolean running;
+
+    /**
+     * Creates a new queue whose ring can hold the given number of messages, the value is
+     * rounded up to the next power of two.
+     *
+     * @param capacity
+     *        the number of messages the ring should hold before overflowing.
+     */
+    public RingMessageQueue(int capacity) {
+        int size = MIN_CAPACITY;
+        while (size < capacity && size < MAX_CAPACITY) {
+            size <<= 1;
+        }
+
+        this.mask = size - 1;
+        this.ring = new AtomicReferenceArray<JmsInboundMessageDispatch>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public void enqueue(JmsInboundMessageDispatch envelope) {
+        // Once messages have overflowed the ring everything must go to the overflow
+        // list until it has been drained otherwise messages would be reordered.
+        if (!overflow.isEmpty() || !offer(envelope)) {
+            overflow.add(envelope);
+        }
+        signalWaiters();
+    }
+
+    @Override
+    public void enqueueFirst(JmsInboundMessageDispatch envelope) {
+        head.addFirst(envelope);
+        signalWaiters();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.isEmpty() && ringIsEmpty() && overflow.isEmpty();
+    }
+
+    @Override
+    public JmsInboundMessageDispatch peek() {
+        JmsInboundMessageDispatch envelope = head.peekFirst();
+        if (envelope == null) {
+            long position = dequeuePosition.get();
+            int index = (int) position & mask;
+            if (sequences.get(index) == position + 1) {
+                envelope = ring.get(index);
+            }
+            if (envelope == null && ringIsEmpty()) {
+                envelope = overflow.peek();
+            }
+        }
+
+        return envelope;
+    }
+
+    @Override
+    public JmsInboundMessageDispatch dequeue(long timeout) throws InterruptedException {
+        while (true) {
+            JmsInboundMessageDispatch envelope = dequeueNoWait();
+            if (envelope != null || timeout == 0 || closed) {
+                return envelope;
+            }
+
+            synchronized (lock) {
+                waiters++;
+                try {
+                    // Check again now that we are registered as a waiter, a producer
+                    // that enqueued before seeing us will have left a message behind.
+                    if (!closed && (isEmpty() || !running)) {
+                        if (timeout == -1) {
+                            lock.wait();
+                        } else {
+                            lock.wait(timeout);
+                        }
+                    }
+                } finally {
+                    waiters--;
+                }
+            }
+
+            if (timeout != -1) {
+                return dequeueNoWait();
+            }
+        }
+    }
+
+    @Override
+    public JmsInboundMessageDispatch dequeueNoWait() {
+        if (closed || !running) {
+            return null;
+        }
+
+        JmsInboundMessageDispatch envelope = head.pollFirst();
+        if (envelope == null) {
+            envelope = poll();
+            if (envelope == null) {
+                envelope = overflow.poll();
+            }
+        }
+
+        return envelope;
+    }
+
+    @Override
+    public List<JmsInboundMessageDispatch> dequeueNoWait(int maxMessages) {
+        List<JmsInboundMessageDispatch> rc = new ArrayList<JmsInboundMessageDispatch>(Math.min(maxMessages, 16));
+
+        JmsInboundMessageDispatch envelope;
+        while (rc.size() < maxMessages && (envelope = dequeueNoWait()) != null) {
+            rc.add(envelope);
+        }
+
+        return rc;
+    }
+
+    @Override
+    public void start() {
+        synchronized (lock) {
+            running = true;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (!closed) {
+                running = false;
+                closed = true;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int size() {
+        long size = enqueuePosition.get() - dequeuePosition.get();
+        return head.size() + (int) Math.max(0, size) + overflow.size();
+    }
+
+    @Override
+    public void clear() {
+        head.clear();
+        while (poll() != null) {
+        }
+        overflow.clear();
+    }
+
+    @Override
+    public List<JmsInboundMessageDispatch> removeAll() {
+        ArrayList<JmsInboundMessageDispatch> rc = new ArrayList<JmsInboundMessageDispatch>(size());
+
+        JmsInboundMessageDispatch envelope;
+        while ((envelope = head.pollFirst()) != null) {
+            rc.add(envelope);
+        }
+        while ((envelope = poll()) != null) {
+            rc.add(envelope);
+        }
+        while ((envelope = overflow.poll()) != null) {
+            rc.add(envelope);
+        }
+
+        return rc;
+    }
+
+    @Override
+    public Object getLock() {
+        return lock;
+    }
+
+    @Override
+    public String toString() {
+        return "RingMessageQueue { size = " + size() + " }";
+    }
+
+    /**
+     * @return the number of messages the ring can hold before overflowing.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    //----- Ring implementation ----------------------------------------------//
+
+    /*
+     * A slot whose sequence equals the enqueue position is free for writing, once
+     * written its sequence is advanced by one to publish the message to consumers.
+     * A consumer that takes the message advances the sequence by the capacity of
+     * the ring which frees the slot for the producer on its next pass.
+     */
+
+    private boolean offer(JmsInboundMessageDispatch envelope) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    ring.lazySet(index, envelope);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (delta < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    private JmsInboundMessageDispatch poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - (position + 1);
+            if (delta == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    JmsInboundMessageDispatch envelope = ring.get(index);
+                    ring.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return envelope;
+                }
+                position = dequeuePosition.get();
+            } else if (delta < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    private boolean ringIsEmpty() {
+        long position = dequeuePosition.get();
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    private void signalWaiters() {
+        if (waiters > 0) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * An Executor that runs the tasks given to it one at a time and in the order they were
+ * submitted, using a shared delegate Executor to supply the threads.  Many instances can
+ * share a single thread pool while each one preserves its own ordering.
+ */
+public class SerialExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    private boolean running;
+
+    public SerialExecutor(Executor delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate Executor cannot be null");
+        }
+
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+
+        try {
+            delegate.execute(new Worker());
+        } catch (RuntimeException e) {
+            synchronized (tasks) {
+                tasks.clear();
+                running = false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if there are tasks queued or running in this executor.
+     */
+    public boolean isBusy() {
+        synchronized (tasks) {
+            return running;
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            Runnable next;
+            synchronized (tasks) {
+                next = tasks.poll();
+            }
+
+            try {
+                if (next != null) {
+                    next.run();
+                }
+            } finally {
+                boolean resubmit;
+                synchronized (tasks) {
+                    resubmit = !tasks.isEmpty();
+                    running = resubmit;
+                }
+
+                // Hand the thread back between tasks so one busy instance cannot hold a
+                // pooled thread to the exclusion of the others that share the delegate.
+                if (resubmit) {
+                    try {
+                        delegate.execute(this);
+                    } catch (RuntimeException e) {
+                        synchronized (tasks) {
+                            tasks.clear();
+                            running = false;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel for tracking large numbers of timeouts that are mostly cancelled
+ * before they expire.  Scheduling and cancelling are constant time operations and the cost
+ * of expiring timeouts depends only on the number of ticks that have passed, so one wheel
+ * can track every pending request of a connection.
+ * <p>
+ * The wheel has no thread of its own, the owner calls {@link #expireTimeouts()} at roughly
+ * the tick interval.  Timeouts fire no earlier than their deadline and up to one tick late.
+ * This class is not thread safe, all calls must be made from the same thread such as the
+ * serializer of a Provider.
+ */
+public class TimerWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final long tickNanos;
+    private final Timeout[] wheel;
+    private final int mask;
+    private final long startTime;
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a new TimerWheel.
+     *
+     * @param tickDuration
+     *        the time between ticks of the wheel.
+     * @param unit
+     *        the unit of the tick duration.
+     * @param ticksPerWheel
+     *        the number of buckets in the wheel, rounded up to a power of two.
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, System.nanoTime());
+    }
+
+    TimerWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, long startTime) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than zero");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Ticks per wheel must be between 1 and 2^30");
+        }
+
+        int buckets = 1;
+        while (buckets < ticksPerWheel) {
+            buckets <<= 1;
+        }
+
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Timeout[buckets];
+        this.mask = buckets - 1;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Schedules a task to run once the given delay has passed.
+     *
+     * @param task
+     *        the task to run when the timeout expires.
+     * @param delay
+     *        the time to wait before the task is run.
+     * @param unit
+     *        the unit of the delay.
+     *
+     * @return a Timeout that can be used to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, System.nanoTime());
+    }
+
+    Timeout schedule(Runnable task, long delay, TimeUnit unit, long now) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+
+        // An idle wheel is moved forward without walking the buckets it skipped.
+        long nowTick = (now - startTime) / tickNanos;
+        if (size == 0 && currentTick < nowTick) {
+            currentTick = nowTick;
+        }
+
+        long deadline = now + unit.toNanos(Math.max(0, delay));
+        long elapsed = deadline - startTime;
+        long deadlineTick = (elapsed + tickNanos - 1) / tickNanos;
+        if (deadlineTick < currentTick) {
+            deadlineTick = currentTick;
+        }
+
+        Timeout timeout = new Timeout(task, deadline);
+        timeout.rounds = (deadlineTick - currentTick) / wheel.length;
+        timeout.bucket = (int) (deadlineTick & mask);
+        link(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs every task whose deadline has passed.
+     *
+     * @return the number of tasks that were run.
+     */
+    public int expireTimeouts() {
+        return expireTimeouts(System.nanoTime());
+    }
+
+    int expireTimeouts(long now) {
+        long nowTick = (now - startTime) / tickNanos;
+        int expired = 0;
+
+        while (currentTick <= nowTick) {
+            if (size == 0) {
+                currentTick = nowTick + 1;
+                break;
+            }
+
+            // Due timeouts are unlinked before any task runs so that a task which cancels
+            // or schedules other timeouts cannot disturb the walk of the bucket.
+            Timeout due = null;
+            Timeout timeout = wheel[(int) (currentTick & mask)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.rounds <= 0) {
+                    unlink(timeout);
+                    timeout.nextDue = due;
+                    due = timeout;
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+
+            while (due != null) {
+                Timeout next = due.nextDue;
+                due.nextDue = null;
+                if (!due.cancelled) {
+                    due.expired = true;
+                    expired++;
+                    try {
+                        due.task.run();
+                    } catch (Throwable error) {
+                        LOG.warn("Timeout task {} failed: {}", due.task, error.getMessage(), error);
+                    }
+                }
+                due = next;
+            }
+
+            currentTick++;
+        }
+
+        return expired;
+    }
+
+    /**
+     * @return the number of timeouts waiting to expire.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no timeouts are waiting to expire.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Cancels every pending timeout without running any of them.
+     */
+    public void clear() {
+        for (int i = 0; i < wheel.length; ++i) {
+            Timeout timeout = wheel[i];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.cancelled = true;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout = next;
+            }
+            wheel[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return the time in milliseconds between ticks of this wheel.
+     */
+    public long getTickDuration() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    private void link(Timeout timeout) {
+        Timeout head = wheel[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[timeout.bucket] = timeout;
+        timeout.owner = this;
+        size++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.owner = null;
+        size--;
+    }
+
+    /**
+     * A task scheduled on a TimerWheel.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+
+        private TimerWheel owner;
+        private Timeout prev;
+        private Timeout next;
+        private Timeout nextDue;
+        private long rounds;
+        private int bucket;
+        private boolean expired;
+        private boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Removes this timeout from its wheel so that the task is never run, does
+         * nothing if the task already ran or was cancelled.
+         */
+        public void cancel() {
+            if (owner != null) {
+                owner.unlink(this);
+            }
+            if (!expired) {
+                cancelled = true;
+            }
+        }
+
+        public boolean isExpired() {
+            return expired;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return the System.nanoTime value at which this timeout is due.
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
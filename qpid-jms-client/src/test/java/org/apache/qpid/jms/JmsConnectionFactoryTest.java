@@ -76,6 +76,13 @@ public class JmsConnectionFactoryTest extends QpidJmsTestCase {
         factory.setAlwaysSyncSend(!factory.isAlwaysSyncSend());
         factory.setForceAsyncSend(!factory.isForceAsyncSend());
         factory.setLocalMessagePriority(!factory.isLocalMessagePriority());
+        factory.setLockFreeMessageQueue(!factory.isLockFreeMessageQueue());
+        factory.setMaxInFlightAsyncSends(16);
+        factory.setAckBatchSize(32);
+        factory.setAckBatchTimeout(250);
+        factory.setListenerDispatchThreads(4);
+        factory.setListenerDispatchOrderByGroup(!factory.isListenerDispatchOrderByGroup());
+        factory.setEncodeOnSendingThread(!factory.isEncodeOnSendingThread());
         factory.setSendAcksAsync(!factory.isSendAcksAsync());
         factory.setConnectTimeout(TimeUnit.SECONDS.toMillis(30));
         factory.setCloseTimeout(TimeUnit.SECONDS.toMillis(45));
@@ -94,6 +101,13 @@ public class JmsConnectionFactoryTest extends QpidJmsTestCase {
         assertEquals(factory.isAlwaysSyncSend(), connection.isAlwaysSyncSend());
         assertEquals(factory.isForceAsyncSend(), connection.isForceAsyncSend());
         assertEquals(factory.isLocalMessagePriority(), connection.isLocalMessagePriority());
+        assertEquals(factory.isLockFreeMessageQueue(), connection.isLockFreeMessageQueue());
+        assertEquals(16, connection.getMaxInFlightAsyncSends());
+        assertEquals(32, connection.getAckBatchSize());
+        assertEquals(250, connection.getAckBatchTimeout());
+        assertEquals(4, connection.getListenerDispatchThreads());
+        assertEquals(factory.isListenerDispatchOrderByGroup(), connection.isListenerDispatchOrderByGroup());
+        assertEquals(factory.isEncodeOnSendingThread(), connection.isEncodeOnSendingThread());
         assertEquals(factory.isSendAcksAsync(), connection.isSendAcksAsync());
 
         assertEquals(TimeUnit.SECONDS.toMillis(30), connection.getConnectTimeout());
@@ -268,7 +268,7 @@ public class JmsConnectionTest {
         }
     }
 
-    //----- Currently these are unimplemented, these will fail after that ----//
+    //----- A ConnectionConsumer cannot be created without a ServerSessionPool ----//
 
     @Test(timeout=30000, expected=JMSException.class)
     public void testCreateConnectionConsumer() throws Exception {
@@ -19,6 +19,7 @@
 package org.apache.qpid.jms.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -50,6 +51,7 @@ import org.apache.qpid.jms.test.testpeer.matchers.types.EncodedDataMatcher;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.DescribedType;
 import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.junit.Test;
 
 public class BytesMessageIntegrationTest extends QpidJmsTestCase {
@@ -127,6 +129,72 @@ public class BytesMessageIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testReceiveLargeBytesMessageInSingleFrame() throws Exception {
+        doReceiveLargeBytesMessageTestImpl(0);
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveLargeBytesMessageSplitAcrossTransferFrames() throws Exception {
+        doReceiveLargeBytesMessageTestImpl(16 * 1024, null);
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveLargeBytesMessageSplitAcrossTransferFramesWithDeferredDecoding() throws Exception {
+        doReceiveLargeBytesMessageTestImpl(16 * 1024, "?amqp.deferredDecoding=true");
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveLargeBytesMessageSplitAcrossTransferFramesWithLazyDecoding() throws Exception {
+        doReceiveLargeBytesMessageTestImpl(16 * 1024, "?amqp.lazyDecoding=true");
+    }
+
+    private void doReceiveLargeBytesMessageTestImpl(int payloadFrameSize) throws Exception {
+        doReceiveLargeBytesMessageTestImpl(payloadFrameSize, null);
+    }
+
+    private void doReceiveLargeBytesMessageTestImpl(int payloadFrameSize, String options) throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, options);
+            connection.start();
+
+            testPeer.expectBegin(true);
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            PropertiesDescribedType properties = new PropertiesDescribedType();
+            properties.setContentType(Symbol.valueOf(AmqpMessageSupport.OCTET_STREAM_CONTENT_TYPE));
+
+            MessageAnnotationsDescribedType msgAnnotations = new MessageAnnotationsDescribedType();
+            msgAnnotations.setSymbolKeyedAnnotation(AmqpMessageSupport.JMS_MSG_TYPE, AmqpMessageSupport.JMS_BYTES_MESSAGE);
+
+            final byte[] expectedContent = new byte[512 * 1024];
+            for (int i = 0; i < expectedContent.length; ++i) {
+                expectedContent[i] = (byte) i;
+            }
+            DescribedType dataContent = new DataDescribedType(new Binary(expectedContent));
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, msgAnnotations, properties, null, dataContent, 1, false, false,
+                    greaterThanOrEqualTo(UnsignedInteger.ONE), 1, payloadFrameSize);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer messageConsumer = session.createConsumer(queue);
+            Message receivedMessage = messageConsumer.receive(3000);
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            assertNotNull(receivedMessage);
+            assertTrue(receivedMessage instanceof BytesMessage);
+            BytesMessage bytesMessage = (BytesMessage) receivedMessage;
+            assertEquals(expectedContent.length, bytesMessage.getBodyLength());
+            byte[] recievedContent = new byte[expectedContent.length];
+            int readBytes = bytesMessage.readBytes(recievedContent);
+            assertEquals(recievedContent.length, readBytes);
+            assertTrue(Arrays.equals(expectedContent, recievedContent));
+        }
+    }
+
     /**
      * Test that a message received from the test peer with a Data section and content type of
      * {@link AmqpMessageSupport#OCTET_STREAM_CONTENT_TYPE} is returned as a BytesMessage, verify it
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.jms.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.ServerSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.AmqpValueDescribedType;
+import org.junit.Test;
+
+public class ConnectionConsumerIntegrationTest extends QpidJmsTestCase {
+    private final IntegrationTestFixture testFixture = new IntegrationTestFixture();
+
+    @Test(timeout = 5000)
+    public void testMessagesDeliveredToServerSessionAndAcknowledged() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final CountDownLatch delivered = new CountDownLatch(3);
+            session.setMessageListener(new MessageListener() {
+
+                @Override
+                public void onMessage(Message message) {
+                    delivered.countDown();
+                }
+            });
+
+            Queue queue = session.createQueue("myQueue");
+            TestServerSessionPool pool = new TestServerSessionPool(session);
+
+            testPeer.expectBegin(true);
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 3);
+            for (int i = 0; i < 3; ++i) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            ConnectionConsumer consumer = connection.createConnectionConsumer(queue, null, pool, 2);
+            assertSame(pool, consumer.getServerSessionPool());
+            connection.start();
+
+            assertTrue("Messages not delivered to the ServerSession", delivered.await(3, TimeUnit.SECONDS));
+            testPeer.waitForAllHandlersToComplete(1000);
+            assertTrue(pool.starts.get() >= 2);
+
+            testPeer.expectDetach(true, true, true);
+            testPeer.expectEnd();
+            consumer.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testMessagesNotDeliveredUntilConnectionStarted() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final CountDownLatch delivered = new CountDownLatch(1);
+            session.setMessageListener(new MessageListener() {
+
+                @Override
+                public void onMessage(Message message) {
+                    delivered.countDown();
+                }
+            });
+
+            Queue queue = session.createQueue("myQueue");
+            TestServerSessionPool pool = new TestServerSessionPool(session);
+
+            testPeer.expectBegin(true);
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+
+            connection.createConnectionConsumer(queue, null, pool, 1);
+
+            assertTrue(!delivered.await(100, TimeUnit.MILLISECONDS));
+            assertEquals(0, pool.starts.get());
+
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            connection.start();
+
+            assertTrue("Message not delivered to the ServerSession", delivered.await(3, TimeUnit.SECONDS));
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testCreateDurableConnectionConsumerRequiresExplicitClientID() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            // Create a connection without an explicit clientId
+            Connection connection = testFixture.establishConnecton(testPeer, false, null, null, null, false);
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic("myTopic");
+
+            try {
+                connection.createDurableConnectionConsumer(topic, "mySubscription", null, new TestServerSessionPool(session), 1);
+                fail("Should have thrown an IllegalStateException");
+            } catch (IllegalStateException ex) {
+            }
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testCreateAndCloseDurableConnectionConsumer() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic("myTopic");
+
+            testPeer.expectBegin(true);
+            testPeer.expectDurableSubscriberAttach("myTopic", "mySubscription");
+            testPeer.expectLinkFlow();
+
+            ConnectionConsumer consumer = connection.createDurableConnectionConsumer(
+                topic, "mySubscription", null, new TestServerSessionPool(session), 1);
+
+            testPeer.expectDetach(false, true, false);
+            testPeer.expectEnd();
+            consumer.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    private static final class TestServerSessionPool implements ServerSessionPool, ServerSession {
+
+        private final Session session;
+        private final AtomicInteger starts = new AtomicInteger();
+
+        public TestServerSessionPool(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public ServerSession getServerSession() throws JMSException {
+            return this;
+        }
+
+        @Override
+        public Session getSession() throws JMSException {
+            return session;
+        }
+
+        @Override
+        public void start() throws JMSException {
+            starts.incrementAndGet();
+            session.run();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
 import javax.jms.ConnectionMetaData;
 import javax.jms.ExceptionListener;
 import javax.jms.IllegalStateException;
@@ -38,11 +39,15 @@ import javax.jms.Queue;
 import javax.jms.Session;
 
 import org.apache.qpid.jms.JmsConnection;
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.test.Wait;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
 import org.apache.qpid.jms.test.testpeer.basictypes.AmqpError;
 import org.apache.qpid.jms.test.testpeer.matchers.CoordinatorMatcher;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.apache.qpid.proton.amqp.transaction.TxnCapability;
 import org.junit.Test;
 
@@ -59,6 +64,41 @@ public class ConnectionIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 5000)
+    public void testCreateConnectionWithSharedEventLoop() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?transport.sharedEventLoop=true");
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            assertNotNull("Session should not be null", session);
+
+            // The provider work runs on the shared event loop instead of a thread of its own.
+            String providerAddress = "localhost:" + testPeer.getServerPort();
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("AmqpProvider") && thread.getName().contains(providerAddress)) {
+                    fail("Provider should not have created its own thread: " + thread.getName());
+                }
+            }
+
+            testPeer.expectClose();
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testCreateConnectionWithPooledDirectBuffers() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?transport.pooledDirectBuffers=true&transport.directBufferArenas=1&transport.leakDetectionLevel=simple");
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            assertNotNull("Session should not be null", session);
+
+            testPeer.expectClose();
+            connection.close();
+        }
+    }
+
     @Test(timeout = 5000)
     public void testCreateConnectionWithClientId() throws Exception {
         try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
@@ -136,6 +176,52 @@ public class ConnectionIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testLocalIdleTimeoutFailsSilentConnection() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            final CountDownLatch done = new CountDownLatch(1);
+
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.idleTimeout=200");
+            connection.setExceptionListener(new ExceptionListener() {
+
+                @Override
+                public void onException(JMSException exception) {
+                    done.countDown();
+                }
+            });
+
+            // The peer never sends anything after the open so the client gives up on it.
+            assertTrue("Connection should report failure", done.await(5, TimeUnit.SECONDS));
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testEmptyFramesSentForRemoteIdleTimeout() throws Exception {
+        try (final TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            testPeer.expectPlainConnect("guest", "guest", new Symbol[] { AmqpConnection.SOLE_CONNECTION_CAPABILITY },
+                                        null, null, UnsignedInteger.valueOf(200));
+            testPeer.expectBegin(true);
+
+            ConnectionFactory factory = new JmsConnectionFactory("amqp://localhost:" + testPeer.getServerPort());
+            Connection connection = factory.createConnection("guest", "guest");
+            connection.setClientID("clientName");
+
+            testPeer.waitForAllHandlersToComplete(1000);
+
+            assertTrue("No heartbeats were sent", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return testPeer.getEmptyFrameCount() >= 3;
+                }
+            }, 2000, 10));
+
+            testPeer.expectClose();
+            connection.close();
+        }
+    }
+
     @Test(timeout = 5000)
     public void testRemotelyEndConnectionWithSessionWithConsumer() throws Exception {
         final String BREAD_CRUMB = "ErrorMessage";
@@ -18,18 +18,41 @@
  */
 package org.apache.qpid.jms.integration;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Connection;
 import javax.jms.IllegalStateException;
+import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.Queue;
 import javax.jms.Session;
 
+import org.apache.qpid.jms.JmsBatchMessageListener;
+import org.apache.qpid.jms.JmsMessageConsumer;
+import org.apache.qpid.jms.exceptions.JmsOperationTimedOutException;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.test.Wait;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
 import org.apache.qpid.jms.test.testpeer.basictypes.AmqpError;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.AmqpValueDescribedType;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.ApplicationPropertiesDescribedType;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.PropertiesDescribedType;
+import org.apache.qpid.jms.test.testpeer.matchers.ModifiedMatcher;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.junit.Test;
 
 public class ConsumerIntegrationTest extends QpidJmsTestCase {
@@ -97,4 +120,451 @@ public class ConsumerIntegrationTest extends QpidJmsTestCase {
             consumer.close();
         }
     }
+
+    @Test(timeout = 5000)
+    public void testBatchedAcknowledgementsSentWhenBatchFillsAndOnClose() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.ackBatchSize=3&jms.ackBatchTimeout=60000");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 5);
+            for (int i = 0; i < 3; ++i) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            MessageConsumer consumer = session.createConsumer(queue);
+            for (int i = 0; i < 3; ++i) {
+                assertNotNull(consumer.receive(1000));
+            }
+
+            testPeer.waitForAllHandlersToComplete(1000);
+
+            // The last two are held back until the consumer is closed, the peer
+            // would fail the test if they arrived before being expected.
+            for (int i = 0; i < 2; ++i) {
+                assertNotNull(consumer.receive(1000));
+            }
+
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDetach(true, true, true);
+            consumer.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBatchedAcknowledgementsSentAfterTimeout() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.ackBatchSize=10&jms.ackBatchTimeout=50");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer consumer = session.createConsumer(queue);
+            assertNotNull(consumer.receive(1000));
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testReceiveBatchOfMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            final int count = 5;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), count);
+            for (int i = 0; i < count; ++i) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+            int received = 0;
+            while (received < count) {
+                List<Message> batch = consumer.receive(count, 1000);
+                assertFalse("Expected messages were not received", batch.isEmpty());
+                assertTrue(batch.size() <= count - received);
+                received += batch.size();
+            }
+
+            assertTrue(consumer.receive(count, -1).isEmpty());
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBatchMessageListenerReceivesAllMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            final int count = 7;
+            final int batchSize = 3;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), count);
+            for (int i = 0; i < count; ++i) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+            final CountDownLatch done = new CountDownLatch(count);
+            final AtomicBoolean oversized = new AtomicBoolean();
+            consumer.setBatchMessageListener(new JmsBatchMessageListener() {
+
+                @Override
+                public void onMessages(List<Message> messages) {
+                    if (messages.isEmpty() || messages.size() > batchSize) {
+                        oversized.set(true);
+                    }
+                    for (int i = 0; i < messages.size(); ++i) {
+                        done.countDown();
+                    }
+                }
+            }, batchSize);
+
+            assertTrue("Messages were not delivered", done.await(3, TimeUnit.SECONDS));
+            assertFalse("Listener was handed a batch of the wrong size", oversized.get());
+            assertNull(consumer.getMessageListener());
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testAdaptiveCreditWindowStartsWithinBounds() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.adaptiveCredit=true&amqp.adaptiveCreditMax=50");
+            testPeer.expectBegin(true);
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(50)));
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            testPeer.expectDetach(true, true, true);
+            consumer.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testClientSideSelectorFiltersNonMatchingMessage() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.clientSideSelectors=true");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            ApplicationPropertiesDescribedType appProperties = new ApplicationPropertiesDescribedType();
+            appProperties.setApplicationProperty("color", "red");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, appProperties, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectLinkFlow();
+            testPeer.expectDisposition(true, new ModifiedMatcher().withUndeliverableHere(equalTo(true)));
+
+            MessageConsumer consumer = session.createConsumer(queue, "color = 'blue'");
+            assertNull(consumer.receive(100));
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testClientSideSelectorDispatchesMatchingMessage() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.clientSideSelectors=true");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            ApplicationPropertiesDescribedType appProperties = new ApplicationPropertiesDescribedType();
+            appProperties.setApplicationProperty("color", "red");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, appProperties, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer consumer = session.createConsumer(queue, "color LIKE 'r%' AND JMSDeliveryMode = 'NON_PERSISTENT'");
+            assertNotNull(consumer.receive(1000));
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelListenerDispatchAcrossConsumersOfOneSession() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.listenerDispatchThreads=2");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                                                       1, false, false, greaterThanOrEqualTo(UnsignedInteger.ONE), 2);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer blocked = session.createConsumer(queue);
+            MessageConsumer other = session.createConsumer(queue);
+
+            final CountDownLatch otherDelivered = new CountDownLatch(1);
+            final AtomicBoolean overlapped = new AtomicBoolean();
+
+            // With the single Session thread the first listener would hold up the second
+            // one until it timed out, on the shared pool both run at the same time.
+            blocked.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    try {
+                        overlapped.set(otherDelivered.await(3, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                    }
+                }
+            });
+            other.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    otherDelivered.countDown();
+                }
+            });
+
+            testPeer.waitForAllHandlersToComplete(4000);
+            assertTrue("listeners were not dispatched in parallel", overlapped.get());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCreateConsumerTimesOutWhenNoAttachArrives() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.requestTimeout=200");
+            testPeer.expectBegin(true);
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttachButDoNotRespond();
+            testPeer.expectDetach(true, false, false);
+
+            try {
+                session.createConsumer(queue);
+                fail("Consumer create should have timed out");
+            } catch (JmsOperationTimedOutException expected) {
+                // Expected
+            }
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelListenerDispatchByGroupHonoursConnectionStop() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?jms.listenerDispatchThreads=2&jms.listenerDispatchOrderByGroup=true");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 3);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            final CountDownLatch firstArrived = new CountDownLatch(1);
+            final CountDownLatch stopped = new CountDownLatch(1);
+            final AtomicInteger delivered = new AtomicInteger();
+
+            consumer.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    if (delivered.incrementAndGet() == 1) {
+                        firstArrived.countDown();
+                        try {
+                            stopped.await(3, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                        }
+                    }
+                }
+            });
+
+            assertTrue(firstArrived.await(3, TimeUnit.SECONDS));
+            connection.stop();
+            stopped.countDown();
+
+            // Messages already handed on for dispatch must wait for the restart.
+            Thread.sleep(200);
+            assertEquals(1, delivered.get());
+
+            connection.start();
+            testPeer.waitForAllHandlersToComplete(3000);
+            assertEquals(3, delivered.get());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelListenerRecoverDoesNotRedeliverOtherInFlightDeliveries() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.listenerDispatchThreads=2");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                                                       1, false, false, greaterThanOrEqualTo(UnsignedInteger.ONE), 2);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer recovering = session.createConsumer(queue);
+            MessageConsumer other = session.createConsumer(queue);
+
+            final CountDownLatch otherInFlight = new CountDownLatch(1);
+            final CountDownLatch redelivered = new CountDownLatch(1);
+            final AtomicInteger recoveringDeliveries = new AtomicInteger();
+            final AtomicInteger otherDeliveries = new AtomicInteger();
+
+            // The recover waits for the other listener to finish, whose message is then
+            // acknowledged as consumed and must not be redelivered.
+            recovering.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    try {
+                        if (recoveringDeliveries.incrementAndGet() == 1) {
+                            otherInFlight.await(3, TimeUnit.SECONDS);
+                            session.recover();
+                        } else {
+                            redelivered.countDown();
+                        }
+                    } catch (Exception e) {
+                    }
+                }
+            });
+            other.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    otherDeliveries.incrementAndGet();
+                    otherInFlight.countDown();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                    }
+                }
+            });
+
+            assertTrue(redelivered.await(3, TimeUnit.SECONDS));
+            testPeer.waitForAllHandlersToComplete(2000);
+            assertEquals(2, recoveringDeliveries.get());
+            assertEquals(1, otherDeliveries.get());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelListenerDispatchByGroupDoesNotWaitOnBusyLane() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?jms.listenerDispatchThreads=2&jms.listenerDispatchOrderByGroup=true");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // Each transfer encodes the properties once, giving groups A, A and B in that
+            // order, where A and B map to different lanes.
+            final String[] groups = new String[] { "A", "A", "B" };
+            PropertiesDescribedType properties = new PropertiesDescribedType() {
+
+                private int encoded;
+
+                @Override
+                public Object getDescribed() {
+                    setGroupId(groups[encoded++ % groups.length]);
+                    return super.getDescribed();
+                }
+            };
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, properties, null, new AmqpValueDescribedType("content"), 3);
+            for (int i = 0; i < 3; ++i) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            final CountDownLatch otherGroupDelivered = new CountDownLatch(1);
+            final CountDownLatch delivered = new CountDownLatch(3);
+            final AtomicBoolean overlapped = new AtomicBoolean();
+
+            // The second message of group A waits on its busy lane, which must not hold up
+            // the message of group B behind it.
+            consumer.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    try {
+                        if ("B".equals(message.getStringProperty("JMSXGroupID"))) {
+                            otherGroupDelivered.countDown();
+                        } else if (delivered.getCount() == 3) {
+                            overlapped.set(otherGroupDelivered.await(3, TimeUnit.SECONDS));
+                        }
+                    } catch (Exception e) {
+                    }
+                    delivered.countDown();
+                }
+            });
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            testPeer.waitForAllHandlersToComplete(1000);
+            assertTrue("group B was held up behind the busy lane of group A", overlapped.get());
+        }
+    }
 }
@@ -26,24 +26,38 @@ import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.Connection;
 import javax.jms.DeliveryMode;
 import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
+import javax.jms.TextMessage;
 
+import org.apache.qpid.jms.JmsCompletionListener;
+import org.apache.qpid.jms.JmsMessageProducer;
+import org.apache.qpid.jms.exceptions.JmsOperationTimedOutException;
 import org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.test.Wait;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
 import org.apache.qpid.jms.test.testpeer.basictypes.AmqpError;
+import org.apache.qpid.jms.test.testpeer.describedtypes.Rejected;
 import org.apache.qpid.jms.test.testpeer.matchers.sections.MessageAnnotationsSectionMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.sections.MessageHeaderSectionMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.sections.MessagePropertiesSectionMatcher;
@@ -217,6 +231,263 @@ public class ProducerIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testSendMessagesWithCoalescedWrites() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.coalesceWrites=true");
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            final int count = 3;
+            for (int i = 0; i < count; ++i) {
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher("myMessage" + i));
+                testPeer.expectTransfer(messageMatcher);
+            }
+
+            for (int i = 0; i < count; ++i) {
+                producer.send(session.createTextMessage("myMessage" + i));
+            }
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendWithCompletionListenerSignalsInSendOrder() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+
+            final int count = 3;
+            for (int i = 0; i < count; ++i) {
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher("myMessage" + i));
+                if (i == count - 1) {
+                    testPeer.expectTransfer(messageMatcher, nullValue(), false, new Rejected(), true);
+                } else {
+                    testPeer.expectTransfer(messageMatcher);
+                }
+            }
+
+            final CountDownLatch done = new CountDownLatch(count);
+            final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+            JmsCompletionListener listener = new JmsCompletionListener() {
+
+                @Override
+                public void onCompletion(Message message) {
+                    try {
+                        completed.add(((TextMessage) message).getText());
+                    } catch (JMSException e) {
+                    }
+                    done.countDown();
+                }
+
+                @Override
+                public void onException(Message message, Exception exception) {
+                    try {
+                        completed.add("failed:" + ((TextMessage) message).getText());
+                    } catch (JMSException e) {
+                    }
+                    done.countDown();
+                }
+            };
+
+            for (int i = 0; i < count; ++i) {
+                producer.send(session.createTextMessage("myMessage" + i), listener);
+            }
+
+            assertTrue("Sends did not complete", done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("myMessage0", "myMessage1", "failed:myMessage2"), completed);
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendBatchWaitsForEachMessage() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+
+            final int count = 5;
+            List<Message> batch = new ArrayList<Message>();
+            for (int i = 0; i < count; ++i) {
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true).withDurable(equalTo(true)));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher("myMessage" + i));
+                if (i == 2) {
+                    testPeer.expectTransfer(messageMatcher, nullValue(), false, new Rejected(), true);
+                } else {
+                    testPeer.expectTransfer(messageMatcher);
+                }
+
+                batch.add(session.createTextMessage("myMessage" + i));
+            }
+
+            try {
+                producer.send(batch);
+                fail("Batch send should have reported the rejected message");
+            } catch (JMSException expected) {
+                // Expected
+            }
+
+            for (Message message : batch) {
+                assertNotNull(message.getJMSMessageID());
+            }
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendBatchWithCompletionListenerSignalsEachOutcome() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.maxInFlightAsyncSends=2");
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+
+            // More messages than may be in flight so the batch has to go out in parts.
+            final int count = 5;
+            List<Message> batch = new ArrayList<Message>();
+            for (int i = 0; i < count; ++i) {
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher("myMessage" + i));
+                if (i == 3) {
+                    testPeer.expectTransfer(messageMatcher, nullValue(), false, new Rejected(), true);
+                } else {
+                    testPeer.expectTransfer(messageMatcher);
+                }
+
+                batch.add(session.createTextMessage("myMessage" + i));
+            }
+
+            final CountDownLatch done = new CountDownLatch(count);
+            final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+            JmsCompletionListener listener = new JmsCompletionListener() {
+
+                @Override
+                public void onCompletion(Message message) {
+                    try {
+                        completed.add(((TextMessage) message).getText());
+                    } catch (JMSException e) {
+                    }
+                    done.countDown();
+                }
+
+                @Override
+                public void onException(Message message, Exception exception) {
+                    try {
+                        completed.add("failed:" + ((TextMessage) message).getText());
+                    } catch (JMSException e) {
+                    }
+                    done.countDown();
+                }
+            };
+
+            producer.send(batch, listener);
+
+            assertTrue("Sends did not complete", done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("myMessage0", "myMessage1", "myMessage2", "failed:myMessage3", "myMessage4"), completed);
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSessionCloseFailsPendingCompletionsOnSessionThread() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+
+            final int count = 2;
+            for (int i = 0; i < count; ++i) {
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher("myMessage" + i));
+                testPeer.expectTransferButDoNotRespond(messageMatcher);
+            }
+
+            final CountDownLatch done = new CountDownLatch(count);
+            final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+            final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+            JmsCompletionListener listener = new JmsCompletionListener() {
+
+                @Override
+                public void onCompletion(Message message) {
+                    try {
+                        completed.add(((TextMessage) message).getText());
+                    } catch (JMSException e) {
+                    }
+                    threads.add(Thread.currentThread());
+                    done.countDown();
+                }
+
+                @Override
+                public void onException(Message message, Exception exception) {
+                    try {
+                        completed.add("failed:" + ((TextMessage) message).getText());
+                    } catch (JMSException e) {
+                    }
+                    threads.add(Thread.currentThread());
+                    done.countDown();
+                }
+            };
+
+            for (int i = 0; i < count; ++i) {
+                producer.send(session.createTextMessage("myMessage" + i), listener);
+            }
+
+            testPeer.waitForAllHandlersToComplete(1000);
+
+            testPeer.expectEnd();
+            session.close();
+
+            assertTrue("Sends were not failed", done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("failed:myMessage0", "failed:myMessage1"), completed);
+            assertEquals(threads.get(0), threads.get(1));
+            assertNotSame(Thread.currentThread(), threads.get(0));
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
     /**
      * Test that after sending a message with the disableMessageTimestamp hint set, the
      * message object has a 0 JMSTimestamp value, and no creation-time field value was set.
@@ -562,4 +833,110 @@ public class ProducerIntegrationTest extends QpidJmsTestCase {
             producer.close();
         }
     }
+
+    @Test(timeout = 10000)
+    public void testSendTimesOutWhenNoDispositionArrives() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.sendTimeout=200");
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            String text = "myMessage";
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+            messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+            messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+            messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher(text));
+            testPeer.expectTransferButDoNotRespond(messageMatcher);
+
+            try {
+                producer.send(session.createTextMessage(text));
+                fail("Send should have timed out");
+            } catch (JmsOperationTimedOutException expected) {
+                // Expected
+            }
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendMessagesEncodedOnSendingThread() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.encodeOnSendingThread=true");
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            for (int i = 0; i < 3; ++i) {
+                String text = "myMessage" + i;
+                MessagePropertiesSectionMatcher propsMatcher = new MessagePropertiesSectionMatcher(true);
+                propsMatcher.withTo(equalTo("myQueue"));
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true).withDurable(equalTo(true)));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(propsMatcher);
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher(text));
+                testPeer.expectTransfer(messageMatcher);
+
+                producer.send(session.createTextMessage(text));
+            }
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMessageModifiedAfterSendEncodedOnSendingThreadIsNotAffected() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.encodeOnSendingThread=true");
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+            TextMessage message = session.createTextMessage();
+            for (int i = 0; i < 3; ++i) {
+                String text = "myMessage" + i;
+                TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+                messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+                messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+                messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+                messageMatcher.setMessageContentMatcher(new EncodedAmqpValueMatcher(text));
+                testPeer.expectTransfer(messageMatcher);
+            }
+
+            // The same message is changed straight after each async send, each transfer
+            // must still carry the content the message had when it was sent.
+            for (int i = 0; i < 3; ++i) {
+                message.setText("myMessage" + i);
+                producer.send(message);
+                assertNotNull(message.getJMSMessageID());
+            }
+            message.setText("notSent");
+
+            testPeer.waitForAllHandlersToComplete(1000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
 }
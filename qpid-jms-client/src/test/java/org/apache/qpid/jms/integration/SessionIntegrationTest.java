@@ -1395,4 +1395,40 @@ public class SessionIntegrationTest extends QpidJmsTestCase {
             connection.close();
         }
     }
+
+    @Test(timeout = 5000)
+    public void testRecoverDoesNotAlterPreviouslyReceivedMessage() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            Message received = consumer.receive(3000);
+            assertNotNull(received);
+            assertFalse(received.getJMSRedelivered());
+            assertEquals(1, received.getIntProperty("JMSXDeliveryCount"));
+
+            session.recover();
+
+            Message redelivered = consumer.receive(3000);
+            assertNotNull(redelivered);
+            assertTrue(redelivered.getJMSRedelivered());
+            assertEquals(2, redelivered.getIntProperty("JMSXDeliveryCount"));
+
+            // The message handed out before the recover keeps the values it was delivered with.
+            assertFalse(received.getJMSRedelivered());
+            assertEquals(1, received.getIntProperty("JMSXDeliveryCount"));
+
+            testPeer.expectClose();
+            connection.close();
+        }
+    }
 }
@@ -18,6 +18,8 @@ package org.apache.qpid.jms.message;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -214,6 +216,47 @@ public class JmsBytesMessageTest {
         assertTrue(Arrays.equals(content, resetBytes));
     }
 
+    @Test
+    public void testCopyOnWriteReadDoesNotAffectOriginal() throws Exception {
+        byte[] content = "myBytesData".getBytes();
+        JmsDefaultBytesMessageFacade facade = new JmsDefaultBytesMessageFacade(content);
+
+        JmsBytesMessage bytesMessage = new JmsBytesMessage(facade);
+        bytesMessage.onDispatch();
+
+        JmsBytesMessage view = (JmsBytesMessage) bytesMessage.copyOnWrite();
+        byte[] partialBytes = new byte[3];
+        view.readBytes(partialBytes);
+        assertTrue(Arrays.equals(Arrays.copyOf(content, 3), partialBytes));
+
+        // A second view of the original must start reading from the beginning.
+        JmsBytesMessage second = (JmsBytesMessage) bytesMessage.copyOnWrite();
+        byte[] allBytes = new byte[content.length];
+        second.readBytes(allBytes);
+        assertTrue(Arrays.equals(content, allBytes));
+    }
+
+    @Test
+    public void testCopyOnWriteReadDoesNotCopyFacade() throws Exception {
+        byte[] content = "myBytesData".getBytes();
+        JmsDefaultBytesMessageFacade facade = new JmsDefaultBytesMessageFacade(content);
+
+        JmsBytesMessage bytesMessage = new JmsBytesMessage(facade);
+        bytesMessage.onDispatch();
+
+        JmsBytesMessage view = (JmsBytesMessage) bytesMessage.copyOnWrite();
+        byte[] allBytes = new byte[content.length];
+        view.readBytes(allBytes);
+        assertTrue(Arrays.equals(content, allBytes));
+        view.reset();
+        assertEquals(content.length, view.getBodyLength());
+        assertSame(bytesMessage.getFacade(), view.getFacade());
+
+        view.clearBody();
+        assertNotSame(bytesMessage.getFacade(), view.getFacade());
+        assertEquals(content.length, bytesMessage.getBodyLength());
+    }
+
     /**
      * Test that calling {@link BytesMessage#reset()} on a new message which has been populated
      * causes the marker to be reset and makes the message read-only
@@ -18,8 +18,10 @@ package org.apache.qpid.jms.message;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -82,6 +84,47 @@ public class JmsMessageTest {
         }
     }
 
+    @Test
+    public void testCopyOnWriteSharesFacadeUntilModified() throws Exception {
+        JmsMessage msg = factory.createMessage();
+        msg.setJMSType(jmsType);
+        msg.setStringProperty("property", "value");
+        msg.onDispatch();
+
+        JmsMessage view = msg.copyOnWrite();
+        assertSame(msg.getFacade(), view.getFacade());
+        assertTrue(view.isReadOnlyBody());
+        assertEquals(jmsType, view.getJMSType());
+        assertEquals("value", view.getStringProperty("property"));
+
+        view.setJMSType("other");
+        assertNotSame(msg.getFacade(), view.getFacade());
+        assertEquals("other", view.getJMSType());
+        assertEquals(jmsType, msg.getJMSType());
+
+        JmsMessage other = msg.copyOnWrite();
+        other.clearProperties();
+        assertFalse(other.propertyExists("property"));
+        assertEquals("value", msg.getStringProperty("property"));
+    }
+
+    @Test
+    public void testCopyOnWriteOriginalUnsharesOnFirstWrite() throws Exception {
+        JmsTextMessage msg = (JmsTextMessage) factory.createTextMessage("sent");
+        msg.setStringProperty("property", "value");
+
+        // As on send, where the envelope holds the view and the application keeps the original.
+        JmsTextMessage view = (JmsTextMessage) msg.copyOnWrite();
+        assertSame(msg.getFacade(), view.getFacade());
+
+        msg.setText("changed");
+        msg.setStringProperty("property", "other");
+        assertNotSame(msg.getFacade(), view.getFacade());
+        assertEquals("sent", view.getText());
+        assertEquals("value", view.getStringProperty("property"));
+        assertEquals("changed", msg.getText());
+    }
+
     @Test
     public void testMessageSetToReadOnlyOnSend() throws Exception {
         JmsMessage msg = factory.createMessage();
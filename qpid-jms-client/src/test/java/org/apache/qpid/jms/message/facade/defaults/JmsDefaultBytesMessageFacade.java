@@ -106,6 +106,15 @@ public final class JmsDefaultBytesMessageFacade extends JmsDefaultMessageFacade
         return bytesIn;
     }
 
+    @Override
+    public InputStream createDetachedInputStream() throws JMSException {
+        if (bytesOut != null) {
+            throw new IllegalStateException("Body is being written to, cannot perform a read.");
+        }
+
+        return new ByteBufInputStream(content.duplicate());
+    }
+
     @Override
     public OutputStream getOutputStream() throws JMSException {
         if (bytesIn != null) {
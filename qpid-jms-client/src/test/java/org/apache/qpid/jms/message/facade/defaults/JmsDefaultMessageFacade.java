@@ -131,6 +131,11 @@ public class JmsDefaultMessageFacade implements JmsMessageFacade {
     public void onSend(boolean disableMessageId, boolean disableTimestamp, long producerTtl) throws JMSException {
     }
 
+    @Override
+    public Object encodeMessage() throws JMSException {
+        return null;
+    }
+
     @Override
     public void onDispatch() throws JMSException {
     }
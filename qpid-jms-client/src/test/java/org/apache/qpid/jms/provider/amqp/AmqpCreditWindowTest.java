@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test the AmqpCreditWindow used to size consumer link credit.
+ */
+public class AmqpCreditWindowTest extends QpidJmsTestCase {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testInitialWindowIsClamped() {
+        assertEquals(100, new AmqpCreditWindow(100, 1, 500, 0).getWindow());
+        assertEquals(500, new AmqpCreditWindow(1000, 1, 500, 0).getWindow());
+        assertEquals(10, new AmqpCreditWindow(5, 10, 500, 0).getWindow());
+    }
+
+    @Test
+    public void testWindowUnchangedUntilLatencyObserved() {
+        AmqpCreditWindow window = new AmqpCreditWindow(100, 1, 5000, 0);
+
+        long now = 0;
+        for (int i = 0; i < 1000; ++i) {
+            now += MILLIS;
+            assertFalse(window.onMessageConsumed(now));
+        }
+
+        assertEquals(100, window.getWindow());
+    }
+
+    @Test
+    public void testSlowConsumerShrinksWindow() {
+        AmqpCreditWindow window = new AmqpCreditWindow(1000, 1, 5000, 0);
+
+        // 10ms for credit to be answered, consuming 10 messages per second.
+        long now = 0;
+        window.onCreditIssued(0, now);
+        now += 10 * MILLIS;
+        window.onMessageArrived(100, now);
+
+        for (int i = 0; i < 20; ++i) {
+            now += 100 * MILLIS;
+            window.onMessageConsumed(now);
+        }
+
+        assertEquals(1, window.getWindow());
+    }
+
+    @Test
+    public void testFastConsumerGrowsWindow() {
+        AmqpCreditWindow window = new AmqpCreditWindow(10, 1, 5000, 0);
+
+        // 20ms for credit to be answered, consuming 10 messages per millisecond.
+        long now = 0;
+        window.onCreditIssued(0, now);
+        now += 20 * MILLIS;
+        window.onMessageArrived(100, now);
+
+        for (int i = 0; i < 5000; ++i) {
+            now += MILLIS / 10;
+            window.onMessageConsumed(now);
+        }
+
+        assertTrue(window.getWindow() > 300);
+        assertTrue(window.getWindow() <= 410);
+    }
+
+    @Test
+    public void testWindowLimitedToMaximum() {
+        AmqpCreditWindow window = new AmqpCreditWindow(10, 1, 50, 0);
+
+        long now = 0;
+        window.onCreditIssued(0, now);
+        now += 20 * MILLIS;
+        window.onMessageArrived(100, now);
+
+        for (int i = 0; i < 5000; ++i) {
+            now += MILLIS / 10;
+            window.onMessageConsumed(now);
+        }
+
+        assertEquals(50, window.getWindow());
+    }
+
+    @Test
+    public void testWindowLimitedByMemoryBudget() {
+        AmqpCreditWindow window = new AmqpCreditWindow(1000, 1, 5000, 64 * 1024);
+        assertEquals(1000, window.getWindow());
+
+        window.onMessageArrived(1024, 0);
+        assertEquals(64, window.getWindow());
+    }
+
+    @Test
+    public void testLatencyMeasuredFromFirstDeliveryOnNewCredit() {
+        AmqpCreditWindow window = new AmqpCreditWindow(10, 1, 5000, 0);
+
+        // Two deliveries were already on their way on the previous credit.
+        window.onCreditIssued(2, 0);
+        window.onMessageArrived(100, MILLIS);
+        window.onMessageArrived(100, 2 * MILLIS);
+        assertEquals(0.0, window.getReplenishLatency(), 0.0);
+
+        window.onMessageArrived(100, 30 * MILLIS);
+        assertEquals(30.0, window.getReplenishLatency(), 0.01);
+    }
+}
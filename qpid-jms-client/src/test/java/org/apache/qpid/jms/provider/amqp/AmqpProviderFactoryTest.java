@@ -67,6 +67,17 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
         assertTrue(provider instanceof AmqpProvider);
     }
 
+    @Test(timeout = 10000)
+    public void testCreateProviderWithEpollScheme() throws IOException, Exception {
+        URI epollURI = new URI("amqp+epoll://localhost:" + testPeer.getServerPort());
+        Provider provider = AmqpProviderFactory.create(epollURI);
+        assertNotNull(provider);
+        assertTrue(provider instanceof AmqpProvider);
+
+        AmqpProvider amqpProvider = (AmqpProvider) provider;
+        assertEquals("epoll", amqpProvider.getTransportType());
+    }
+
     @Test(timeout = 10000, expected=IllegalArgumentException.class)
     public void testCreateProviderFailsWithBadOption() throws IOException, Exception {
         URI badOptionsURI = new URI(peerURI.toString() + "?amqp.badOption=true");
@@ -80,7 +91,9 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
             "&amqp.presettleProducers=true" +
             "&amqp.traceFrames=true" +
             "&amqp.traceBytes=true" +
-            "&amqp.channelMax=32");
+            "&amqp.channelMax=32" +
+            "&amqp.idleTimeout=30000" +
+            "&amqp.deferredDecoding=true");
         Provider provider = AmqpProviderFactory.create(configuredURI);
         assertNotNull(provider);
         assertTrue(provider instanceof AmqpProvider);
@@ -92,6 +105,8 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
         assertEquals(true, amqpProvider.isTraceBytes());
         assertEquals(true, amqpProvider.isTraceFrames());
         assertEquals(32, amqpProvider.getChannelMax());
+        assertEquals(30000, amqpProvider.getIdleTimeout());
+        assertEquals(true, amqpProvider.isDeferredDecoding());
     }
 
     @Test(timeout = 10000)
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.junit.Test;
+
+/**
+ * Test the AmqpWritableBuffer used to encode outgoing messages.
+ */
+public class AmqpWritableBufferTest extends QpidJmsTestCase {
+
+    @Test
+    public void testPrimitiveWritesAdvancePosition() {
+        ByteBuf buffer = Unpooled.buffer(4);
+        AmqpWritableBuffer writable = new AmqpWritableBuffer(buffer);
+
+        writable.put((byte) 1);
+        writable.putShort((short) 2);
+        writable.putInt(3);
+        writable.putLong(4);
+        writable.putFloat(5.0f);
+        writable.putDouble(6.0);
+        writable.put(new byte[] { 7, 8 }, 0, 2);
+        writable.put(ByteBuffer.wrap(new byte[] { 9 }));
+
+        assertEquals(1 + 2 + 4 + 8 + 4 + 8 + 2 + 1, writable.position());
+        assertEquals(writable.position(), buffer.readableBytes());
+        assertTrue(writable.hasRemaining());
+        assertEquals(buffer.maxCapacity(), writable.limit());
+        assertEquals(buffer.maxCapacity() - writable.position(), writable.remaining());
+    }
+
+    @Test
+    public void testSetPositionBeyondCapacityGrowsBuffer() {
+        ByteBuf buffer = Unpooled.buffer(4);
+        AmqpWritableBuffer writable = new AmqpWritableBuffer(buffer);
+
+        writable.position(16);
+        assertEquals(16, writable.position());
+        assertTrue(buffer.capacity() >= 16);
+
+        writable.position(2);
+        writable.putShort((short) 1);
+        assertEquals(4, writable.position());
+    }
+
+    @Test
+    public void testEncodeLargeMessageMatchesArrayEncoding() {
+        byte[] payload = new byte[256 * 1024];
+        Arrays.fill(payload, (byte) 'a');
+
+        Message message = Message.Factory.create();
+        message.setBody(new Data(new Binary(payload)));
+        message.setMessageId("ID:1");
+
+        ByteBuf buffer = Unpooled.buffer(1024);
+        ((MessageImpl) message).encode(new AmqpWritableBuffer(buffer));
+
+        byte[] expected = new byte[payload.length + 1024];
+        int expectedSize = message.encode(expected, 0, expected.length);
+
+        byte[] actual = new byte[buffer.readableBytes()];
+        buffer.readBytes(actual);
+
+        assertEquals(expectedSize, actual.length);
+        assertArrayEquals(Arrays.copyOf(expected, expectedSize), actual);
+
+        Message decoded = Message.Factory.create();
+        decoded.decode(actual, 0, actual.length);
+        assertEquals("ID:1", decoded.getMessageId());
+        assertEquals(payload.length, ((Data) decoded.getBody()).getValue().getLength());
+    }
+}
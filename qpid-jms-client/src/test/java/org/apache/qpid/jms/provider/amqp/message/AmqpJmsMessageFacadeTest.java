@@ -45,6 +45,7 @@ import org.apache.qpid.jms.JmsQueue;
 import org.apache.qpid.jms.JmsTemporaryQueue;
 import org.apache.qpid.jms.JmsTopic;
 import org.apache.qpid.jms.message.facade.JmsMessageFacade;
+import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.test.testpeer.describedtypes.sections.PropertiesDescribedType;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.amqp.Binary;
@@ -102,6 +103,32 @@ public class AmqpJmsMessageFacadeTest extends AmqpJmsMessageTypesTestCase  {
         assertTrue("Durable not as expected", underlying.getHeader().getDurable());
     }
 
+    @Test
+    public void testNewMessageIsLazyOnlyWhenLazyDecodingEnabled() {
+        AmqpJmsMessageFacade amqpMessageFacade = createNewMessageFacade();
+        assertFalse(amqpMessageFacade.getAmqpMessage() instanceof AmqpLazyMessage);
+
+        AmqpConnection connection = createMockAmqpConnection();
+        Mockito.when(connection.isLazyDecoding()).thenReturn(true);
+        amqpMessageFacade = new AmqpJmsMessageFacade(connection);
+        assertTrue(amqpMessageFacade.getAmqpMessage() instanceof AmqpLazyMessage);
+    }
+
+    @Test
+    public void testCopyOfReceivedMessageWithoutLazyDecodingCopiesApplicationProperties() throws Exception {
+        Message message = Proton.message();
+        Map<String, Object> applicationPropertiesMap = new HashMap<String, Object>();
+        applicationPropertiesMap.put(TEST_PROP_A, TEST_VALUE_STRING_A);
+        message.setApplicationProperties(new ApplicationProperties(applicationPropertiesMap));
+
+        AmqpJmsMessageFacade amqpMessageFacade = createReceivedMessageFacade(createMockAmqpConsumer(), message);
+        AmqpJmsMessageFacade copy = amqpMessageFacade.copy();
+
+        assertFalse(copy.getAmqpMessage() instanceof AmqpLazyMessage);
+        assertEquals(TEST_VALUE_STRING_A, copy.getApplicationProperty(TEST_PROP_A));
+        assertEquals(TEST_VALUE_STRING_A, copy.getAmqpMessage().getApplicationProperties().getValue().get(TEST_PROP_A));
+    }
+
     @Test
     public void testNewMessageHasUnderlyingHeaderSectionWithNoTtlSet() {
         AmqpJmsMessageFacade amqpMessageFacade = createNewMessageFacade();
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.qpid.jms.JmsQueue;
+import org.apache.qpid.jms.selector.SelectorParser;
+import org.junit.Test;
+
+/**
+ * Tests for the Filterable view of an AMQP message used to evaluate selectors.
+ */
+public class AmqpJmsMessageFilterableTest extends AmqpJmsMessageTypesTestCase {
+
+    @Test
+    public void testApplicationPropertiesAreReturned() throws Exception {
+        AmqpJmsMessageFacade facade = createNewMessageFacade();
+        facade.setApplicationProperty("color", "red");
+        facade.setApplicationProperty("weight", 10);
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable(facade);
+        assertEquals("red", filterable.getProperty("color"));
+        assertEquals(10, filterable.getProperty("weight"));
+        assertNull(filterable.getProperty("size"));
+    }
+
+    @Test
+    public void testHeadersHaveSelectorValues() throws Exception {
+        AmqpJmsMessageFacade facade = createNewMessageFacade();
+        facade.setPersistent(true);
+        facade.setType("order");
+        facade.setPriority((byte) 7);
+        facade.setGroupId("group");
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable(facade);
+        assertEquals("PERSISTENT", filterable.getProperty("JMSDeliveryMode"));
+        assertEquals("order", filterable.getProperty("JMSType"));
+        assertEquals(7, filterable.getProperty("JMSPriority"));
+        assertEquals("group", filterable.getProperty("JMSXGroupID"));
+    }
+
+    @Test
+    public void testDestinationsAreNotSelectable() throws Exception {
+        AmqpJmsMessageFacade facade = createNewMessageFacade();
+        facade.setDestination(new JmsQueue("queue"));
+        facade.setReplyTo(new JmsQueue("reply"));
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable(facade);
+        assertNull(filterable.getProperty("JMSDestination"));
+        assertNull(filterable.getProperty("JMSReplyTo"));
+    }
+
+    @Test
+    public void testSelectorEvaluation() throws Exception {
+        AmqpJmsMessageFacade facade = createNewMessageFacade();
+        facade.setPersistent(false);
+        facade.setApplicationProperty("color", "red");
+        facade.setApplicationProperty("weight", 10);
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable(facade);
+        assertTrue(SelectorParser.parse("color = 'red' AND weight > 5").matches(filterable));
+        assertTrue(SelectorParser.parse("JMSDeliveryMode = 'NON_PERSISTENT'").matches(filterable));
+        assertFalse(SelectorParser.parse("color LIKE 'bl%'").matches(filterable));
+        assertFalse(SelectorParser.parse("size IS NOT NULL").matches(filterable));
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+
+public class AmqpLazyMessageTest extends QpidJmsTestCase {
+
+    @Test
+    public void testDecodeDefersApplicationPropertiesAndBody() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+
+        assertTrue(message.isApplicationPropertiesEncoded());
+        assertTrue(message.isBodyEncoded());
+
+        assertEquals("ID:1", message.getMessageId());
+        assertEquals(Boolean.TRUE, message.getHeader().getDurable());
+        assertEquals("value", message.getMessageAnnotations().getValue().get(Symbol.valueOf("annotation")));
+
+        assertTrue(message.isApplicationPropertiesEncoded());
+        assertTrue(message.isBodyEncoded());
+
+        assertEquals("bar", message.getApplicationProperties().getValue().get("foo"));
+        assertFalse(message.isApplicationPropertiesEncoded());
+        assertTrue(message.isBodyEncoded());
+
+        assertEquals("myText", ((AmqpValue) message.getBody()).getValue());
+        assertFalse(message.isBodyEncoded());
+
+        assertEquals("footerValue", message.getFooter().getValue().get("footerKey"));
+    }
+
+    @Test
+    public void testDecodeWithoutLazySections() {
+        Message source = Message.Factory.create();
+        source.setMessageId("ID:1");
+        byte[] encoded = encode(source);
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+
+        assertFalse(message.isApplicationPropertiesEncoded());
+        assertFalse(message.isBodyEncoded());
+        assertEquals("ID:1", message.getMessageId());
+        assertNull(message.getApplicationProperties());
+        assertNull(message.getBody());
+    }
+
+    @Test
+    public void testDecodeDoesNotKeepReferenceToSourceArray() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+        Arrays.fill(encoded, (byte) 0);
+
+        assertEquals("bar", message.getApplicationProperties().getValue().get("foo"));
+        assertEquals("myText", ((AmqpValue) message.getBody()).getValue());
+    }
+
+    @Test
+    public void testDecodeFromOffset() {
+        byte[] encoded = encode(createFullMessage());
+        byte[] padded = new byte[encoded.length + 20];
+        System.arraycopy(encoded, 0, padded, 10, encoded.length);
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(padded, 10, encoded.length);
+
+        assertEquals("ID:1", message.getMessageId());
+        assertEquals("myText", ((AmqpValue) message.getBody()).getValue());
+    }
+
+    @Test
+    public void testEncodeWithoutDecodingProducesOriginalBytes() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+
+        byte[] reencoded = encode(message);
+
+        assertTrue(message.isApplicationPropertiesEncoded());
+        assertTrue(message.isBodyEncoded());
+        assertArrayEquals(encoded, reencoded);
+    }
+
+    @Test
+    public void testEncodeAfterModifyingHeaderKeepsEncodedBody() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+        message.setMessageId("ID:2");
+        message.setDurable(false);
+
+        byte[] reencoded = encode(message);
+        assertTrue(message.isBodyEncoded());
+
+        Message decoded = Message.Factory.create();
+        decoded.decode(reencoded, 0, reencoded.length);
+
+        assertEquals("ID:2", decoded.getMessageId());
+        assertFalse(decoded.isDurable());
+        assertEquals("bar", decoded.getApplicationProperties().getValue().get("foo"));
+        assertEquals("myText", ((AmqpValue) decoded.getBody()).getValue());
+        assertEquals("footerValue", decoded.getFooter().getValue().get("footerKey"));
+    }
+
+    @Test
+    public void testSetBodyReplacesEncodedBody() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+        message.setBody(new Data(new Binary(new byte[] { 1, 2, 3 })));
+
+        assertFalse(message.isBodyEncoded());
+
+        byte[] reencoded = encode(message);
+        Message decoded = Message.Factory.create();
+        decoded.decode(reencoded, 0, reencoded.length);
+
+        assertEquals(new Binary(new byte[] { 1, 2, 3 }), ((Data) decoded.getBody()).getValue());
+    }
+
+    @Test
+    public void testCopyEncodedSectionsInto() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+
+        AmqpLazyMessage target = new AmqpLazyMessage();
+        target.setBody(new AmqpValue("other"));
+
+        assertTrue(message.copyEncodedBodyInto(target));
+        assertTrue(message.copyEncodedApplicationPropertiesInto(target));
+
+        assertTrue(target.isBodyEncoded());
+        assertTrue(target.isApplicationPropertiesEncoded());
+        assertEquals("myText", ((AmqpValue) target.getBody()).getValue());
+        assertEquals("bar", target.getApplicationProperties().getValue().get("foo"));
+
+        // Source is unaffected by the target having decoded its copy.
+        assertTrue(message.isBodyEncoded());
+        assertTrue(message.isApplicationPropertiesEncoded());
+
+        message.getBody();
+        assertFalse(message.copyEncodedBodyInto(target));
+    }
+
+    @Test
+    public void testClearDropsEncodedSections() {
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+        message.clear();
+
+        assertFalse(message.isApplicationPropertiesEncoded());
+        assertFalse(message.isBodyEncoded());
+        assertNull(message.getBody());
+        assertNull(message.getApplicationProperties());
+        assertNull(message.getFooter());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDecodeOfMalformedMessageFails() {
+        byte[] encoded = encode(createFullMessage());
+
+        // Truncating the message leaves the footer size pointing past the end, which
+        // should be reported by the decode just as a full decode would.
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length - 10);
+    }
+
+    @Test
+    public void testDecodeOfLargeBody() {
+        byte[] payload = new byte[64 * 1024];
+        Arrays.fill(payload, (byte) 'b');
+
+        Message source = Message.Factory.create();
+        source.setMessageId("ID:1");
+        source.setBody(new Data(new Binary(payload)));
+        byte[] encoded = encode(source);
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+
+        assertTrue(message.isBodyEncoded());
+        Binary body = ((Data) message.getBody()).getValue();
+        assertNotNull(body);
+        assertEquals(new Binary(payload), body);
+    }
+
+    private Message createFullMessage() {
+        Message message = Message.Factory.create();
+        message.setDurable(true);
+        message.setMessageId("ID:1");
+
+        Map<Symbol, Object> annotations = new HashMap<Symbol, Object>();
+        annotations.put(Symbol.valueOf("annotation"), "value");
+        message.setMessageAnnotations(new MessageAnnotations(annotations));
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("foo", "bar");
+        message.setApplicationProperties(new ApplicationProperties(properties));
+
+        message.setBody(new AmqpValue("myText"));
+
+        Map<Object, Object> footer = new HashMap<Object, Object>();
+        footer.put("footerKey", "footerValue");
+        message.setFooter(new Footer(footer));
+
+        return message;
+    }
+
+    private byte[] encode(Message message) {
+        byte[] buffer = new byte[128 * 1024];
+        int length = message.encode(buffer, 0, buffer.length);
+        return Arrays.copyOf(buffer, length);
+    }
+}
@@ -16,12 +16,15 @@
  */
 package org.apache.qpid.jms.provider.failover;
 
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
@@ -35,6 +38,7 @@ import org.apache.qpid.jms.JmsConnectionListener;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.meta.JmsResource;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
+import org.apache.qpid.jms.provider.mock.MockRemotePeer;
 import org.apache.qpid.jms.provider.mock.ResourceLifecycleFilter;
 import org.junit.After;
 import org.junit.Before;
@@ -234,6 +238,57 @@ public class FailoverProviderOfflineBehaviorTest extends FailoverProviderTestSup
         connection.close();
     }
 
+    @Test(timeout=10000)
+    public void testRequestReplayedBeforeTimeoutDoesNotFail() throws Exception {
+        JmsConnectionFactory factory = new JmsConnectionFactory(
+            "failover:(mock://localhost)?jms.requestTimeout=1000&failover.reconnectDelay=10&failover.useReconnectBackOff=false");
+        connection = (JmsConnection) factory.createConnection();
+        connection.addConnectionListener(new ConnectionInterruptionListener());
+        connection.start();
+
+        mockPeer.shutdown();
+        connectionInterrupted.await(9, TimeUnit.SECONDS);
+
+        // Keep the offline peer registered so reconnect attempts are refused until restarted.
+        MockRemotePeer.INSTANCE = mockPeer;
+
+        // Session create completes on the remote only after the original offline deadline.
+        mockPeer.setResourceCreateFilter(new ResourceLifecycleFilter() {
+
+            @Override
+            public void onLifecycleEvent(JmsResource resource) throws Exception {
+                if (resource instanceof JmsSessionInfo) {
+                    TimeUnit.MILLISECONDS.sleep(600);
+                }
+            }
+        });
+
+        final CountDownLatch sessionCreated = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread creator = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    sessionCreated.countDown();
+                } catch (Throwable error) {
+                    failure.set(error);
+                }
+            }
+        });
+        creator.start();
+
+        TimeUnit.MILLISECONDS.sleep(700);
+        mockPeer.start();
+
+        creator.join(5000);
+        assertNull("Session create should not have timed out", failure.get());
+        assertTrue(sessionCreated.await(1, TimeUnit.SECONDS));
+
+        connection.close();
+    }
+
     private class ConnectionInterruptionListener implements JmsConnectionListener {
         @Override
         public void onConnectionInterrupted(URI remoteURI) {
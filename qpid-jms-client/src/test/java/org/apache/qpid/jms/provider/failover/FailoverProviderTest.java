@@ -26,6 +26,7 @@ import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -41,6 +42,7 @@ import javax.jms.Queue;
 import javax.jms.Session;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsMessageProducer;
 import org.apache.qpid.jms.meta.JmsConnectionInfo;
 import org.apache.qpid.jms.meta.JmsConsumerInfo;
 import org.apache.qpid.jms.meta.JmsProducerInfo;
@@ -377,6 +379,23 @@ public class FailoverProviderTest extends FailoverProviderTestSupport {
         assertEquals(1, mockPeer.getContextStats().getSendCalls());
     }
 
+    @Test(timeout = 30000)
+    public void testSendBatchPassthrough() throws Exception {
+        JmsConnectionFactory factory = new JmsConnectionFactory(
+            "failover:(mock://localhost)");
+
+        Connection connection = factory.createConnection();
+        connection.start();
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Queue queue = session.createQueue(getTestName());
+        JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+        producer.send(Arrays.asList(session.createMessage(), session.createMessage(), session.createMessage()));
+
+        connection.close();
+
+        assertEquals(3, mockPeer.getContextStats().getSendCalls());
+    }
+
     @Test(timeout=10000)
     public void testTimeoutsSetFromConnectionInfo() throws IOException, JMSException {
         final long CONNECT_TIMEOUT = TimeUnit.SECONDS.toMillis(4);
@@ -18,6 +18,7 @@ package org.apache.qpid.jms.provider.mock;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -281,6 +282,26 @@ public class MockProvider implements Provider {
         });
     }
 
+    @Override
+    public void send(final List<JmsOutboundMessageDispatch> envelopes, final List<AsyncResult> requests) throws IOException, JMSException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                for (AsyncResult request : requests) {
+                    try {
+                        checkClosed();
+                        stats.recordSendCall();
+                        request.onSuccess();
+                    } catch (Exception error) {
+                        request.onFailure(error);
+                    }
+                }
+            }
+        });
+    }
+
     @Override
     public void acknowledge(final JmsSessionId sessionId, final AsyncResult request) throws IOException, JMSException {
         checkClosed();
@@ -317,6 +338,26 @@ public class MockProvider implements Provider {
         });
     }
 
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, final AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+                    for (int i = 0; i < envelopes.size(); ++i) {
+                        stats.recoordAcknowledgeCall();
+                    }
+                    request.onSuccess();
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void commit(final JmsSessionId sessionId, final AsyncResult request) throws IOException, JMSException {
         checkClosed();
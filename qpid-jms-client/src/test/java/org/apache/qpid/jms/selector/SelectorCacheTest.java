@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.junit.Test;
+
+public class SelectorCacheTest {
+
+    @Test
+    public void testParseIsCached() throws Exception {
+        SelectorCache cache = new SelectorCache();
+
+        BooleanExpression first = cache.parse("a = 1");
+        BooleanExpression second = cache.parse("a = 1");
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals("a = 1".length(), cache.getWeight());
+    }
+
+    @Test
+    public void testCompileIsCachedAlongsideParse() throws Exception {
+        SelectorCache cache = new SelectorCache();
+
+        BooleanExpression parsed = cache.parse("a = 1 AND b LIKE 'x%'");
+        BooleanExpression compiled = cache.compile("a = 1 AND b LIKE 'x%'");
+
+        assertNotSame(parsed, compiled);
+        assertSame(compiled, cache.compile("a = 1 AND b LIKE 'x%'"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testInvalidSelectorsAreNotCached() throws Exception {
+        SelectorCache cache = new SelectorCache();
+
+        for (int i = 0; i < 2; ++i) {
+            try {
+                cache.parse("a = ");
+                fail("Should have failed to parse");
+            } catch (FilterException e) {
+            }
+        }
+
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedWhenFull() throws Exception {
+        SelectorCache cache = new SelectorCache(2, SelectorCache.DEFAULT_MAX_WEIGHT);
+
+        BooleanExpression a = cache.parse("a = 1");
+        cache.parse("b = 1");
+        cache.parse("a = 1");
+        cache.parse("c = 1");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        assertSame(a, cache.parse("a = 1"));
+        long misses = cache.getMissCount();
+        cache.parse("b = 1");
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvictedWhenOverWeight() throws Exception {
+        SelectorCache cache = new SelectorCache(100, 12);
+
+        cache.parse("a = 1");
+        cache.parse("b = 1");
+        assertEquals(2, cache.size());
+        assertEquals(10, cache.getWeight());
+
+        cache.parse("c = 1");
+        assertEquals(2, cache.size());
+        assertEquals(10, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.parse("name = 'a very long selector'");
+        assertEquals(2, cache.size());
+        assertEquals(10, cache.getWeight());
+    }
+
+    @Test
+    public void testReducingBoundsEvicts() throws Exception {
+        SelectorCache cache = new SelectorCache();
+
+        for (int i = 0; i < 10; ++i) {
+            cache.parse("a = " + i);
+        }
+        assertEquals(10, cache.size());
+
+        cache.setMaxEntries(4);
+        assertEquals(4, cache.size());
+        assertEquals(6, cache.getEvictionCount());
+
+        cache.setMaxEntries(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+
+        cache.parse("a = 1");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        SelectorCache cache = new SelectorCache();
+
+        cache.parse("a = 1");
+        cache.parse("b = 1");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxEntries() {
+        new SelectorCache().setMaxEntries(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxWeight() {
+        new SelectorCache().setMaxWeight(-1);
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentAccessStaysWithinBounds() throws Exception {
+        final SelectorCache cache = new SelectorCache(16, SelectorCache.DEFAULT_MAX_WEIGHT);
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < threads; ++t) {
+                final int seed = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < 2000; ++i) {
+                            String selector = "prop = " + ((i * 7 + seed) % 40);
+                            if (cache.parse(selector) == null || cache.compile(selector) == null) {
+                                return Boolean.FALSE;
+                            }
+                        }
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(20, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= 16);
+        assertFalse(cache.getEvictionCount() == 0);
+        assertEquals(threads * 2000 * 2, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getWeight() <= cache.size() * "prop = 00".length());
+    }
+}
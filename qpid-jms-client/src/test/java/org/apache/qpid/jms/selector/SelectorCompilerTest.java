@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.ComparisonExpression;
+import org.apache.qpid.jms.selector.filter.ConstantExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.filter.LogicExpression;
+import org.apache.qpid.jms.selector.filter.PropertyExpression;
+
+/**
+ * Runs all the selector parser tests against both the parsed and the compiled form
+ * of each selector, along with checks on the rewrites the compiler performs.
+ */
+public class SelectorCompilerTest extends SelectorParserTest {
+
+    @Override
+    protected void assertSelector(MockMessage message, String text, boolean expected) throws FilterException {
+        super.assertSelector(message, text, expected);
+
+        BooleanExpression compiled = SelectorCompiler.compile(text);
+        assertEquals("Compiled selector for: " + text, expected, compiled.matches(message));
+    }
+
+    public void testCompileDoesNotModifyParsedSelector() throws Exception {
+        BooleanExpression parsed = SelectorParser.parse("name LIKE 'J%' AND rank > 1 + 2");
+        String before = parsed.toString();
+
+        SelectorCompiler.compile(parsed);
+
+        assertEquals(before, parsed.toString());
+        assertSame(parsed, SelectorParser.parse("name LIKE 'J%' AND rank > 1 + 2"));
+    }
+
+    public void testConstantExpressionsAreFolded() throws Exception {
+        assertSame(ConstantExpression.TRUE, SelectorCompiler.compile("1 + 2 = 3"));
+        assertSame(ConstantExpression.FALSE, SelectorCompiler.compile("'a' = 'b'"));
+        assertSame(ConstantExpression.FALSE, SelectorCompiler.compile("2 > 3 AND rank > 100"));
+        assertSame(ConstantExpression.TRUE, SelectorCompiler.compile("2 < 3 OR rank > 100"));
+
+        BooleanExpression compiled = SelectorCompiler.compile("rank > 10 * 10");
+        assertTrue(compiled instanceof ComparisonExpression);
+        ConstantExpression constant = (ConstantExpression) ((ComparisonExpression) compiled).getRight();
+        assertEquals(Integer.valueOf(100), constant.getValue());
+
+        MockMessage message = createMessage();
+        assertSelector(message, "rank > 10 * 10", true);
+        assertSelector(message, "rank > 10 * 100", false);
+        assertSelector(message, "TRUE AND rank = 123", true);
+        assertSelector(message, "FALSE OR rank = 123", true);
+        assertSelector(message, "NOT (1 = 2) AND name = 'James'", true);
+    }
+
+    public void testConstantOnTheLeftOfComparison() throws Exception {
+        MockMessage message = createMessage();
+
+        BooleanExpression compiled = SelectorCompiler.compile("100 < rank");
+        assertTrue(compiled instanceof ComparisonExpression);
+        assertTrue(((ComparisonExpression) compiled).getLeft() instanceof PropertyExpression);
+        assertEquals(">", ((ComparisonExpression) compiled).getExpressionSymbol());
+
+        assertSelector(message, "100 < rank", true);
+        assertSelector(message, "123 <= rank", true);
+        assertSelector(message, "123 > rank", false);
+        assertSelector(message, "'James' = name", true);
+    }
+
+    public void testNumericComparisonsAcrossPropertyTypes() throws Exception {
+        MockMessage message = createMessage();
+
+        String[] properties = {"byteProp", "shortProp", "intProp", "longProp", "floatProp", "doubleProp"};
+        for (String property : properties) {
+            assertSelector(message, property + " = 123", true);
+            assertSelector(message, property + " = 123.0", true);
+            assertSelector(message, property + " > 122", true);
+            assertSelector(message, property + " > 122.5", true);
+            assertSelector(message, property + " >= 123", true);
+            assertSelector(message, property + " < 123", false);
+            assertSelector(message, property + " <= 122.9", false);
+            assertSelector(message, property + " <> 124", true);
+            assertSelector(message, "NOT (" + property + " > 200)", true);
+            assertSelector(message, property + " > 4294967296", false);
+        }
+
+        assertSelector(message, "name > 1", false);
+        assertSelector(message, "name = 1", false);
+        assertSelector(message, "trueProp = 1", false);
+        assertSelector(message, "NOT (name > 1)", true);
+    }
+
+    public void testNullHandlingMatchesParsedSelector() throws Exception {
+        MockMessage message = createMessage();
+
+        assertSelector(message, "missing = 1", false);
+        assertSelector(message, "missing > 1", false);
+        assertSelector(message, "NOT (missing > 1)", false);
+        assertSelector(message, "NOT (missing = 1)", true);
+        assertSelector(message, "missing = 'x'", false);
+        assertSelector(message, "NOT (missing = 'x')", true);
+        assertSelector(message, "missing > 1 OR name = 'James'", true);
+        assertSelector(message, "NOT (missing > 1 AND name = 'Bob')", false);
+    }
+
+    public void testCheaperOperandEvaluatedFirst() throws Exception {
+        BooleanExpression compiled = SelectorCompiler.compile("location LIKE '%o_don' AND rank > 5");
+
+        assertTrue(compiled instanceof LogicExpression);
+        LogicExpression and = (LogicExpression) compiled;
+        assertEquals("rank", ((PropertyExpression) ((ComparisonExpression) and.getLeft()).getLeft()).getName());
+
+        MockMessage message = createMessage();
+        assertSelector(message, "location LIKE '%o_don' AND rank > 5", true);
+        assertSelector(message, "location LIKE '%o_don' AND rank > 500", false);
+        assertSelector(message, "location LIKE '%x_don' OR rank > 5", true);
+    }
+
+    public void testOperandsNotReorderedPastArithmetic() throws Exception {
+        BooleanExpression compiled = SelectorCompiler.compile("name = 'James' AND (name + 1) > 5");
+
+        LogicExpression and = (LogicExpression) compiled;
+        assertEquals("name", ((PropertyExpression) ((ComparisonExpression) and.getLeft()).getLeft()).getName());
+        assertFalse(compiled.matches(createMessage("FOO.BAR")));
+    }
+
+    public void testInListWithManyValues() throws Exception {
+        StringBuilder selector = new StringBuilder("location IN (");
+        for (int i = 0; i < 100; ++i) {
+            selector.append("'city-").append(i).append("', ");
+        }
+        selector.append("'London')");
+
+        MockMessage message = createMessage();
+        assertSelector(message, selector.toString(), true);
+        assertSelector(message, selector.toString() + " AND rank = 123", true);
+        assertSelector(message, "NOT (" + selector.toString() + ")", false);
+    }
+}
@@ -333,6 +333,25 @@ public class SelectorParserTest extends TestCase {
         assertSelector(message, "punctuation LIKE '!#$&()*+,-./:;<=>?@[\\]^`{|}~'", true);
     }
 
+    public void testLikeComparisonsWithoutRegularExpression() throws Exception {
+        MockMessage message = createMessage();
+
+        assertSelector(message, "foo LIKE '!_foo' ESCAPE '!'", true);
+        assertSelector(message, "foo LIKE '!_fo' ESCAPE '!'", false);
+        assertSelector(message, "foo LIKE '!_f%' ESCAPE '!'", true);
+        assertSelector(message, "foo LIKE 'f%'", false);
+        assertSelector(message, "foo LIKE '%fo'", false);
+        assertSelector(message, "foo LIKE '%%oo'", true);
+        assertSelector(message, "foo LIKE '%fo%'", true);
+        assertSelector(message, "foo LIKE '%x%'", false);
+        assertSelector(message, "foo LIKE '%'", true);
+        assertSelector(message, "foo LIKE '!_%o' ESCAPE '!'", true);
+        assertSelector(message, "foo LIKE '!_%f' ESCAPE '!'", false);
+        assertSelector(message, "punctuation LIKE '!#$&%'", true);
+        assertSelector(message, "quote LIKE '%God!%%' ESCAPE '!'", false);
+        assertSelector(message, "quote LIKE '%God%'", true);
+    }
+
     public void testInvalidSelector() throws Exception {
         MockMessage message = createMessage();
         assertInvalidSelector(message, "3+5");
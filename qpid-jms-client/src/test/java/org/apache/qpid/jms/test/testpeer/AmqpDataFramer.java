@@ -36,7 +36,13 @@ public class AmqpDataFramer
 
     public static byte[] encodeFrame(FrameType type, int channel, DescribedType describedType, Binary payload)
     {
-        ByteBuffer buffer = ByteBuffer.allocate(CAPACITY);  //TODO: set a proper size
+        int capacity = CAPACITY;
+        if(payload != null)
+        {
+            capacity += payload.getLength();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);  //TODO: set a proper size
 
         buffer.position(8); // leave hole for frame header
 
@@ -28,11 +28,13 @@ import static org.hamcrest.Matchers.nullValue;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLContext;
 
@@ -77,14 +79,16 @@ import org.apache.qpid.jms.test.testpeer.matchers.SaslInitMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.SourceMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.TargetMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.TransferMatcher;
-import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.DescribedType;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.UnsignedByte;
 import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.apache.qpid.proton.amqp.UnsignedShort;
-import org.apache.qpid.proton.codec.Data;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.DroppingWritableBuffer;
+import org.apache.qpid.proton.codec.EncoderImpl;
 import org.apache.qpid.proton.engine.impl.AmqpHeader;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
@@ -115,6 +119,7 @@ public class TestAmqpPeer implements AutoCloseable
     private byte[] _deferredBytes;
     private int _lastInitiatedChannel = -1;
     private UnsignedInteger _lastInitiatedLinkHandle = null;
+    private final AtomicInteger _emptyFrameCount = new AtomicInteger();
 
     public TestAmqpPeer() throws IOException
     {
@@ -196,6 +201,19 @@ public class TestAmqpPeer implements AutoCloseable
         }
     }
 
+    void receiveEmptyFrame()
+    {
+        _emptyFrameCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of empty (heartbeat) frames received from the client so far.
+     */
+    public int getEmptyFrameCount()
+    {
+        return _emptyFrameCount.get();
+    }
+
     public void receiveFrame(int type, int channel, DescribedType describedType, Binary payload)
     {
         Handler handler = getFirstHandler();
@@ -398,6 +416,11 @@ public class TestAmqpPeer implements AutoCloseable
     }
 
     public void expectPlainConnect(String username, String password, Symbol[] desiredCapabilities, Symbol[] serverCapabilities, Map<Symbol, Object> serverProperties)
+    {
+        expectPlainConnect(username, password, desiredCapabilities, serverCapabilities, serverProperties, null);
+    }
+
+    public void expectPlainConnect(String username, String password, Symbol[] desiredCapabilities, Symbol[] serverCapabilities, Map<Symbol, Object> serverProperties, UnsignedInteger idleTimeOut)
     {
         SaslMechanismsFrame saslMechanismsFrame = new SaslMechanismsFrame().setSaslServerMechanisms(Symbol.valueOf("PLAIN"));
         addHandler(new HeaderHandlerImpl(AmqpHeader.SASL_HEADER, AmqpHeader.SASL_HEADER,
@@ -442,6 +465,11 @@ public class TestAmqpPeer implements AutoCloseable
             open.setProperties(serverProperties);
         }
 
+        if(idleTimeOut != null)
+        {
+            open.setIdleTimeOut(idleTimeOut);
+        }
+
         OpenMatcher openMatcher = new OpenMatcher()
             .withContainerId(notNullValue(String.class))
             .onSuccess(new FrameSender(
@@ -879,6 +907,16 @@ public class TestAmqpPeer implements AutoCloseable
         expectReceiverAttach(notNullValue(), notNullValue());
     }
 
+    public void expectReceiverAttachButDoNotRespond()
+    {
+        final AttachMatcher attachMatcher = new AttachMatcher()
+                .withName(notNullValue())
+                .withHandle(notNullValue())
+                .withRole(equalTo(Role.RECEIVER));
+
+        addHandler(attachMatcher);
+    }
+
     public void expectDurableSubscriberAttach(String topicName, String subscriptionName)
     {
         SourceMatcher sourceMatcher = new SourceMatcher();
@@ -982,6 +1020,27 @@ public class TestAmqpPeer implements AutoCloseable
             final boolean sendDrainFlowResponse,
             Matcher<UnsignedInteger> creditMatcher,
             final Integer nextIncomingId)
+    {
+        expectLinkFlowRespondWithTransfer(headerDescribedType, messageAnnotationsDescribedType, propertiesDescribedType,
+                                          appPropertiesDescribedType, content, count, drain, sendDrainFlowResponse,
+                                          creditMatcher, nextIncomingId, 0);
+    }
+
+    /**
+     * Expect a flow and respond with the given number of transfers, splitting the payload of each
+     * message across multiple transfer frames when it is larger than the given payload frame size.
+     */
+    public void expectLinkFlowRespondWithTransfer(final HeaderDescribedType headerDescribedType,
+            final MessageAnnotationsDescribedType messageAnnotationsDescribedType,
+            final PropertiesDescribedType propertiesDescribedType,
+            final ApplicationPropertiesDescribedType appPropertiesDescribedType,
+            final DescribedType content,
+            final int count,
+            final boolean drain,
+            final boolean sendDrainFlowResponse,
+            Matcher<UnsignedInteger> creditMatcher,
+            final Integer nextIncomingId,
+            final int payloadFrameSize)
     {
         if (nextIncomingId == null && count > 0)
         {
@@ -1023,29 +1082,52 @@ public class TestAmqpPeer implements AutoCloseable
             String tagString = "theDeliveryTag" + nextId;
             Binary dtag = new Binary(tagString.getBytes());
 
-            final TransferFrame transferResponse = new TransferFrame()
-            .setDeliveryId(UnsignedInteger.valueOf(nextId))
-            .setDeliveryTag(dtag)
-            .setMessageFormat(UnsignedInteger.ZERO)
-            .setSettled(false);
-
             Binary payload = prepareTransferPayload(headerDescribedType, messageAnnotationsDescribedType,
                     propertiesDescribedType, appPropertiesDescribedType, content);
 
-            // The response frame channel will be dynamically set based on the incoming frame. Using the -1 is an illegal placeholder.
-            final FrameSender transferResponseSender = new FrameSender(this, FrameType.AMQP, -1, transferResponse, payload);
-            transferResponseSender.setValueProvider(new ValueProvider()
+            int frameSize = payload.getLength();
+            if (payloadFrameSize > 0 && payloadFrameSize < frameSize)
             {
-                @Override
-                public void setValues()
+                frameSize = payloadFrameSize;
+            }
+
+            int offset = 0;
+            do
+            {
+                int length = Math.min(frameSize, payload.getLength() - offset);
+                boolean more = offset + length < payload.getLength();
+
+                final TransferFrame transferResponse = new TransferFrame()
+                .setDeliveryId(UnsignedInteger.valueOf(nextId))
+                .setDeliveryTag(dtag)
+                .setMessageFormat(UnsignedInteger.ZERO)
+                .setSettled(false);
+
+                if (more)
                 {
-                    transferResponse.setHandle(flowMatcher.getReceivedHandle());
-                    transferResponseSender.setChannel(flowMatcher.getActualChannel());
+                    transferResponse.setMore(true);
                 }
-            });
 
-            addComposite = true;
-            composite.add(transferResponseSender);
+                Binary framePayload = new Binary(payload.getArray(), payload.getArrayOffset() + offset, length);
+
+                // The response frame channel will be dynamically set based on the incoming frame. Using the -1 is an illegal placeholder.
+                final FrameSender transferResponseSender = new FrameSender(this, FrameType.AMQP, -1, transferResponse, framePayload);
+                transferResponseSender.setValueProvider(new ValueProvider()
+                {
+                    @Override
+                    public void setValues()
+                    {
+                        transferResponse.setHandle(flowMatcher.getReceivedHandle());
+                        transferResponseSender.setChannel(flowMatcher.getActualChannel());
+                    }
+                });
+
+                addComposite = true;
+                composite.add(transferResponseSender);
+
+                offset += length;
+            }
+            while (offset < payload.getLength());
         }
 
         if(drain && sendDrainFlowResponse)
@@ -1101,34 +1183,54 @@ public class TestAmqpPeer implements AutoCloseable
                                           final ApplicationPropertiesDescribedType appPropertiesDescribedType,
                                           final DescribedType content)
     {
-        Data payloadData = Proton.data(1024);
+        List<DescribedType> sections = new ArrayList<DescribedType>();
 
         if(headerDescribedType != null)
         {
-            payloadData.putDescribedType(headerDescribedType);
+            sections.add(headerDescribedType);
         }
 
         if(messageAnnotationsDescribedType != null)
         {
-            payloadData.putDescribedType(messageAnnotationsDescribedType);
+            sections.add(messageAnnotationsDescribedType);
         }
 
         if(propertiesDescribedType != null)
         {
-            payloadData.putDescribedType(propertiesDescribedType);
+            sections.add(propertiesDescribedType);
         }
 
         if(appPropertiesDescribedType != null)
         {
-            payloadData.putDescribedType(appPropertiesDescribedType);
+            sections.add(appPropertiesDescribedType);
         }
 
         if(content != null)
         {
-            payloadData.putDescribedType(content);
+            sections.add(content);
+        }
+
+        // Use the codec rather than a Data instance, the latter mis-encodes binary values
+        // larger than 255 bytes which prevents sending large message payloads.
+        DecoderImpl decoder = new DecoderImpl();
+        EncoderImpl encoder = new EncoderImpl(decoder);
+        AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+
+        DroppingWritableBuffer sizer = new DroppingWritableBuffer();
+        encoder.setByteBuffer(sizer);
+        for(DescribedType section : sections)
+        {
+            encoder.writeObject(section);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(sizer.position());
+        encoder.setByteBuffer(buffer);
+        for(DescribedType section : sections)
+        {
+            encoder.writeObject(section);
         }
 
-        return payloadData.encode();
+        return new Binary(buffer.array());
     }
 
     public void expectTransfer(Matcher<Binary> expectedPayloadMatcher)
@@ -1176,6 +1278,16 @@ public class TestAmqpPeer implements AutoCloseable
         addHandler(transferMatcher);
     }
 
+    public void expectTransferButDoNotRespond(Matcher<Binary> expectedPayloadMatcher)
+    {
+        final TransferMatcher transferMatcher = new TransferMatcher();
+        transferMatcher.setPayloadMatcher(expectedPayloadMatcher);
+        transferMatcher.withSettled(Matchers.anyOf(equalTo(false), nullValue()));
+        transferMatcher.withState(nullValue());
+
+        addHandler(transferMatcher);
+    }
+
     public void expectDispositionThatIsAcceptedAndSettled()
     {
         expectDisposition(true, new DescriptorMatcher(Accepted.DESCRIPTOR_CODE, Accepted.DESCRIPTOR_SYMBOL));
@@ -334,6 +334,7 @@ class TestFrameParser
                         else
                         {
                             LOGGER.debug("Ignored empty frame");
+                            _peer.receiveEmptyFrame();
                         }
                         _size = 0;
                         currentInput = nextFramesInput;
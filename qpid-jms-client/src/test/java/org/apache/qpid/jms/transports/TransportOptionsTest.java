@@ -17,6 +17,7 @@
 package org.apache.qpid.jms.transports;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import org.apache.qpid.jms.test.QpidJmsTestCase;
@@ -35,6 +36,13 @@ public class TransportOptionsTest extends QpidJmsTestCase {
     public static final int TEST_SO_LINGER = Short.MAX_VALUE;
     public static final int TEST_SO_TIMEOUT = 10;
     public static final int TEST_CONNECT_TIMEOUT = 90000;
+    public static final boolean TEST_SHARED_EVENT_LOOP = true;
+    public static final int TEST_SHARED_EVENT_LOOP_THREADS = 3;
+    public static final boolean TEST_TCP_CORK = true;
+    public static final int TEST_EPOLL_MAX_EVENTS = 64;
+    public static final boolean TEST_POOLED_DIRECT_BUFFERS = true;
+    public static final int TEST_DIRECT_BUFFER_ARENAS = 2;
+    public static final String TEST_LEAK_DETECTION_LEVEL = "PARANOID";
 
     @Test
     public void testCreate() {
@@ -55,6 +63,13 @@ public class TransportOptionsTest extends QpidJmsTestCase {
         assertEquals(TEST_SO_LINGER, options.getSoLinger());
         assertEquals(TEST_SO_TIMEOUT, options.getSoTimeout());
         assertEquals(TEST_CONNECT_TIMEOUT, options.getConnectTimeout());
+        assertEquals(TEST_SHARED_EVENT_LOOP, options.isSharedEventLoop());
+        assertEquals(TEST_SHARED_EVENT_LOOP_THREADS, options.getSharedEventLoopThreads());
+        assertEquals(TEST_TCP_CORK, options.isTcpCork());
+        assertEquals(TEST_EPOLL_MAX_EVENTS, options.getEpollMaxEvents());
+        assertEquals(TEST_POOLED_DIRECT_BUFFERS, options.isPooledDirectBuffers());
+        assertEquals(TEST_DIRECT_BUFFER_ARENAS, options.getDirectBufferArenas());
+        assertEquals(TEST_LEAK_DETECTION_LEVEL, options.getLeakDetectionLevel());
     }
 
     @Test
@@ -69,6 +84,64 @@ public class TransportOptionsTest extends QpidJmsTestCase {
         assertEquals(TEST_SO_LINGER, options.getSoLinger());
         assertEquals(TEST_SO_TIMEOUT, options.getSoTimeout());
         assertEquals(TEST_CONNECT_TIMEOUT, options.getConnectTimeout());
+        assertEquals(TEST_SHARED_EVENT_LOOP, options.isSharedEventLoop());
+        assertEquals(TEST_SHARED_EVENT_LOOP_THREADS, options.getSharedEventLoopThreads());
+        assertEquals(TEST_TCP_CORK, options.isTcpCork());
+        assertEquals(TEST_EPOLL_MAX_EVENTS, options.getEpollMaxEvents());
+        assertEquals(TEST_POOLED_DIRECT_BUFFERS, options.isPooledDirectBuffers());
+        assertEquals(TEST_DIRECT_BUFFER_ARENAS, options.getDirectBufferArenas());
+        assertEquals(TEST_LEAK_DETECTION_LEVEL, options.getLeakDetectionLevel());
+    }
+
+    @Test
+    public void testSharedEventLoopThreadsValidation() {
+        TransportOptions options = createNonDefaultOptions().clone();
+        try {
+            options.setSharedEventLoopThreads(0);
+            fail("Should have thrown an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        options.setSharedEventLoopThreads(1);
+    }
+
+    @Test
+    public void testEpollMaxEventsValidation() {
+        TransportOptions options = createNonDefaultOptions().clone();
+        try {
+            options.setEpollMaxEvents(0);
+            fail("Should have thrown an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        options.setEpollMaxEvents(1);
+    }
+
+    @Test
+    public void testDirectBufferArenasValidation() {
+        TransportOptions options = createNonDefaultOptions().clone();
+        try {
+            options.setDirectBufferArenas(0);
+            fail("Should have thrown an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        options.setDirectBufferArenas(1);
+    }
+
+    @Test
+    public void testLeakDetectionLevelValidation() {
+        TransportOptions options = createNonDefaultOptions().clone();
+        try {
+            options.setLeakDetectionLevel("extreme");
+            fail("Should have thrown an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        options.setLeakDetectionLevel("simple");
+        assertEquals("SIMPLE", options.getLeakDetectionLevel());
+        options.setLeakDetectionLevel(null);
+        assertNull(options.getLeakDetectionLevel());
     }
 
     @Test
@@ -135,6 +208,13 @@ public class TransportOptionsTest extends QpidJmsTestCase {
         options.setSoLinger(TEST_SO_LINGER);
         options.setSoTimeout(TEST_SO_TIMEOUT);
         options.setConnectTimeout(TEST_CONNECT_TIMEOUT);
+        options.setSharedEventLoop(TEST_SHARED_EVENT_LOOP);
+        options.setSharedEventLoopThreads(TEST_SHARED_EVENT_LOOP_THREADS);
+        options.setTcpCork(TEST_TCP_CORK);
+        options.setEpollMaxEvents(TEST_EPOLL_MAX_EVENTS);
+        options.setPooledDirectBuffers(TEST_POOLED_DIRECT_BUFFERS);
+        options.setDirectBufferArenas(TEST_DIRECT_BUFFER_ARENAS);
+        options.setLeakDetectionLevel(TEST_LEAK_DETECTION_LEVEL);
 
         return options;
     }
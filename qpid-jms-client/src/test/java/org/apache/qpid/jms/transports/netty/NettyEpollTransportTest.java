@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.transports.netty;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.EpollSocketChannel;
+
+import java.net.URI;
+
+import org.apache.qpid.jms.test.Wait;
+import org.apache.qpid.jms.transports.Transport;
+import org.apache.qpid.jms.transports.TransportListener;
+import org.apache.qpid.jms.transports.TransportOptions;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Test basic functionality of the Netty based native epoll transport.
+ */
+public class NettyEpollTransportTest extends NettyTcpTransportTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyEpollTransportTest.class);
+
+    private static final int SEND_BYTE_COUNT = 1024;
+
+    @Override
+    @Test(timeout = 60 * 1000)
+    public void testConnectWithoutRunningServer() throws Exception {
+        if (!NettyEpollTransport.isEpollAvailable()) {
+            super.testConnectWithoutRunningServer();
+            return;
+        }
+
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            server.close();
+
+            // The native transport in this Netty version can complete a refused connect
+            // as successful, in which case the close must follow straight after.
+            final Transport transport = createTransport(serverLocation, testListener, createClientOptions());
+            try {
+                transport.connect();
+                assertTrue(Wait.waitFor(new Wait.Condition() {
+
+                    @Override
+                    public boolean isSatisified() throws Exception {
+                        return !transport.isConnected();
+                    }
+                }));
+            } catch (Exception e) {
+                LOG.info("Connection attempt failed as expected.");
+            }
+
+            assertFalse(transport.isConnected());
+
+            transport.close();
+        }
+
+        assertTrue(data.isEmpty());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testConnectUsesEpollChannelWhenAvailable() throws Exception {
+        assumeTrue(NettyEpollTransport.isEpollAvailable());
+
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            TransportOptions options = createClientOptions();
+            options.setTcpCork(true);
+
+            NettyEpollTransport transport = createTransport(serverLocation, testListener, options);
+            transport.connect();
+
+            assertTrue(transport.channel instanceof EpollSocketChannel);
+
+            // A corked socket still delivers partial frames once the kernel flushes them.
+            ByteBuf sendBuffer = transport.allocateSendBuffer(SEND_BYTE_COUNT);
+            for (int i = 0; i < SEND_BYTE_COUNT; ++i) {
+                sendBuffer.writeByte('A');
+            }
+            transport.send(sendBuffer);
+
+            assertTrue(Wait.waitFor(new Wait.Condition() {
+
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return bytesRead.get() == SEND_BYTE_COUNT;
+                }
+            }));
+
+            transport.close();
+        }
+
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Override
+    protected NettyEpollTransport createTransport(URI serverLocation, TransportListener listener, TransportOptions options) {
+        if (listener == null) {
+            return new NettyEpollTransport(serverLocation, options);
+        } else {
+            return new NettyEpollTransport(listener, serverLocation, options);
+        }
+    }
+}
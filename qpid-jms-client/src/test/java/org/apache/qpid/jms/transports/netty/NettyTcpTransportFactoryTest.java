@@ -67,6 +67,21 @@ public class NettyTcpTransportFactoryTest {
         assertEquals(TransportOptions.DEFAULT_SO_TIMEOUT, options.getSoTimeout());
     }
 
+    @Test(timeout = 30000)
+    public void testCreateEpollTransportByKey() throws Exception {
+        URI BASE_URI = new URI("tcp://localhost:5672?transport.tcpCork=true&transport.epollMaxEvents=32");
+
+        Transport transport = NettyTcpTransportFactory.create("epoll", BASE_URI);
+
+        assertNotNull(transport);
+        assertTrue(transport instanceof NettyEpollTransport);
+        assertFalse(transport.isConnected());
+
+        TransportOptions options = transport.getTransportOptions();
+        assertTrue(options.isTcpCork());
+        assertEquals(32, options.getEpollMaxEvents());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testCreateTransportWithUnknownOption() throws Exception {
         URI BASE_URI = new URI("tcp://localhost:5672?transport.someOption=true");
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import io.netty.buffer.ByteBuf;
@@ -426,6 +427,167 @@ public class NettyTcpTransportTest extends QpidJmsTestCase {
         assertTrue(exceptions.isEmpty());
     }
 
+    @Test(timeout = 60 * 1000)
+    public void testMultipleWritesAreReceivedAfterFlush() throws Exception {
+        final int WRITE_COUNT = 10;
+
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            Transport transport = createTransport(serverLocation, testListener, createClientOptions());
+            try {
+                transport.connect();
+                LOG.info("Connected to test server.");
+            } catch (Exception e) {
+                fail("Should have connected to the server");
+            }
+
+            assertTrue(transport.isConnected());
+
+            ByteBuf sendBuffer = Unpooled.buffer(SEND_BYTE_COUNT);
+            for (int i = 0; i < SEND_BYTE_COUNT; ++i) {
+                sendBuffer.writeByte('A');
+            }
+
+            for (int i = 0; i < WRITE_COUNT; ++i) {
+                transport.write(sendBuffer.copy());
+            }
+
+            transport.flush();
+
+            assertTrue(Wait.waitFor(new Wait.Condition() {
+
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return bytesRead.get() == (SEND_BYTE_COUNT * WRITE_COUNT);
+                }
+            }));
+
+            transport.close();
+        }
+
+        assertTrue(!transportClosed);  // Normal shutdown does not trigger the event.
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testSharedEventLoopUsedByMultipleTransports() throws Exception {
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            TransportOptions options = createClientOptions();
+            options.setSharedEventLoop(true);
+            options.setSharedEventLoopThreads(1);
+
+            Transport first = createTransport(serverLocation, testListener, options);
+            Transport second = createTransport(serverLocation, testListener, options);
+            first.connect();
+            second.connect();
+
+            assertNotNull(first.getEventLoop());
+            assertSame(first.getEventLoop(), second.getEventLoop());
+
+            ByteBuf sendBuffer = second.allocateSendBuffer(SEND_BYTE_COUNT);
+            for (int i = 0; i < SEND_BYTE_COUNT; ++i) {
+                sendBuffer.writeByte('A');
+            }
+
+            first.close();
+            assertTrue(second.isConnected());
+            second.send(sendBuffer);
+
+            assertTrue(Wait.waitFor(new Wait.Condition() {
+
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return bytesRead.get() == SEND_BYTE_COUNT;
+                }
+            }));
+
+            second.close();
+        }
+
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testEventLoopNotSharedByDefault() throws Exception {
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            Transport transport = createTransport(serverLocation, testListener, createClientOptions());
+            transport.connect();
+            assertNull(transport.getEventLoop());
+            transport.close();
+        }
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testPooledDirectBuffersUsedForSends() throws Exception {
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            TransportOptions options = createClientOptions();
+            options.setPooledDirectBuffers(true);
+            options.setDirectBufferArenas(1);
+
+            Transport transport = createTransport(serverLocation, testListener, options);
+            transport.connect();
+
+            ByteBuf sendBuffer = transport.allocateSendBuffer(SEND_BYTE_COUNT);
+            assertTrue(sendBuffer.isDirect());
+            assertSame(PartialPooledByteBufAllocator.directIoInstance(1), ((NettyTcpTransport) transport).channel.config().getAllocator());
+
+            for (int i = 0; i < SEND_BYTE_COUNT; ++i) {
+                sendBuffer.writeByte('A');
+            }
+            transport.send(sendBuffer);
+
+            assertTrue(Wait.waitFor(new Wait.Condition() {
+
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return bytesRead.get() == SEND_BYTE_COUNT;
+                }
+            }));
+
+            transport.close();
+        }
+
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testHeapBuffersUsedForSendsByDefault() throws Exception {
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            Transport transport = createTransport(serverLocation, testListener, createClientOptions());
+            transport.connect();
+
+            ByteBuf sendBuffer = transport.allocateSendBuffer(SEND_BYTE_COUNT);
+            assertFalse(sendBuffer.isDirect());
+            sendBuffer.release();
+
+            transport.close();
+        }
+    }
+
     @Test(timeout = 60 * 1000)
     public void testSendToClosedTransportFails() throws Exception {
         Transport transport = null;
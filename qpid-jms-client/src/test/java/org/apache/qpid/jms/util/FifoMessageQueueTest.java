@@ -216,6 +216,24 @@ public class FifoMessageQueueTest {
         assertTrue(queue.isEmpty());
     }
 
+    @Test
+    public void testRemoveFirstBatch() throws JMSException {
+        List<JmsInboundMessageDispatch> messages = createFullRangePrioritySet();
+        Collections.shuffle(messages);
+
+        for (JmsInboundMessageDispatch envelope: messages) {
+            queue.enqueue(envelope);
+        }
+
+        List<JmsInboundMessageDispatch> batch = queue.dequeueNoWait(4);
+        assertEquals(messages.subList(0, 4), batch);
+        batch = queue.dequeueNoWait(10);
+        assertEquals(messages.subList(4, 10), batch);
+
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.dequeueNoWait(10).isEmpty());
+    }
+
     @Test
     public void testPeekOnEmptyQueue() {
         assertNull(queue.peek());
@@ -242,6 +242,24 @@ public class PriorityMessageQueueTest {
         assertTrue(queue.isEmpty());
     }
 
+    @Test
+    public void testRemoveFirstBatch() throws JMSException {
+        queue.enqueue(createEnvelope(1));
+        queue.enqueue(createEnvelope(9));
+        queue.enqueue(createEnvelope(4));
+
+        List<JmsInboundMessageDispatch> batch = queue.dequeueNoWait(2);
+        assertEquals(2, batch.size());
+        assertEquals(9, batch.get(0).getMessage().getJMSPriority());
+        assertEquals(4, batch.get(1).getMessage().getJMSPriority());
+        batch = queue.dequeueNoWait(2);
+        assertEquals(1, batch.size());
+        assertEquals(1, batch.get(0).getMessage().getJMSPriority());
+
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.dequeueNoWait(10).isEmpty());
+    }
+
     @Test
     public void testPeekOnEmptyQueue() {
         assertNull(queue.peek());
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test for the SerialExecutor support class.
+ */
+public class SerialExecutorTest extends QpidJmsTestCase {
+
+    @Test(timeout=10000, expected=IllegalArgumentException.class)
+    public void testCreateWithNullDelegate() {
+        new SerialExecutor(null);
+    }
+
+    @Test(timeout=10000)
+    public void testTasksRunInOrderOneAtATime() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            SerialExecutor executor = new SerialExecutor(pool);
+            final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(100);
+
+            for (int i = 0; i < 100; ++i) {
+                final int value = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int current = running.incrementAndGet();
+                        maxRunning.set(Math.max(current, maxRunning.get()));
+                        order.add(value);
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(1, maxRunning.get());
+            for (int i = 0; i < 100; ++i) {
+                assertEquals(Integer.valueOf(i), order.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testInstancesSharingPoolRunConcurrently() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            SerialExecutor first = new SerialExecutor(pool);
+            SerialExecutor second = new SerialExecutor(pool);
+            final CountDownLatch secondRan = new CountDownLatch(1);
+            final CountDownLatch firstDone = new CountDownLatch(1);
+
+            first.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (secondRan.await(5, TimeUnit.SECONDS)) {
+                            firstDone.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                    }
+                }
+            });
+            second.execute(new Runnable() {
+                @Override
+                public void run() {
+                    secondRan.countDown();
+                }
+            });
+
+            assertTrue(firstDone.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testTaskFailureDoesNotStallLaterTasks() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            SerialExecutor executor = new SerialExecutor(pool);
+            final CountDownLatch done = new CountDownLatch(1);
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    throw new RuntimeException("expected");
+                }
+            });
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+            assertFalse(executor.isBusy());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
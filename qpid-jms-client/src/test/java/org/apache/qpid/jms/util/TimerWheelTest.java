@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test for the TimerWheel support class.
+ */
+public class TimerWheelTest extends QpidJmsTestCase {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test(timeout=10000, expected=IllegalArgumentException.class)
+    public void testCreateWithZeroTick() {
+        new TimerWheel(0, TimeUnit.MILLISECONDS, 16);
+    }
+
+    @Test(timeout=10000, expected=IllegalArgumentException.class)
+    public void testScheduleNullTask() {
+        new TimerWheel(10, TimeUnit.MILLISECONDS, 16).schedule(null, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(timeout=10000)
+    public void testTimeoutRunsOnlyOnceDeadlinePasses() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 16, 0);
+        CountingTask task = new CountingTask();
+
+        TimerWheel.Timeout timeout = wheel.schedule(task, 50, TimeUnit.MILLISECONDS, 0);
+        assertEquals(1, wheel.size());
+
+        assertEquals(0, wheel.expireTimeouts(4 * TICK));
+        assertEquals(0, task.count);
+        assertEquals(1, wheel.expireTimeouts(5 * TICK));
+        assertEquals(1, task.count);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.isCancelled());
+        assertTrue(wheel.isEmpty());
+
+        assertEquals(0, wheel.expireTimeouts(100 * TICK));
+        assertEquals(1, task.count);
+    }
+
+    @Test(timeout=10000)
+    public void testTimeoutLongerThanOneTurnOfTheWheel() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 4, 0);
+        CountingTask task = new CountingTask();
+
+        wheel.schedule(task, 130, TimeUnit.MILLISECONDS, 0);
+
+        assertEquals(0, wheel.expireTimeouts(12 * TICK));
+        assertEquals(0, task.count);
+        assertEquals(1, wheel.expireTimeouts(13 * TICK));
+        assertEquals(1, task.count);
+    }
+
+    @Test(timeout=10000)
+    public void testCancelledTimeoutNeverRuns() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 16, 0);
+        CountingTask cancelled = new CountingTask();
+        CountingTask kept = new CountingTask();
+
+        TimerWheel.Timeout timeout = wheel.schedule(cancelled, 20, TimeUnit.MILLISECONDS, 0);
+        wheel.schedule(kept, 20, TimeUnit.MILLISECONDS, 0);
+        timeout.cancel();
+
+        assertTrue(timeout.isCancelled());
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.expireTimeouts(2 * TICK));
+        assertEquals(0, cancelled.count);
+        assertEquals(1, kept.count);
+
+        // Cancelling after expiry has no effect.
+        timeout.cancel();
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test(timeout=10000)
+    public void testTimeoutsRunInDeadlineOrderAcrossTicks() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        final List<Integer> order = new ArrayList<Integer>();
+
+        for (final int delay : new int[] { 70, 10, 40, 20 }) {
+            wheel.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    order.add(delay);
+                }
+            }, delay, TimeUnit.MILLISECONDS, 0);
+        }
+
+        assertEquals(4, wheel.expireTimeouts(10 * TICK));
+        assertEquals(10, (int) order.get(0));
+        assertEquals(20, (int) order.get(1));
+        assertEquals(40, (int) order.get(2));
+        assertEquals(70, (int) order.get(3));
+    }
+
+    @Test(timeout=10000)
+    public void testTaskMayCancelAnotherDueTimeout() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 16, 0);
+        final CountingTask second = new CountingTask();
+        final TimerWheel.Timeout[] holder = new TimerWheel.Timeout[1];
+
+        wheel.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                holder[0].cancel();
+            }
+        }, 10, TimeUnit.MILLISECONDS, 0);
+        holder[0] = wheel.schedule(second, 10, TimeUnit.MILLISECONDS, 0);
+
+        // Both are unlinked together, whichever runs first decides the other's fate.
+        int expired = wheel.expireTimeouts(TICK);
+        assertTrue(expired == 1 || expired == 2);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test(timeout=10000)
+    public void testFailingTaskDoesNotStopOthers() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 16, 0);
+        CountingTask task = new CountingTask();
+
+        wheel.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                throw new IllegalStateException("Expected");
+            }
+        }, 10, TimeUnit.MILLISECONDS, 0);
+        wheel.schedule(task, 10, TimeUnit.MILLISECONDS, 0);
+
+        assertEquals(2, wheel.expireTimeouts(TICK));
+        assertEquals(1, task.count);
+    }
+
+    @Test(timeout=10000)
+    public void testIdleWheelSkipsAheadWhenScheduling() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 4, 0);
+        CountingTask task = new CountingTask();
+
+        long now = 1000 * TICK;
+        wheel.schedule(task, 20, TimeUnit.MILLISECONDS, now);
+
+        assertEquals(0, wheel.expireTimeouts(now + TICK));
+        assertEquals(1, wheel.expireTimeouts(now + 2 * TICK));
+        assertEquals(1, task.count);
+    }
+
+    @Test(timeout=10000)
+    public void testClearDropsPendingTimeouts() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 16, 0);
+        CountingTask task = new CountingTask();
+
+        TimerWheel.Timeout timeout = wheel.schedule(task, 10, TimeUnit.MILLISECONDS, 0);
+        wheel.schedule(task, 200, TimeUnit.MILLISECONDS, 0);
+        wheel.clear();
+
+        assertTrue(wheel.isEmpty());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, wheel.expireTimeouts(100 * TICK));
+        assertEquals(0, task.count);
+        assertEquals(10, wheel.getTickDuration());
+    }
+
+    private static class CountingTask implements Runnable {
+
+        private int count;
+
+        @Override
+        public void run() {
+            count++;
+        }
+    }
+}